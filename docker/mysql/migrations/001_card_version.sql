@@ -0,0 +1,2 @@
+-- Adds the optimistic-locking version column to databases created before it existed.
+ALTER TABLE tb_card ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,10 @@
+-- Moves tb_card.balance from NUMERIC(38,2) to integer cents in balance_cents.
+-- Run with the application stopped; the backfill is exact because balance has two decimal places.
+ALTER TABLE tb_card ADD COLUMN balance_cents BIGINT NULL;
+UPDATE tb_card SET balance_cents = CAST(balance * 100 AS SIGNED);
+ALTER TABLE tb_card MODIFY COLUMN balance_cents BIGINT NOT NULL;
+-- The application no longer writes balance, so new cards must be able to leave it empty.
+ALTER TABLE tb_card MODIFY COLUMN balance NUMERIC(38,2) NULL;
+
+-- Drop the old column once the new release is verified; until then a rollback can read it.
+-- ALTER TABLE tb_card DROP COLUMN balance;
@@ -0,0 +1,9 @@
+-- Creates the append-only ledger of authorization decisions written by TransactionLedger.
+CREATE TABLE tb_transaction (
+                                id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                                card_number VARCHAR(255) NOT NULL,
+                                amount_cents BIGINT NOT NULL,
+                                status VARCHAR(32) NOT NULL,
+                                created_at DATETIME(6) NOT NULL,
+                                INDEX idx_transaction_card_number (card_number, id)
+);
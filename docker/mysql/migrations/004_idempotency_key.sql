@@ -0,0 +1,10 @@
+-- Stores outcomes of transactions sent with an Idempotency-Key header.
+CREATE TABLE tb_idempotency_key (
+                                    idempotency_key VARCHAR(255) PRIMARY KEY,
+                                    card_number VARCHAR(255) NOT NULL,
+                                    amount_cents BIGINT NOT NULL,
+                                    status VARCHAR(32) NOT NULL,
+                                    balance_cents BIGINT NULL,
+                                    created_at DATETIME(6) NOT NULL,
+                                    INDEX idx_idempotency_key_created_at (created_at)
+);
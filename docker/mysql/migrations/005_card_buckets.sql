@@ -0,0 +1,8 @@
+-- Holds the split balances of hot cards in the bucketed transaction mode.
+CREATE TABLE tb_card_bucket (
+                                id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                                card_number VARCHAR(255) NOT NULL,
+                                bucket INT NOT NULL,
+                                balance_cents BIGINT NOT NULL,
+                                CONSTRAINT uk_card_bucket UNIQUE (card_number, bucket)
+);
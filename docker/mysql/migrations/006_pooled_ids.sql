@@ -0,0 +1,19 @@
+-- Card and user ids come from pooled generators instead of AUTO_INCREMENT, so inserts can be
+-- batched. Each generator starts a block past the highest existing id.
+ALTER TABLE tb_card MODIFY id BIGINT NOT NULL;
+
+CREATE TABLE tb_card_seq (
+                             next_val BIGINT NOT NULL
+);
+INSERT INTO tb_card_seq (next_val) SELECT COALESCE(MAX(id), 0) + 50 FROM tb_card;
+
+-- tb_user_role references tb_user.id, and MySQL refuses to modify a referenced column while foreign
+-- key checks are on. The column type does not change, so the reference stays valid.
+SET FOREIGN_KEY_CHECKS = 0;
+ALTER TABLE tb_user MODIFY id BIGINT NOT NULL;
+SET FOREIGN_KEY_CHECKS = 1;
+
+CREATE TABLE tb_user_seq (
+                             next_val BIGINT NOT NULL
+);
+INSERT INTO tb_user_seq (next_val) SELECT COALESCE(MAX(id), 0) + 50 FROM tb_user;
@@ -1,17 +1,54 @@
 CREATE TABLE tb_card (
-                         id BIGINT AUTO_INCREMENT PRIMARY KEY,
-                         balance NUMERIC(38,2) NOT NULL,
+                         id BIGINT PRIMARY KEY,
+                         balance_cents BIGINT NOT NULL,
                          card_number VARCHAR(255) NOT NULL UNIQUE,
-                         password VARCHAR(255)
+                         password VARCHAR(255),
+                         version BIGINT NOT NULL DEFAULT 0
+);
+
+-- Pooled id generators: Hibernate reserves 50 ids per update of next_val.
+CREATE TABLE tb_card_seq (
+                             next_val BIGINT NOT NULL
+);
+
+CREATE TABLE tb_card_bucket (
+                                id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                                card_number VARCHAR(255) NOT NULL,
+                                bucket INT NOT NULL,
+                                balance_cents BIGINT NOT NULL,
+                                CONSTRAINT uk_card_bucket UNIQUE (card_number, bucket)
+);
+
+CREATE TABLE tb_transaction (
+                                id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                                card_number VARCHAR(255) NOT NULL,
+                                amount_cents BIGINT NOT NULL,
+                                status VARCHAR(32) NOT NULL,
+                                created_at DATETIME(6) NOT NULL,
+                                INDEX idx_transaction_card_number (card_number, id)
+);
+
+CREATE TABLE tb_idempotency_key (
+                                    idempotency_key VARCHAR(255) PRIMARY KEY,
+                                    card_number VARCHAR(255) NOT NULL,
+                                    amount_cents BIGINT NOT NULL,
+                                    status VARCHAR(32) NOT NULL,
+                                    balance_cents BIGINT NULL,
+                                    created_at DATETIME(6) NOT NULL,
+                                    INDEX idx_idempotency_key_created_at (created_at)
 );
 
 CREATE TABLE tb_user (
-                         id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                         id BIGINT PRIMARY KEY,
                          name VARCHAR(255) NOT NULL,
                          email VARCHAR(255) NOT NULL UNIQUE,
                          password VARCHAR(255) NOT NULL
 );
 
+CREATE TABLE tb_user_seq (
+                             next_val BIGINT NOT NULL
+);
+
 CREATE TABLE tb_role (
                          id BIGINT AUTO_INCREMENT PRIMARY KEY,
                          authority VARCHAR(255) NOT NULL UNIQUE
@@ -25,7 +62,11 @@ CREATE TABLE tb_user_role (
                               FOREIGN KEY (role_id) REFERENCES tb_role(id)
 );
 
-INSERT INTO tb_user (name, email, password) VALUES ('Maria Brown', 'maria@gmail.com', '$2a$10$N7SkKCa3r17ga.i.dF9iy.BFUBL2n3b6Z1CWSZWi/qy7ABq/E6VpO');
+INSERT INTO tb_card_seq (next_val) VALUES (1);
+-- The seeded user takes id 1, so generated ids start in the next block.
+INSERT INTO tb_user_seq (next_val) VALUES (51);
+
+INSERT INTO tb_user (id, name, email, password) VALUES (1, 'Maria Brown', 'maria@gmail.com', '$2a$10$N7SkKCa3r17ga.i.dF9iy.BFUBL2n3b6Z1CWSZWi/qy7ABq/E6VpO');
 
 INSERT INTO tb_role (authority) VALUES ('ROLE_CLIENT');
 INSERT INTO tb_role (authority) VALUES ('ROLE_ADMIN');
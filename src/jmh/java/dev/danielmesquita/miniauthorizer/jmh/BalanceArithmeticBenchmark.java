@@ -0,0 +1,51 @@
+package dev.danielmesquita.miniauthorizer.jmh;
+
+import dev.danielmesquita.miniauthorizer.entity.Money;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One debit: the balance check and subtraction done under the card lock, with {@link BigDecimal}
+ * balances and with {@link Money} cents. "With conversions" also turns the request value into
+ * cents and the new balance back into the response's BigDecimal, which the BigDecimal debit never
+ * needs. Allocation per operation comes from the profile's GC profiler.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BalanceArithmeticBenchmark {
+
+  public BigDecimal balance = new BigDecimal("500.00");
+  public BigDecimal value = new BigDecimal("12.34");
+  public Money balanceMoney = Money.ofCents(500_00);
+
+  @Benchmark
+  public BigDecimal bigDecimalDebit() {
+    BigDecimal newBalance = balance.subtract(value);
+    return newBalance.compareTo(BigDecimal.ZERO) < 0 ? balance : newBalance;
+  }
+
+  @Benchmark
+  public Money moneyDebit() {
+    Money newBalance = balanceMoney.minus(Money.ofCents(12_34));
+    return newBalance.isNegative() ? balanceMoney : newBalance;
+  }
+
+  @Benchmark
+  public BigDecimal moneyDebitWithConversions() {
+    Money newBalance = balanceMoney.minus(Money.of(value));
+    return (newBalance.isNegative() ? balanceMoney : newBalance).toBigDecimal();
+  }
+}
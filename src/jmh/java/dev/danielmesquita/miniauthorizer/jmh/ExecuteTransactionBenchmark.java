@@ -0,0 +1,82 @@
+package dev.danielmesquita.miniauthorizer.jmh;
+
+import dev.danielmesquita.miniauthorizer.MiniAuthorizerApplication;
+import dev.danielmesquita.miniauthorizer.dto.CardDTO;
+import dev.danielmesquita.miniauthorizer.dto.TransactionDTO;
+import dev.danielmesquita.miniauthorizer.entity.Card;
+import dev.danielmesquita.miniauthorizer.entity.Money;
+import dev.danielmesquita.miniauthorizer.repository.CardRepository;
+import dev.danielmesquita.miniauthorizer.service.CardService;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * {@link CardService#executeTransaction} against in-memory H2 for each transaction mode, with the
+ * card password verification cache warm. One application context is started per fork and mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecuteTransactionBenchmark {
+
+  private static final String CARD_NUMBER = "4000000000000001";
+  private static final String PASSWORD = "1234";
+
+  @Param({"pessimistic", "conditional", "optimistic", "in-memory"})
+  public String transactionMode;
+
+  private ConfigurableApplicationContext context;
+  private CardService cardService;
+  private TransactionDTO debit;
+
+  @Setup(Level.Trial)
+  public void startApplication() {
+    // Passed as arguments so they override application-test.properties (show-sql in particular).
+    context =
+        new SpringApplicationBuilder(MiniAuthorizerApplication.class)
+            .profiles("test")
+            .run(
+                "--authorizer.transaction.mode=" + transactionMode,
+                "--server.port=0",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN");
+    cardService = context.getBean(CardService.class);
+
+    // Large enough that no measured debit is declined, including in-memory mode which never
+    // re-reads the balance.
+    String hash = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+    context
+        .getBean(CardRepository.class)
+        .save(new Card(null, CARD_NUMBER, hash, Money.ofCents(Long.MAX_VALUE / 2)));
+    debit = new TransactionDTO(CARD_NUMBER, PASSWORD, new BigDecimal("0.01"));
+  }
+
+  @TearDown(Level.Trial)
+  public void stopApplication() {
+    context.close();
+  }
+
+  @Benchmark
+  public CardDTO executeTransaction() {
+    return cardService.executeTransaction(debit);
+  }
+}
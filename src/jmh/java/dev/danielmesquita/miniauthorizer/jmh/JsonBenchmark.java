@@ -0,0 +1,47 @@
+package dev.danielmesquita.miniauthorizer.jmh;
+
+import dev.danielmesquita.miniauthorizer.dto.CardDTO;
+import dev.danielmesquita.miniauthorizer.dto.TransactionDTO;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tools.jackson.databind.json.JsonMapper;
+
+/** Jackson cost of the /transactions request and response bodies. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+  private final JsonMapper mapper = JsonMapper.builder().build();
+  private final byte[] transactionJson =
+      "{\"cardNumber\":\"4000000000000001\",\"password\":\"1234\",\"value\":12.34}"
+          .getBytes(StandardCharsets.UTF_8);
+  private final CardDTO card =
+      new CardDTO(
+          "4000000000000001",
+          "$2a$10$N7SkKCa3r17ga.i.dF9iy.BFUBL2n3b6Z1CWSZWi/qy7ABq/E6VpO",
+          new BigDecimal("487.66"));
+
+  @Benchmark
+  public TransactionDTO readTransaction() {
+    return mapper.readValue(transactionJson, TransactionDTO.class);
+  }
+
+  @Benchmark
+  public byte[] writeCard() {
+    return mapper.writeValueAsBytes(card);
+  }
+}
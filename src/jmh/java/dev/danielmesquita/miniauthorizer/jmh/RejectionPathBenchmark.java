@@ -0,0 +1,77 @@
+package dev.danielmesquita.miniauthorizer.jmh;
+
+import dev.danielmesquita.miniauthorizer.controller.CardController;
+import dev.danielmesquita.miniauthorizer.controller.handlers.ControllerExceptionHandler;
+import dev.danielmesquita.miniauthorizer.dto.CustomError;
+import dev.danielmesquita.miniauthorizer.dto.TransactionDTO;
+import dev.danielmesquita.miniauthorizer.enums.TransactionStatus;
+import dev.danielmesquita.miniauthorizer.exception.ResourceNotFoundException;
+import dev.danielmesquita.miniauthorizer.exception.TransactionException;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+
+/**
+ * Rejections handled by {@link ControllerExceptionHandler}, including the cost of creating the
+ * exception where the application creates it (declines and unknown cards).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RejectionPathBenchmark {
+
+  private final ControllerExceptionHandler handler = new ControllerExceptionHandler();
+  private final MockHttpServletRequest request =
+      new MockHttpServletRequest("POST", "/transactions");
+  private MethodArgumentNotValidException invalidValue;
+
+  @Setup
+  public void buildValidationFailure() throws NoSuchMethodException {
+    TransactionDTO transactionDTO = new TransactionDTO("4000000000000001", "1234", BigDecimal.ZERO);
+    BeanPropertyBindingResult bindingResult =
+        new BeanPropertyBindingResult(transactionDTO, "transactionDTO");
+    bindingResult.addError(
+        new FieldError("transactionDTO", "value", "Value must be greater than zero"));
+    MethodParameter parameter =
+        new MethodParameter(
+            CardController.class.getMethod(
+                "processTransaction", TransactionDTO.class, String.class),
+            0);
+    invalidValue = new MethodArgumentNotValidException(parameter, bindingResult);
+  }
+
+  @Benchmark
+  public ResponseEntity<CustomError> insufficientBalance() {
+    return handler.databaseException(
+        new TransactionException(TransactionStatus.SALDO_INSUFICIENTE), request);
+  }
+
+  @Benchmark
+  public ResponseEntity<CustomError> cardNotFound() {
+    return handler.resourceNotFound(
+        new ResourceNotFoundException("Card not found with number: 4000000000000001"), request);
+  }
+
+  @Benchmark
+  public ResponseEntity<CustomError> invalidRequestBody() {
+    return handler.handleValidationException(invalidValue, request);
+  }
+}
@@ -2,8 +2,10 @@ package dev.danielmesquita.miniauthorizer;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class MiniAuthorizerApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,193 @@
+package dev.danielmesquita.miniauthorizer.config;
+
+import dev.danielmesquita.miniauthorizer.service.AuthenticatedPrincipalCache;
+import dev.danielmesquita.miniauthorizer.service.BalanceCache;
+import dev.danielmesquita.miniauthorizer.service.BucketedTransactionEngine;
+import dev.danielmesquita.miniauthorizer.service.CardFilter;
+import dev.danielmesquita.miniauthorizer.service.CardPasswordVerifier;
+import dev.danielmesquita.miniauthorizer.service.IdempotencyStore;
+import dev.danielmesquita.miniauthorizer.service.OptimisticTransactionEngine;
+import dev.danielmesquita.miniauthorizer.service.TransactionLedger;
+import dev.danielmesquita.miniauthorizer.service.WriteAheadLog;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.function.ToDoubleFunction;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/** Publishes the counters the authorizer components keep for themselves. */
+@Component
+public class AuthorizerMetrics implements MeterBinder {
+
+  private final CardPasswordVerifier cardPasswordVerifier;
+  private final AuthenticatedPrincipalCache principalCache;
+  private final BalanceCache balanceCache;
+  private final TransactionLedger ledger;
+  private final IdempotencyStore idempotencyStore;
+  private final ObjectProvider<OptimisticTransactionEngine> optimisticEngine;
+  private final ObjectProvider<BucketedTransactionEngine> bucketedEngine;
+  private final ObjectProvider<WriteAheadLog> writeAheadLog;
+  private final ObjectProvider<CardFilter> cardFilter;
+
+  public AuthorizerMetrics(
+      CardPasswordVerifier cardPasswordVerifier,
+      AuthenticatedPrincipalCache principalCache,
+      BalanceCache balanceCache,
+      TransactionLedger ledger,
+      IdempotencyStore idempotencyStore,
+      ObjectProvider<OptimisticTransactionEngine> optimisticEngine,
+      ObjectProvider<BucketedTransactionEngine> bucketedEngine,
+      ObjectProvider<WriteAheadLog> writeAheadLog,
+      ObjectProvider<CardFilter> cardFilter) {
+    this.cardPasswordVerifier = cardPasswordVerifier;
+    this.principalCache = principalCache;
+    this.balanceCache = balanceCache;
+    this.ledger = ledger;
+    this.idempotencyStore = idempotencyStore;
+    this.optimisticEngine = optimisticEngine;
+    this.bucketedEngine = bucketedEngine;
+    this.writeAheadLog = writeAheadLog;
+    this.cardFilter = cardFilter;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    bindCache(
+        registry,
+        "card-password",
+        cardPasswordVerifier,
+        CardPasswordVerifier::getHitCount,
+        CardPasswordVerifier::getMissCount,
+        CardPasswordVerifier::getSize);
+    bindCache(
+        registry,
+        "principal",
+        principalCache,
+        AuthenticatedPrincipalCache::getHitCount,
+        AuthenticatedPrincipalCache::getMissCount,
+        AuthenticatedPrincipalCache::getSize);
+    bindCache(
+        registry,
+        "balance",
+        balanceCache,
+        BalanceCache::getHitCount,
+        BalanceCache::getMissCount,
+        BalanceCache::getSize);
+    Gauge.builder("authorizer.cache.size", idempotencyStore, IdempotencyStore::getSize)
+        .tag("cache", "idempotency")
+        .register(registry);
+
+    FunctionCounter.builder(
+            "authorizer.ledger.written", ledger, TransactionLedger::getWrittenCount)
+        .description("Ledger entries written to tb_transaction")
+        .register(registry);
+    FunctionCounter.builder(
+            "authorizer.ledger.caller.flushes", ledger, TransactionLedger::getCallerFlushCount)
+        .description("Flushes run by request threads because the ledger queue was full")
+        .register(registry);
+    FunctionCounter.builder(
+            "authorizer.ledger.rejected", ledger, TransactionLedger::getRejectedCount)
+        .description("Ledger entries the database refused, which were dropped")
+        .register(registry);
+    Gauge.builder("authorizer.ledger.queue.size", ledger, TransactionLedger::getQueueSize)
+        .description("Ledger entries waiting to be written")
+        .register(registry);
+
+    FunctionCounter.builder(
+            "authorizer.idempotency.replays", idempotencyStore, IdempotencyStore::getReplayCount)
+        .description("Requests answered with the outcome of an earlier request with the same key")
+        .register(registry);
+    FunctionCounter.builder(
+            "authorizer.idempotency.stored.replays",
+            idempotencyStore,
+            IdempotencyStore::getStoredReplayCount)
+        .description("Replays that had to read tb_idempotency_key")
+        .register(registry);
+
+    optimisticEngine.ifAvailable(
+        engine -> {
+          FunctionCounter.builder(
+                  "authorizer.optimistic.retries",
+                  engine,
+                  OptimisticTransactionEngine::getRetryCount)
+              .description("Debits retried after a version conflict")
+              .register(registry);
+          FunctionCounter.builder(
+                  "authorizer.optimistic.exhausted",
+                  engine,
+                  OptimisticTransactionEngine::getExhaustedCount)
+              .description("Debits that ran out of attempts")
+              .register(registry);
+        });
+    bucketedEngine.ifAvailable(
+        engine -> {
+          FunctionCounter.builder(
+                  "authorizer.bucketed.splits", engine, BucketedTransactionEngine::getSplitCount)
+              .description("Hot cards whose balance was split into buckets")
+              .register(registry);
+          FunctionCounter.builder(
+                  "authorizer.bucketed.rebalances",
+                  engine,
+                  BucketedTransactionEngine::getRebalanceCount)
+              .description("Debits that locked every bucket of a card because one ran low")
+              .register(registry);
+        });
+    writeAheadLog.ifAvailable(
+        log -> {
+          FunctionCounter.builder("authorizer.wal.appends", log, WriteAheadLog::getAppendCount)
+              .description("Records appended to the write-ahead log")
+              .register(registry);
+          FunctionCounter.builder("authorizer.wal.fsyncs", log, WriteAheadLog::getFsyncCount)
+              .description("Forces of the write-ahead log to disk, each covering many appends")
+              .register(registry);
+        });
+    cardFilter.ifAvailable(
+        filter -> {
+          FunctionCounter.builder(
+                  "authorizer.card.filter.rejections", filter, CardFilter::getRejectionCount)
+              .description("Lookups of unknown cards declined before reaching the engine")
+              .register(registry);
+          FunctionCounter.builder(
+                  "authorizer.card.filter.late.cards", filter, CardFilter::getLateCardCount)
+              .description("Cards missing from the filter that a confirming lookup found")
+              .register(registry);
+          FunctionCounter.builder(
+                  "authorizer.card.filter.false.positives",
+                  filter,
+                  CardFilter::getFalsePositiveCount)
+              .description("Lookups the filter let through for cards that do not exist")
+              .register(registry);
+          Gauge.builder(
+                  "authorizer.card.filter.estimated.false.positive.rate",
+                  filter,
+                  CardFilter::getEstimatedFalsePositiveRate)
+              .description("Chance that an unknown card passes the filter, from its fill")
+              .register(registry);
+          Gauge.builder("authorizer.card.filter.memory", filter, CardFilter::getMemoryBytes)
+              .description("Size of the filter's bit array")
+              .baseUnit(BaseUnits.BYTES)
+              .register(registry);
+        });
+  }
+
+  private static <T> void bindCache(
+      MeterRegistry registry,
+      String cache,
+      T source,
+      ToDoubleFunction<T> hits,
+      ToDoubleFunction<T> misses,
+      ToDoubleFunction<T> size) {
+    FunctionCounter.builder("authorizer.cache.requests", source, hits)
+        .tag("cache", cache)
+        .tag("result", "hit")
+        .register(registry);
+    FunctionCounter.builder("authorizer.cache.requests", source, misses)
+        .tag("cache", cache)
+        .tag("result", "miss")
+        .register(registry);
+    Gauge.builder("authorizer.cache.size", source, size).tag("cache", cache).register(registry);
+  }
+}
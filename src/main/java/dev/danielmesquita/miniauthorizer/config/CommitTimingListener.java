@@ -0,0 +1,51 @@
+package dev.danielmesquita.miniauthorizer.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+
+/**
+ * Times commits of the JPA transaction manager, which Spring Boot registers this listener with.
+ * Commits run on the calling thread, so the start time is kept in a thread local between the
+ * before and after callbacks.
+ */
+@Component
+public class CommitTimingListener implements TransactionExecutionListener {
+
+  private final ThreadLocal<Long> commitStart = new ThreadLocal<>();
+  private final Timer commits;
+  private final Timer failedCommits;
+
+  public CommitTimingListener(MeterRegistry meterRegistry) {
+    this.commits = commitTimer(meterRegistry, "success");
+    this.failedCommits = commitTimer(meterRegistry, "failure");
+  }
+
+  @Override
+  public void beforeCommit(TransactionExecution transaction) {
+    commitStart.set(System.nanoTime());
+  }
+
+  @Override
+  public void afterCommit(TransactionExecution transaction, Throwable commitFailure) {
+    Long start = commitStart.get();
+    if (start == null) {
+      return;
+    }
+    commitStart.remove();
+    long elapsed = System.nanoTime() - start;
+    (commitFailure == null ? commits : failedCommits).record(elapsed, TimeUnit.NANOSECONDS);
+    ServerTiming.record(ServerTiming.Phase.COMMIT, elapsed);
+  }
+
+  private static Timer commitTimer(MeterRegistry meterRegistry, String result) {
+    return Timer.builder("authorizer.transaction.commit")
+        .description("Database commit time, including the Hibernate flush")
+        .tag("result", result)
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+  }
+}
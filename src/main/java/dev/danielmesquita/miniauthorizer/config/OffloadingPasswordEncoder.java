@@ -0,0 +1,89 @@
+package dev.danielmesquita.miniauthorizer.config;
+
+import dev.danielmesquita.miniauthorizer.jfr.PasswordHashingEvent;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Runs the hashing of a delegate encoder on a small pool of platform threads when called from a
+ * virtual thread, so CPU-bound BCrypt work never occupies more carriers than the pool has threads
+ * and cannot starve virtual threads that are waiting on I/O. Platform threads hash inline. When
+ * the queue is full the caller hashes itself.
+ */
+public class OffloadingPasswordEncoder implements PasswordEncoder, AutoCloseable {
+
+  private final PasswordEncoder delegate;
+  private final ThreadPoolExecutor executor;
+
+  public OffloadingPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity) {
+    this.delegate = delegate;
+    this.executor =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            0,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            hashingThreads(),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+  }
+
+  @Override
+  public String encode(CharSequence rawPassword) {
+    return offload("encode", () -> delegate.encode(rawPassword));
+  }
+
+  @Override
+  public boolean matches(CharSequence rawPassword, String encodedPassword) {
+    return offload("matches", () -> delegate.matches(rawPassword, encodedPassword));
+  }
+
+  @Override
+  public boolean upgradeEncoding(String encodedPassword) {
+    return delegate.upgradeEncoding(encodedPassword);
+  }
+
+  @Override
+  public void close() {
+    executor.shutdown();
+  }
+
+  private <T> T offload(String operation, Supplier<T> hashing) {
+    PasswordHashingEvent event = new PasswordHashingEvent();
+    event.begin();
+    boolean offloaded = Thread.currentThread().isVirtual();
+    try {
+      return offloaded ? await(executor.submit(hashing::get)) : hashing.get();
+    } finally {
+      event.complete(operation, offloaded);
+    }
+  }
+
+  private static <T> T await(Future<T> result) {
+    try {
+      return result.get();
+    } catch (InterruptedException e) {
+      result.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while hashing a password", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      if (e.getCause() instanceof Error error) {
+        throw error;
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private static ThreadFactory hashingThreads() {
+    return Thread.ofPlatform().name("password-hashing-", 1).daemon().factory();
+  }
+}
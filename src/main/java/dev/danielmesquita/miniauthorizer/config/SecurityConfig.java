@@ -1,8 +1,10 @@
 package dev.danielmesquita.miniauthorizer.config;
 
+import dev.danielmesquita.miniauthorizer.service.AccessTokenService;
 import dev.danielmesquita.miniauthorizer.service.CustomAuthenticationProvider;
 import dev.danielmesquita.miniauthorizer.service.CustomUserDetailsService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
@@ -15,6 +17,7 @@ import org.springframework.security.config.annotation.web.configurers.HeadersCon
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 
 @Configuration
 public class SecurityConfig {
@@ -22,8 +25,11 @@ public class SecurityConfig {
   @Autowired private CustomUserDetailsService userDetailsService;
 
   @Bean
-  public PasswordEncoder passwordEncoder() {
-    return new BCryptPasswordEncoder();
+  public PasswordEncoder passwordEncoder(
+      @Value("${authorizer.hashing.threads:0}") int threads,
+      @Value("${authorizer.hashing.queue-capacity:10000}") int queueCapacity) {
+    int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    return new OffloadingPasswordEncoder(new BCryptPasswordEncoder(), poolSize, queueCapacity);
   }
 
   @Bean
@@ -36,11 +42,24 @@ public class SecurityConfig {
 
   @Bean
   @Order(2)
-  public SecurityFilterChain filterChain(HttpSecurity http, CustomAuthenticationEntryPoint entryPoint) throws Exception {
+  public SecurityFilterChain filterChain(
+      HttpSecurity http,
+      CustomAuthenticationEntryPoint entryPoint,
+      AccessTokenService accessTokenService)
+      throws Exception {
     http.csrf(AbstractHttpConfigurer::disable)
-            .authorizeHttpRequests(auth -> auth.anyRequest().authenticated())
+            .authorizeHttpRequests(
+                auth ->
+                    auth.requestMatchers("/actuator/health")
+                        .permitAll()
+                        .requestMatchers("/admin/**", "/actuator/**")
+                        .hasRole("ADMIN")
+                        .anyRequest()
+                        .authenticated())
             .userDetailsService(userDetailsService)
-            .httpBasic(httpBasic -> httpBasic.authenticationEntryPoint(entryPoint));
+            .httpBasic(httpBasic -> httpBasic.authenticationEntryPoint(entryPoint))
+            .addFilterBefore(
+                new TokenAuthenticationFilter(accessTokenService), BasicAuthenticationFilter.class);
     return http.build();
   }
 
@@ -0,0 +1,92 @@
+package dev.danielmesquita.miniauthorizer.config;
+
+import java.util.Locale;
+
+/**
+ * Per-request phase durations for the {@code Server-Timing} response header. Only requests that
+ * opted in through {@link ServerTimingFilter} have a current instance; for all others {@link
+ * #record} is a single thread-local read.
+ */
+public final class ServerTiming {
+
+  public enum Phase {
+    AUTH("auth", "authentication"),
+    LOCK("lock", "row lock wait"),
+    PASSWORD("password", "card password check"),
+    COMMIT("commit", "flush and commit"),
+    JSON("json", "response serialization");
+
+    private final String metric;
+    private final String description;
+
+    Phase(String metric, String description) {
+      this.metric = metric;
+      this.description = description;
+    }
+  }
+
+  private static final ThreadLocal<ServerTiming> CURRENT = new ThreadLocal<>();
+
+  private final long[] nanos = new long[Phase.values().length];
+  private final int[] counts = new int[Phase.values().length];
+  private final long start = System.nanoTime();
+  private long serializationStart;
+
+  ServerTiming() {}
+
+  public static void record(Phase phase, long elapsedNanos) {
+    ServerTiming timing = CURRENT.get();
+    if (timing != null) {
+      timing.add(phase, elapsedNanos);
+    }
+  }
+
+  static ServerTiming start() {
+    ServerTiming timing = new ServerTiming();
+    CURRENT.set(timing);
+    return timing;
+  }
+
+  static ServerTiming current() {
+    return CURRENT.get();
+  }
+
+  static void clear() {
+    CURRENT.remove();
+  }
+
+  void markSerializationStart() {
+    serializationStart = System.nanoTime();
+  }
+
+  /** Durations are in milliseconds; a phase that ran more than once also reports its count. */
+  String toHeader() {
+    long end = System.nanoTime();
+    if (serializationStart != 0) {
+      add(Phase.JSON, end - serializationStart);
+    }
+    StringBuilder header = new StringBuilder(160);
+    for (Phase phase : Phase.values()) {
+      int count = counts[phase.ordinal()];
+      if (count == 0) {
+        continue;
+      }
+      header.append(phase.metric).append(";dur=").append(millis(nanos[phase.ordinal()]));
+      header.append(";desc=\"").append(phase.description);
+      if (count > 1) {
+        header.append(" x").append(count);
+      }
+      header.append("\", ");
+    }
+    return header.append("total;dur=").append(millis(end - start)).toString();
+  }
+
+  private void add(Phase phase, long elapsedNanos) {
+    nanos[phase.ordinal()] += elapsedNanos;
+    counts[phase.ordinal()]++;
+  }
+
+  private static String millis(long nanos) {
+    return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+  }
+}
@@ -0,0 +1,107 @@
+package dev.danielmesquita.miniauthorizer.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import org.jspecify.annotations.NonNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+/**
+ * Adds a {@code Server-Timing} header to requests sent with {@code X-Server-Timing: true}. The
+ * body of those responses is buffered so the header can still be set after serialization. Streamed
+ * responses (NDJSON, CSV, server-sent events) are passed through unbuffered and get no header,
+ * since their headers go out before the body ends. It runs before Spring Security so
+ * authentication is included.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+  public static final String REQUEST_HEADER = "X-Server-Timing";
+  public static final String RESPONSE_HEADER = "Server-Timing";
+
+  private static final List<MediaType> STREAMED =
+      List.of(
+          MediaType.APPLICATION_NDJSON,
+          MediaType.TEXT_EVENT_STREAM,
+          MediaType.parseMediaType("text/csv"));
+
+  private final boolean allowed;
+
+  public ServerTimingFilter(@Value("${authorizer.server-timing.allowed:true}") boolean allowed) {
+    this.allowed = allowed;
+  }
+
+  @Override
+  protected void doFilterInternal(
+      @NonNull HttpServletRequest request,
+      @NonNull HttpServletResponse response,
+      @NonNull FilterChain filterChain)
+      throws ServletException, IOException {
+    if (!allowed || !"true".equalsIgnoreCase(request.getHeader(REQUEST_HEADER))) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+
+    ServerTiming timing = ServerTiming.start();
+    TimedResponse buffered = new TimedResponse(response);
+    try {
+      filterChain.doFilter(request, buffered);
+    } finally {
+      ServerTiming.clear();
+      if (!buffered.isStreamed()) {
+        buffered.setHeader(RESPONSE_HEADER, timing.toHeader());
+      }
+      buffered.copyBodyToResponse();
+    }
+  }
+
+  // Decides on the first write or flush, once the controller has set the content type.
+  private static final class TimedResponse extends ContentCachingResponseWrapper {
+
+    private boolean streamed;
+
+    private TimedResponse(HttpServletResponse response) {
+      super(response);
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+      return isStreamed() ? getResponse().getOutputStream() : super.getOutputStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+      return isStreamed() ? getResponse().getWriter() : super.getWriter();
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+      if (isStreamed()) {
+        getResponse().flushBuffer();
+      } else {
+        super.flushBuffer();
+      }
+    }
+
+    private boolean isStreamed() {
+      String contentType = getContentType();
+      if (!streamed && contentType != null) {
+        MediaType type = MediaType.parseMediaType(contentType);
+        streamed = STREAMED.stream().anyMatch(streamedType -> streamedType.includes(type));
+      }
+      return streamed;
+    }
+  }
+}
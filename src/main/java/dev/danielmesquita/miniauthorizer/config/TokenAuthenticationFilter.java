@@ -0,0 +1,58 @@
+package dev.danielmesquita.miniauthorizer.config;
+
+import dev.danielmesquita.miniauthorizer.service.AccessTokenService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Optional;
+import org.jspecify.annotations.NonNull;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+// Not a @Component: it is only registered inside the security filter chain.
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+
+  private static final String BEARER_PREFIX = "Bearer ";
+  private static final String TOKEN_PATH = "/auth/token";
+
+  private final AccessTokenService accessTokenService;
+
+  public TokenAuthenticationFilter(AccessTokenService accessTokenService) {
+    this.accessTokenService = accessTokenService;
+  }
+
+  @Override
+  protected void doFilterInternal(
+      @NonNull HttpServletRequest request,
+      @NonNull HttpServletResponse response,
+      @NonNull FilterChain filterChain)
+      throws ServletException, IOException {
+    String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+    if (header != null && header.startsWith(BEARER_PREFIX)) {
+      // An invalid token leaves the request anonymous, so the entry point answers 401.
+      long start = System.nanoTime();
+      Optional<Authentication> authenticated =
+          accessTokenService.authenticate(header.substring(BEARER_PREFIX.length()));
+      ServerTiming.record(ServerTiming.Phase.AUTH, System.nanoTime() - start);
+      authenticated.ifPresent(
+          authentication -> {
+            SecurityContext context = SecurityContextHolder.createEmptyContext();
+            context.setAuthentication(authentication);
+            SecurityContextHolder.setContext(context);
+          });
+    }
+    filterChain.doFilter(request, response);
+  }
+
+  @Override
+  protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+    // Tokens cannot mint new tokens; /auth/token always requires the real credentials.
+    String path = request.getRequestURI().substring(request.getContextPath().length());
+    return TOKEN_PATH.equals(path);
+  }
+}
@@ -0,0 +1,51 @@
+package dev.danielmesquita.miniauthorizer.controller;
+
+import dev.danielmesquita.miniauthorizer.service.AuthenticatedPrincipalCache;
+import dev.danielmesquita.miniauthorizer.service.CardExporter;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+
+  private static final String TEXT_CSV_VALUE = "text/csv";
+
+  private final AuthenticatedPrincipalCache principalCache;
+  private final CardExporter cardExporter;
+
+  public AdminController(AuthenticatedPrincipalCache principalCache, CardExporter cardExporter) {
+    this.principalCache = principalCache;
+    this.cardExporter = cardExporter;
+  }
+
+  @DeleteMapping("/principal-cache/{username}")
+  public ResponseEntity<Void> evictPrincipal(@PathVariable String username) {
+    principalCache.evict(username);
+    return ResponseEntity.noContent().build();
+  }
+
+  @DeleteMapping("/principal-cache")
+  public ResponseEntity<Void> evictAllPrincipals() {
+    principalCache.evictAll();
+    return ResponseEntity.noContent().build();
+  }
+
+  // Headers are sent before the query runs, so the client sees the response start at once.
+  @GetMapping(path = "/cards/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public void exportCards(HttpServletResponse response) throws IOException {
+    response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+    response.flushBuffer();
+    cardExporter.writeNdjson(response.getOutputStream());
+  }
+
+  @GetMapping(path = "/cards/export", produces = TEXT_CSV_VALUE)
+  public void exportCardsAsCsv(HttpServletResponse response) throws IOException {
+    response.setContentType(TEXT_CSV_VALUE + ";charset=UTF-8");
+    response.flushBuffer();
+    cardExporter.writeCsv(response.getOutputStream());
+  }
+}
@@ -1,28 +1,48 @@
 package dev.danielmesquita.miniauthorizer.controller;
 
+import dev.danielmesquita.miniauthorizer.dto.BatchTransactionDTO;
+import dev.danielmesquita.miniauthorizer.dto.CardCreationResultDTO;
 import dev.danielmesquita.miniauthorizer.dto.CardDTO;
 import dev.danielmesquita.miniauthorizer.dto.TransactionDTO;
+import dev.danielmesquita.miniauthorizer.dto.TransactionResultDTO;
+import dev.danielmesquita.miniauthorizer.service.CardProvisioner;
 import dev.danielmesquita.miniauthorizer.service.CardService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.net.URI;
+import java.util.Iterator;
+import java.util.List;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
 
 @RestController
 @RequestMapping
 public class CardController {
 
   private final CardService cardService;
+  private final CardProvisioner cardProvisioner;
+  private final ObjectMapper objectMapper;
 
-  public CardController(CardService cardService) {
+  public CardController(
+      CardService cardService, CardProvisioner cardProvisioner, ObjectMapper objectMapper) {
     this.cardService = cardService;
+    this.cardProvisioner = cardProvisioner;
+    this.objectMapper = objectMapper;
   }
 
   @GetMapping("/cards/{cardNumber}")
   public ResponseEntity<BigDecimal> balance(@PathVariable String cardNumber) {
-    return ResponseEntity.ok(cardService.getBalance(cardNumber));
+    return ResponseEntity.ok(cardService.getBalance(cardNumber).toBigDecimal());
   }
 
   @PostMapping("/cards")
@@ -36,10 +56,58 @@ public class CardController {
     return ResponseEntity.created(uri).body(cardDTO);
   }
 
+  // Invalid cards are reported per card rather than failing the whole request.
+  @PostMapping(path = "/cards/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<List<CardCreationResultDTO>> createCards(@RequestBody List<CardDTO> cards) {
+    return ResponseEntity.ok(cardProvisioner.createCards(cards));
+  }
+
+  // One card per line in, one result per line out, written as each chunk commits. A line that is
+  // not a card is reported as INVALID.
+  @PostMapping(path = "/cards/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+  public void createCardStream(HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+    BufferedReader reader = request.getReader();
+    OutputStream out = response.getOutputStream();
+    Iterator<CardDTO> cards =
+        reader.lines().filter(line -> !line.isBlank()).map(this::readCard).iterator();
+    try {
+      cardProvisioner.createCards(
+          cards,
+          result -> {
+            try {
+              out.write(objectMapper.writeValueAsBytes(result));
+              out.write('\n');
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    out.flush();
+  }
+
   @PostMapping("/transactions")
   public ResponseEntity<CardDTO> processTransaction(
-      @Valid @RequestBody TransactionDTO transactionDTO) {
-    CardDTO cardDTO = cardService.executeTransaction(transactionDTO);
+      @Valid @RequestBody TransactionDTO transactionDTO,
+      @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey) {
+    CardDTO cardDTO = cardService.executeTransaction(transactionDTO, idempotencyKey);
     return ResponseEntity.ok().body(cardDTO);
   }
+
+  @PostMapping("/transactions/batch")
+  public ResponseEntity<List<TransactionResultDTO>> processTransactionBatch(
+      @Valid @RequestBody BatchTransactionDTO batchDTO) {
+    return ResponseEntity.ok(cardService.executeBatch(batchDTO.getTransactions()));
+  }
+
+  private CardDTO readCard(String line) {
+    try {
+      return objectMapper.readValue(line, CardDTO.class);
+    } catch (JacksonException e) {
+      return new CardDTO();
+    }
+  }
 }
@@ -0,0 +1,23 @@
+package dev.danielmesquita.miniauthorizer.controller;
+
+import dev.danielmesquita.miniauthorizer.dto.AccessTokenDTO;
+import dev.danielmesquita.miniauthorizer.service.AccessTokenService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/auth")
+public class TokenController {
+
+  private final AccessTokenService accessTokenService;
+
+  public TokenController(AccessTokenService accessTokenService) {
+    this.accessTokenService = accessTokenService;
+  }
+
+  @PostMapping("/token")
+  public ResponseEntity<AccessTokenDTO> issueToken(Authentication authentication) {
+    return ResponseEntity.ok(accessTokenService.issue(authentication));
+  }
+}
@@ -2,6 +2,8 @@ package dev.danielmesquita.miniauthorizer.controller.handlers;
 
 import dev.danielmesquita.miniauthorizer.dto.CustomError;
 import dev.danielmesquita.miniauthorizer.exception.CardAlreadyExistsException;
+import dev.danielmesquita.miniauthorizer.exception.ConcurrentTransactionException;
+import dev.danielmesquita.miniauthorizer.exception.IdempotencyKeyException;
 import dev.danielmesquita.miniauthorizer.exception.ResourceNotFoundException;
 import dev.danielmesquita.miniauthorizer.exception.TransactionException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -41,6 +43,24 @@ public class ControllerExceptionHandler {
     return ResponseEntity.status(status).body(error);
   }
 
+  @ExceptionHandler(IdempotencyKeyException.class)
+  public ResponseEntity<CustomError> idempotencyKey(
+      IdempotencyKeyException e, HttpServletRequest request) {
+    HttpStatus status = HttpStatus.UNPROCESSABLE_CONTENT;
+    CustomError error =
+        new CustomError(Instant.now(), 422, e.getMessage(), request.getRequestURI());
+    return ResponseEntity.status(status).body(error);
+  }
+
+  @ExceptionHandler(ConcurrentTransactionException.class)
+  public ResponseEntity<CustomError> concurrentTransaction(
+      ConcurrentTransactionException e, HttpServletRequest request) {
+    HttpStatus status = HttpStatus.CONFLICT;
+    CustomError error =
+        new CustomError(Instant.now(), 409, e.getMessage(), request.getRequestURI());
+    return ResponseEntity.status(status).body(error);
+  }
+
   @ExceptionHandler(MethodArgumentNotValidException.class)
   public ResponseEntity<CustomError> handleValidationException(
       MethodArgumentNotValidException ex, HttpServletRequest request) {
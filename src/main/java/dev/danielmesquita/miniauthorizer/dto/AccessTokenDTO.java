@@ -0,0 +1,26 @@
+package dev.danielmesquita.miniauthorizer.dto;
+
+public class AccessTokenDTO {
+
+  private final String accessToken;
+  private final String tokenType;
+  private final Long expiresIn;
+
+  public AccessTokenDTO(String accessToken, String tokenType, Long expiresIn) {
+    this.accessToken = accessToken;
+    this.tokenType = tokenType;
+    this.expiresIn = expiresIn;
+  }
+
+  public String getAccessToken() {
+    return accessToken;
+  }
+
+  public String getTokenType() {
+    return tokenType;
+  }
+
+  public Long getExpiresIn() {
+    return expiresIn;
+  }
+}
@@ -0,0 +1,29 @@
+package dev.danielmesquita.miniauthorizer.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+public class BatchTransactionDTO {
+
+  public static final int MAX_SIZE = 10_000;
+
+  @NotEmpty(message = "Transactions are required")
+  @Size(max = MAX_SIZE, message = "A batch accepts at most " + MAX_SIZE + " transactions")
+  private List<@Valid TransactionDTO> transactions;
+
+  public BatchTransactionDTO() {}
+
+  public BatchTransactionDTO(List<TransactionDTO> transactions) {
+    this.transactions = transactions;
+  }
+
+  public List<TransactionDTO> getTransactions() {
+    return transactions;
+  }
+
+  public void setTransactions(List<TransactionDTO> transactions) {
+    this.transactions = transactions;
+  }
+}
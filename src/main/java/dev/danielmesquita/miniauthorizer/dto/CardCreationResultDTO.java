@@ -0,0 +1,22 @@
+package dev.danielmesquita.miniauthorizer.dto;
+
+import dev.danielmesquita.miniauthorizer.enums.CardCreationStatus;
+
+public class CardCreationResultDTO {
+
+  private final String cardNumber;
+  private final CardCreationStatus status;
+
+  public CardCreationResultDTO(String cardNumber, CardCreationStatus status) {
+    this.cardNumber = cardNumber;
+    this.status = status;
+  }
+
+  public String getCardNumber() {
+    return cardNumber;
+  }
+
+  public CardCreationStatus getStatus() {
+    return status;
+  }
+}
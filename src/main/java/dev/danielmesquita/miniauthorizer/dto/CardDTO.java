@@ -27,7 +27,7 @@ public class CardDTO {
   public CardDTO(Card entity) {
     this.cardNumber = entity.getCardNumber();
     this.password = entity.getPassword();
-    this.balance = entity.getBalance();
+    this.balance = entity.getBalance().toBigDecimal();
   }
 
   public String getCardNumber() {
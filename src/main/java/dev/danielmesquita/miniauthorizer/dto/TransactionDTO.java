@@ -1,14 +1,17 @@
 package dev.danielmesquita.miniauthorizer.dto;
 
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 
 import java.math.BigDecimal;
 
 public class TransactionDTO {
 
     @NotBlank(message = "Card number is required")
+    @Size(max = 255, message = "Card number must be at most 255 characters")
     private String cardNumber;
 
     @NotBlank(message = "Card password is required")
@@ -16,6 +19,7 @@ public class TransactionDTO {
 
     @NotNull(message = "Transaction value is required")
     @DecimalMin(value = "0.01", message = "Value must be greater than zero")
+    @Digits(integer = 16, fraction = 2, message = "Value must have at most 2 decimal places")
     private BigDecimal value;
 
     public TransactionDTO() {
@@ -0,0 +1,22 @@
+package dev.danielmesquita.miniauthorizer.dto;
+
+import dev.danielmesquita.miniauthorizer.enums.TransactionStatus;
+
+public class TransactionResultDTO {
+
+  private final String cardNumber;
+  private final TransactionStatus status;
+
+  public TransactionResultDTO(String cardNumber, TransactionStatus status) {
+    this.cardNumber = cardNumber;
+    this.status = status;
+  }
+
+  public String getCardNumber() {
+    return cardNumber;
+  }
+
+  public TransactionStatus getStatus() {
+    return status;
+  }
+}
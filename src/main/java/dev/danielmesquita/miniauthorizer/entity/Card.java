@@ -1,15 +1,17 @@
 package dev.danielmesquita.miniauthorizer.entity;
 
 import jakarta.persistence.*;
-import java.math.BigDecimal;
 import java.util.Objects;
 
 @Entity
 @Table(name = "tb_card")
 public class Card {
 
+  // Pooled ids come 50 per sequence call and, unlike IDENTITY, let Hibernate batch inserts. MySQL
+  // has no sequences, so there tb_card_seq is a one-row table.
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "card_seq")
+  @SequenceGenerator(name = "card_seq", sequenceName = "tb_card_seq", allocationSize = 50)
   private Long id;
 
   @Column(nullable = false, unique = true)
@@ -17,16 +19,19 @@ public class Card {
 
   private String password;
 
-  @Column(nullable = false)
-  private BigDecimal balance;
+  // Stored as cents so loading, dirty checking and updates never touch BigDecimal.
+  @Column(name = "balance_cents", nullable = false)
+  private long balanceCents;
+
+  @Version private Long version;
 
   public Card() {}
 
-  public Card(Long id, String cardNumber, String password, BigDecimal balance) {
+  public Card(Long id, String cardNumber, String password, Money balance) {
     this.id = id;
     this.cardNumber = cardNumber;
     this.password = password;
-    this.balance = balance;
+    this.balanceCents = balance.cents();
   }
 
   public Long getId() {
@@ -53,12 +58,20 @@ public class Card {
     this.password = password;
   }
 
-  public BigDecimal getBalance() {
-    return balance;
+  public Money getBalance() {
+    return Money.ofCents(balanceCents);
+  }
+
+  public void setBalance(Money balance) {
+    this.balanceCents = balance.cents();
+  }
+
+  public Long getVersion() {
+    return version;
   }
 
-  public void setBalance(BigDecimal balance) {
-    this.balance = balance;
+  public void setVersion(Long version) {
+    this.version = version;
   }
 
   @Override
@@ -0,0 +1,56 @@
+package dev.danielmesquita.miniauthorizer.entity;
+
+import jakarta.persistence.*;
+
+// Part of the balance of a hot card split by BucketedTransactionEngine; the card's balance is the
+// sum of its buckets and its tb_card row.
+@Entity
+@Table(
+    name = "tb_card_bucket",
+    uniqueConstraints =
+        @UniqueConstraint(
+            name = "uk_card_bucket",
+            columnNames = {"card_number", "bucket"}))
+public class CardBucket {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "card_number", nullable = false)
+  private String cardNumber;
+
+  @Column(nullable = false)
+  private int bucket;
+
+  @Column(name = "balance_cents", nullable = false)
+  private long balanceCents;
+
+  public CardBucket() {}
+
+  public CardBucket(String cardNumber, int bucket, Money balance) {
+    this.cardNumber = cardNumber;
+    this.bucket = bucket;
+    this.balanceCents = balance.cents();
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public String getCardNumber() {
+    return cardNumber;
+  }
+
+  public int getBucket() {
+    return bucket;
+  }
+
+  public Money getBalance() {
+    return Money.ofCents(balanceCents);
+  }
+
+  public void setBalance(Money balance) {
+    this.balanceCents = balance.cents();
+  }
+}
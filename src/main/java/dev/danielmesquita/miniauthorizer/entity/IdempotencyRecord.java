@@ -0,0 +1,74 @@
+package dev.danielmesquita.miniauthorizer.entity;
+
+import dev.danielmesquita.miniauthorizer.enums.TransactionStatus;
+import jakarta.persistence.*;
+import java.time.Instant;
+
+// Rows are inserted by IdempotencyStore with plain JDBC so a duplicate key fails on the insert
+// itself instead of on a preceding SELECT.
+@Entity
+@Table(name = "tb_idempotency_key")
+public class IdempotencyRecord {
+
+  @Id
+  @Column(name = "idempotency_key")
+  private String idempotencyKey;
+
+  @Column(name = "card_number", nullable = false)
+  private String cardNumber;
+
+  @Column(name = "amount_cents", nullable = false)
+  private long amountCents;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 32)
+  private TransactionStatus status;
+
+  // Only set for approved transactions.
+  @Column(name = "balance_cents")
+  private Long balanceCents;
+
+  @Column(name = "created_at", nullable = false)
+  private Instant createdAt;
+
+  public IdempotencyRecord() {}
+
+  public IdempotencyRecord(
+      String idempotencyKey,
+      String cardNumber,
+      long amountCents,
+      TransactionStatus status,
+      Long balanceCents,
+      Instant createdAt) {
+    this.idempotencyKey = idempotencyKey;
+    this.cardNumber = cardNumber;
+    this.amountCents = amountCents;
+    this.status = status;
+    this.balanceCents = balanceCents;
+    this.createdAt = createdAt;
+  }
+
+  public String getIdempotencyKey() {
+    return idempotencyKey;
+  }
+
+  public String getCardNumber() {
+    return cardNumber;
+  }
+
+  public long getAmountCents() {
+    return amountCents;
+  }
+
+  public TransactionStatus getStatus() {
+    return status;
+  }
+
+  public Long getBalanceCents() {
+    return balanceCents;
+  }
+
+  public Instant getCreatedAt() {
+    return createdAt;
+  }
+}
@@ -0,0 +1,60 @@
+package dev.danielmesquita.miniauthorizer.entity;
+
+import dev.danielmesquita.miniauthorizer.enums.TransactionStatus;
+import jakarta.persistence.*;
+import java.time.Instant;
+
+// Rows are inserted by TransactionLedger with JDBC batches; the mapping defines the schema and
+// serves reads.
+@Entity
+@Table(
+    name = "tb_transaction",
+    indexes = @Index(name = "idx_transaction_card_number", columnList = "card_number, id"))
+public class LedgerEntry {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "card_number", nullable = false)
+  private String cardNumber;
+
+  @Column(name = "amount_cents", nullable = false)
+  private long amountCents;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 32)
+  private TransactionStatus status;
+
+  @Column(name = "created_at", nullable = false)
+  private Instant createdAt;
+
+  public LedgerEntry() {}
+
+  public LedgerEntry(String cardNumber, Money amount, TransactionStatus status, Instant createdAt) {
+    this.cardNumber = cardNumber;
+    this.amountCents = amount.cents();
+    this.status = status;
+    this.createdAt = createdAt;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public String getCardNumber() {
+    return cardNumber;
+  }
+
+  public Money getAmount() {
+    return Money.ofCents(amountCents);
+  }
+
+  public TransactionStatus getStatus() {
+    return status;
+  }
+
+  public Instant getCreatedAt() {
+    return createdAt;
+  }
+}
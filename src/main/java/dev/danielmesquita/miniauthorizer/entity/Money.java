@@ -0,0 +1,59 @@
+package dev.danielmesquita.miniauthorizer.entity;
+
+import java.math.BigDecimal;
+
+/**
+ * Fixed-point amount in cents. Used for balances and debits internally; {@link BigDecimal} only
+ * appears at the JSON boundary.
+ */
+public record Money(long cents) implements Comparable<Money> {
+
+  public static final int SCALE = 2;
+  public static final Money ZERO = new Money(0);
+
+  private static final double FAST_PATH_LIMIT = 1e12;
+
+  public static Money ofCents(long cents) {
+    return new Money(cents);
+  }
+
+  // Throws ArithmeticException for fractions of a cent or amounts that do not fit in a long.
+  public static Money of(BigDecimal amount) {
+    return new Money(toCents(amount));
+  }
+
+  // Single allocation site in of() and ofCents() keeps Money eligible for scalar replacement.
+  private static long toCents(BigDecimal amount) {
+    // With at most two decimal places and |amount| < 10^10 the double is within far less than half
+    // a cent of the exact value, so rounding recovers the cents without allocating.
+    if (amount.scale() <= SCALE) {
+      double cents = amount.doubleValue() * 100;
+      if (Math.abs(cents) < FAST_PATH_LIMIT) {
+        return Math.round(cents);
+      }
+    }
+    return amount.movePointRight(SCALE).longValueExact();
+  }
+
+  public BigDecimal toBigDecimal() {
+    return BigDecimal.valueOf(cents, SCALE);
+  }
+
+  public Money minus(Money other) {
+    return ofCents(Math.subtractExact(cents, other.cents));
+  }
+
+  public boolean isNegative() {
+    return cents < 0;
+  }
+
+  @Override
+  public int compareTo(Money other) {
+    return Long.compare(cents, other.cents);
+  }
+
+  @Override
+  public String toString() {
+    return toBigDecimal().toPlainString();
+  }
+}
@@ -0,0 +1,7 @@
+package dev.danielmesquita.miniauthorizer.enums;
+
+public enum CardCreationStatus {
+  CREATED,
+  ALREADY_EXISTS,
+  INVALID
+}
@@ -9,7 +9,9 @@ public enum TransactionStatus {
   OK("OK"),
   SALDO_INSUFICIENTE("Saldo insuficiente"),
   SENHA_INVALIDA("Senha inválida"),
-  CARTAO_INEXISTENTE("Cartão inexistente");
+  CARTAO_INEXISTENTE("Cartão inexistente"),
+  // Batch items that ended without a decision, e.g. a lock timeout; nothing was debited.
+  ERROR("Erro");
 
   private final String status;
 }
@@ -0,0 +1,8 @@
+package dev.danielmesquita.miniauthorizer.exception;
+
+public class ConcurrentTransactionException extends RuntimeException {
+
+  public ConcurrentTransactionException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,8 @@
+package dev.danielmesquita.miniauthorizer.exception;
+
+public class IdempotencyKeyException extends RuntimeException {
+
+  public IdempotencyKeyException(String message) {
+    super(message);
+  }
+}
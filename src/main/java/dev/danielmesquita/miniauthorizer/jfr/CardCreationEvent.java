@@ -0,0 +1,32 @@
+package dev.danielmesquita.miniauthorizer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("dev.danielmesquita.miniauthorizer.CardCreation")
+@Label("Card Creation")
+@Description("One call to CardService.createCard")
+@Category("Mini Authorizer")
+@StackTrace(false)
+public class CardCreationEvent extends Event {
+
+  @Label("Card Hash")
+  String cardHash;
+
+  @Label("Created")
+  @Description("False when the card number already existed or the insert failed")
+  boolean created;
+
+  public void complete(String cardNumber, boolean created) {
+    end();
+    if (shouldCommit()) {
+      this.cardHash = CardHash.of(cardNumber);
+      this.created = created;
+      commit();
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package dev.danielmesquita.miniauthorizer.jfr;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HexFormat;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Short keyed hash that identifies a card in recordings without exposing its number, so it
+ * cannot be reversed by enumerating card numbers. With {@code authorizer.jfr.card-hash-key} set,
+ * every process hashes a card the same way and hot cards can be matched across recordings;
+ * otherwise the key is random per process and hashes only correlate events within one run.
+ */
+public final class CardHash {
+
+  private static final String ALGORITHM = "HmacSHA256";
+  private static volatile SecretKeySpec key = randomKey();
+
+  private CardHash() {}
+
+  public static String of(String cardNumber) {
+    try {
+      Mac mac = Mac.getInstance(ALGORITHM);
+      mac.init(key);
+      byte[] digest = mac.doFinal(cardNumber.getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(digest, 0, 8);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("HmacSHA256 is not available", e);
+    }
+  }
+
+  // A blank secret keeps the random key.
+  static void useKey(String secret) {
+    if (!secret.isBlank()) {
+      key = new SecretKeySpec(Base64.getDecoder().decode(secret), ALGORITHM);
+    }
+  }
+
+  private static SecretKeySpec randomKey() {
+    byte[] secret = new byte[32];
+    new SecureRandom().nextBytes(secret);
+    return new SecretKeySpec(secret, ALGORITHM);
+  }
+}
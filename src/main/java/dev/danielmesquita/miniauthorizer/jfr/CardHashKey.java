@@ -0,0 +1,13 @@
+package dev.danielmesquita.miniauthorizer.jfr;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/** Hands {@code authorizer.jfr.card-hash-key} to {@link CardHash} at startup. */
+@Component
+public class CardHashKey {
+
+  public CardHashKey(@Value("${authorizer.jfr.card-hash-key:}") String secret) {
+    CardHash.useKey(secret);
+  }
+}
@@ -0,0 +1,37 @@
+package dev.danielmesquita.miniauthorizer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("dev.danielmesquita.miniauthorizer.CardLock")
+@Label("Card Lock")
+@Description("SELECT ... FOR UPDATE of card rows, including the wait for the row locks")
+@Category("Mini Authorizer")
+@StackTrace(false)
+public class CardLockEvent extends Event {
+
+  @Label("Card Hash")
+  @Description("Locked card; empty for batch chunks")
+  String cardHash;
+
+  @Label("Cards")
+  int cards;
+
+  @Label("Found")
+  @Description("Number of requested cards that exist")
+  int found;
+
+  public void complete(String cardNumber, int cards, int found) {
+    end();
+    if (shouldCommit()) {
+      this.cardHash = cardNumber == null ? null : CardHash.of(cardNumber);
+      this.cards = cards;
+      this.found = found;
+      commit();
+    }
+  }
+}
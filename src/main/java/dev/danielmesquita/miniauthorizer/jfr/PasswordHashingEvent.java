@@ -0,0 +1,32 @@
+package dev.danielmesquita.miniauthorizer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("dev.danielmesquita.miniauthorizer.PasswordHashing")
+@Label("Password Hashing")
+@Description("BCrypt encode or verification, as seen by the calling thread")
+@Category("Mini Authorizer")
+@StackTrace(false)
+public class PasswordHashingEvent extends Event {
+
+  @Label("Operation")
+  String operation;
+
+  @Label("Offloaded")
+  @Description("Hashed on the password-hashing pool; the duration includes the queue wait")
+  boolean offloaded;
+
+  public void complete(String operation, boolean offloaded) {
+    end();
+    if (shouldCommit()) {
+      this.operation = operation;
+      this.offloaded = offloaded;
+      commit();
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package dev.danielmesquita.miniauthorizer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("dev.danielmesquita.miniauthorizer.Transaction")
+@Label("Transaction")
+@Description("One authorization through CardService.executeTransaction")
+@Category("Mini Authorizer")
+@StackTrace(false)
+public class TransactionEvent extends Event {
+
+  @Label("Card Hash")
+  String cardHash;
+
+  @Label("Status")
+  @Description("TransactionStatus, or ERROR when the request ended without a decision")
+  String status;
+
+  @Label("Replayed")
+  @Description("Answered from an earlier request with the same Idempotency-Key")
+  boolean replayed;
+
+  public void complete(String cardNumber, String status, boolean replayed) {
+    end();
+    if (shouldCommit()) {
+      this.cardHash = CardHash.of(cardNumber);
+      this.status = status;
+      this.replayed = replayed;
+      commit();
+    }
+  }
+}
@@ -0,0 +1,3 @@
+package dev.danielmesquita.miniauthorizer.projection;
+
+public record CardVersion(Long id, String cardNumber, Long version) {}
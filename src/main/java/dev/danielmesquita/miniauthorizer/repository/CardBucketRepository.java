@@ -0,0 +1,36 @@
+package dev.danielmesquita.miniauthorizer.repository;
+
+import dev.danielmesquita.miniauthorizer.entity.CardBucket;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CardBucketRepository extends JpaRepository<CardBucket, Long> {
+
+  @Query(
+      value = "SELECT * FROM tb_card_bucket WHERE card_number = :number AND bucket = :bucket FOR UPDATE",
+      nativeQuery = true)
+  Optional<CardBucket> findForUpdate(String number, int bucket);
+
+  @Query(
+      value = "SELECT * FROM tb_card_bucket WHERE card_number = :number ORDER BY bucket FOR UPDATE",
+      nativeQuery = true)
+  List<CardBucket> findAllByCardNumberForUpdate(String number);
+
+  @Query("SELECT SUM(b.balanceCents) FROM CardBucket b WHERE b.cardNumber = :number")
+  Optional<Long> sumBalanceCentsByCardNumber(String number);
+
+  long countByCardNumber(String number);
+
+  // The card's own balance and the sum of its buckets, null when it has none, in one statement.
+  @Query(
+      "SELECT c.balanceCents, (SELECT SUM(b.balanceCents) FROM CardBucket b"
+          + " WHERE b.cardNumber = c.cardNumber) FROM Card c WHERE c.cardNumber = :number")
+  List<Object[]> findBalanceWithBuckets(String number);
+
+  @Query("SELECT b.cardNumber, COUNT(b) FROM CardBucket b GROUP BY b.cardNumber")
+  List<Object[]> countBucketsByCardNumber();
+}
@@ -1,8 +1,13 @@
 package dev.danielmesquita.miniauthorizer.repository;
 
 import dev.danielmesquita.miniauthorizer.entity.Card;
+import dev.danielmesquita.miniauthorizer.projection.CardVersion;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
@@ -12,5 +17,45 @@ public interface CardRepository extends JpaRepository<Card, Long> {
   @Query(value = "SELECT * FROM tb_card WHERE card_number = :number FOR UPDATE", nativeQuery = true)
   Optional<Card> findByCardNumberForUpdate(String number);
 
+  @Query(
+      value =
+          "SELECT * FROM tb_card WHERE card_number IN (:numbers) ORDER BY card_number FOR UPDATE",
+      nativeQuery = true)
+  List<Card> findAllByCardNumberInForUpdate(Collection<String> numbers);
+
   Optional<Card> findByCardNumber(String number);
+
+  List<Card> findAllByCardNumberIn(Collection<String> numbers);
+
+  @Query("SELECT c.cardNumber FROM Card c WHERE c.cardNumber IN :numbers")
+  List<String> findExistingCardNumbers(Collection<String> numbers);
+
+  // Keyset page of card versions, read into records rather than entities or projection proxies.
+  @Query(
+      "SELECT new dev.danielmesquita.miniauthorizer.projection.CardVersion(c.id, c.cardNumber,"
+          + " c.version) FROM Card c WHERE c.id > :afterId ORDER BY c.id")
+  List<CardVersion> findVersionsAfter(long afterId, Limit limit);
+
+  @Query("SELECT c.balanceCents FROM Card c WHERE c.cardNumber = :number")
+  Optional<Long> findBalanceCentsByCardNumber(String number);
+
+  @Modifying
+  @Query(
+      value =
+          "UPDATE tb_card SET balance_cents = balance_cents - :cents, version = version + 1"
+              + " WHERE card_number = :number AND balance_cents >= :cents",
+      nativeQuery = true)
+  int debit(String number, long cents);
+
+  @Modifying
+  @Query(
+      "UPDATE Card c SET c.balanceCents = :balanceCents, c.version = c.version + 1"
+          + " WHERE c.cardNumber = :number")
+  int updateBalance(String number, long balanceCents);
+
+  @Modifying
+  @Query(
+      "UPDATE Card c SET c.balanceCents = :balanceCents, c.version = c.version + 1"
+          + " WHERE c.cardNumber = :number AND c.version = :version")
+  int compareAndSetBalance(String number, long balanceCents, Long version);
 }
@@ -0,0 +1,10 @@
+package dev.danielmesquita.miniauthorizer.repository;
+
+import dev.danielmesquita.miniauthorizer.entity.LedgerEntry;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
+
+  List<LedgerEntry> findByCardNumberOrderByIdAsc(String cardNumber);
+}
@@ -0,0 +1,124 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import dev.danielmesquita.miniauthorizer.dto.AccessTokenDTO;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Service;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Issues and validates short-lived HS256 tokens in JWT compact form. Validation is an HMAC and a
+ * small JSON parse, with no database lookup and no password hashing.
+ */
+@Service
+public class AccessTokenService {
+
+  private static final Logger log = LoggerFactory.getLogger(AccessTokenService.class);
+
+  private static final String ALGORITHM = "HmacSHA256";
+  private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+  private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+  private static final String HEADER =
+      ENCODER.encodeToString(
+          "{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+
+  private final ObjectMapper objectMapper;
+  private final SecretKeySpec key;
+  private final Duration ttl;
+
+  public AccessTokenService(
+      ObjectMapper objectMapper,
+      @Value("${authorizer.token.secret:}") String secret,
+      @Value("${authorizer.token.ttl:5m}") Duration ttl) {
+    this.objectMapper = objectMapper;
+    this.key = new SecretKeySpec(secretBytes(secret), ALGORITHM);
+    this.ttl = ttl;
+  }
+
+  public AccessTokenDTO issue(Authentication authentication) {
+    Instant now = Instant.now();
+    Instant expiresAt = now.plus(ttl);
+    List<String> roles =
+        authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList();
+    TokenClaims claims =
+        new TokenClaims(
+            authentication.getName(), roles, now.getEpochSecond(), expiresAt.getEpochSecond());
+
+    String unsigned = HEADER + '.' + ENCODER.encodeToString(objectMapper.writeValueAsBytes(claims));
+    String token = unsigned + '.' + ENCODER.encodeToString(sign(unsigned));
+    return new AccessTokenDTO(token, "Bearer", ttl.toSeconds());
+  }
+
+  public Optional<Authentication> authenticate(String token) {
+    int payloadStart = token.indexOf('.');
+    int signatureStart = token.lastIndexOf('.');
+    if (payloadStart <= 0 || signatureStart == payloadStart) {
+      return Optional.empty();
+    }
+    String unsigned = token.substring(0, signatureStart);
+    if (!HEADER.equals(token.substring(0, payloadStart))) {
+      return Optional.empty();
+    }
+
+    try {
+      byte[] signature = DECODER.decode(token.substring(signatureStart + 1));
+      if (!MessageDigest.isEqual(signature, sign(unsigned))) {
+        return Optional.empty();
+      }
+      TokenClaims claims =
+          objectMapper.readValue(
+              DECODER.decode(token.substring(payloadStart + 1, signatureStart)),
+              TokenClaims.class);
+      if (claims.exp() <= Instant.now().getEpochSecond()) {
+        return Optional.empty();
+      }
+      List<GrantedAuthority> authorities =
+          claims.roles().stream().<GrantedAuthority>map(SimpleGrantedAuthority::new).toList();
+      return Optional.of(
+          UsernamePasswordAuthenticationToken.authenticated(claims.sub(), null, authorities));
+    } catch (IllegalArgumentException | JacksonException e) {
+      return Optional.empty();
+    }
+  }
+
+  private byte[] sign(String unsigned) {
+    try {
+      Mac mac = Mac.getInstance(ALGORITHM);
+      mac.init(key);
+      return mac.doFinal(unsigned.getBytes(StandardCharsets.UTF_8));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("HmacSHA256 is not available", e);
+    }
+  }
+
+  private static byte[] secretBytes(String secret) {
+    if (!secret.isBlank()) {
+      return Base64.getDecoder().decode(secret);
+    }
+    log.warn(
+        "authorizer.token.secret is not set; using a random key, "
+            + "tokens will not survive a restart or work across nodes");
+    byte[] random = new byte[32];
+    new SecureRandom().nextBytes(random);
+    return random;
+  }
+
+  private record TokenClaims(String sub, List<String> roles, long iat, long exp) {}
+}
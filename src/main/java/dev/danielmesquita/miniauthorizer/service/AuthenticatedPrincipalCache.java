@@ -0,0 +1,86 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+/**
+ * Remembers users that recently passed HTTP Basic authentication, keyed by username plus an HMAC
+ * of the presented password. Entries cannot see password or role changes in tb_user, so those
+ * changes must be followed by {@link #evict(String)}.
+ */
+@Component
+public class AuthenticatedPrincipalCache {
+
+  private final CredentialDigest credentialDigest;
+  private final Cache<PrincipalKey, List<GrantedAuthority>> principals;
+
+  // Bumped on every eviction so an authentication that started before it cannot re-add the user.
+  private final AtomicLong generation = new AtomicLong();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public AuthenticatedPrincipalCache(
+      CredentialDigest credentialDigest,
+      @Value("${authorizer.principal-cache.max-size:10000}") long maxSize,
+      @Value("${authorizer.principal-cache.ttl:5m}") Duration ttl) {
+    this.credentialDigest = credentialDigest;
+    this.principals = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).build();
+  }
+
+  public Optional<List<GrantedAuthority>> find(String username, String password) {
+    List<GrantedAuthority> authorities = principals.getIfPresent(key(username, password));
+    if (authorities == null) {
+      misses.increment();
+      return Optional.empty();
+    }
+    hits.increment();
+    return Optional.of(authorities);
+  }
+
+  public long generation() {
+    return generation.get();
+  }
+
+  public void put(
+      String username, String password, List<GrantedAuthority> authorities, long observed) {
+    if (generation.get() == observed) {
+      principals.put(key(username, password), List.copyOf(authorities));
+    }
+  }
+
+  public void evict(String username) {
+    generation.incrementAndGet();
+    principals.asMap().keySet().removeIf(key -> key.username().equals(username));
+  }
+
+  public void evictAll() {
+    generation.incrementAndGet();
+    principals.invalidateAll();
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  public long getSize() {
+    return principals.estimatedSize();
+  }
+
+  private PrincipalKey key(String username, String password) {
+    return new PrincipalKey(username, credentialDigest.digest(username + ':' + password));
+  }
+
+  private record PrincipalKey(String username, String credentialDigest) {}
+}
@@ -0,0 +1,70 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.danielmesquita.miniauthorizer.entity.Money;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Read-through cache of card balances. Writers invalidate after their transaction commits; the TTL
+ * only bounds staleness from writes made by other instances.
+ */
+@Component
+public class BalanceCache {
+
+  private final Cache<String, Money> balances;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public BalanceCache(
+      @Value("${authorizer.balance-cache.max-size:100000}") long maxSize,
+      @Value("${authorizer.balance-cache.ttl:2s}") Duration ttl) {
+    this.balances = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).build();
+  }
+
+  // A load runs inside the cache's per-key compute, so a concurrent invalidate waits for it and
+  // removes whatever it read instead of being overwritten by it.
+  public Optional<Money> get(String cardNumber, Function<String, Optional<Money>> loader) {
+    Money cached = balances.getIfPresent(cardNumber);
+    if (cached != null) {
+      hits.increment();
+      return Optional.of(cached);
+    }
+    misses.increment();
+    return Optional.ofNullable(balances.get(cardNumber, key -> loader.apply(key).orElse(null)));
+  }
+
+  public void invalidateAfterCommit(String cardNumber) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      balances.invalidate(cardNumber);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            balances.invalidate(cardNumber);
+          }
+        });
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  public long getSize() {
+    return balances.estimatedSize();
+  }
+}
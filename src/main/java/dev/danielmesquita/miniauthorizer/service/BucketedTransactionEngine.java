@@ -0,0 +1,329 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.danielmesquita.miniauthorizer.config.ServerTiming;
+import dev.danielmesquita.miniauthorizer.dto.CardDTO;
+import dev.danielmesquita.miniauthorizer.dto.TransactionDTO;
+import dev.danielmesquita.miniauthorizer.entity.Card;
+import dev.danielmesquita.miniauthorizer.entity.CardBucket;
+import dev.danielmesquita.miniauthorizer.entity.Money;
+import dev.danielmesquita.miniauthorizer.enums.TransactionStatus;
+import dev.danielmesquita.miniauthorizer.exception.TransactionException;
+import dev.danielmesquita.miniauthorizer.jfr.CardLockEvent;
+import dev.danielmesquita.miniauthorizer.repository.CardBucketRepository;
+import dev.danielmesquita.miniauthorizer.repository.CardRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Locks the tb_card row like the pessimistic engine until a card turns hot, then splits its
+ * balance across {@code authorizer.bucketed.buckets} rows of tb_card_bucket so concurrent debits
+ * lock different rows. A card is hot after {@code hot-threshold} debits waited longer than {@code
+ * contended-lock-ms} for its row within {@code window}.
+ *
+ * <p>A debit of a split card locks one random bucket. When that bucket cannot cover it, the debit
+ * locks every bucket of the card in bucket order, is checked against their sum and spreads the
+ * remainder evenly again. Buckets never go negative and the sum is only trusted under all bucket
+ * locks, so a split card can never be overdrawn.
+ *
+ * <p>Instances learn of cards split by another instance from tb_card_bucket: a balance lookup finds
+ * the card's buckets, and a debit declined by the emptied tb_card row retries on them. Splits are
+ * never undone; see the README before leaving this mode.
+ */
+@Component
+@ConditionalOnProperty(name = "authorizer.transaction.mode", havingValue = "bucketed")
+public class BucketedTransactionEngine implements TransactionEngine {
+
+  private static final Logger log = LoggerFactory.getLogger(BucketedTransactionEngine.class);
+
+  private final CardRepository repository;
+  private final CardBucketRepository bucketRepository;
+  private final CardPasswordVerifier passwordVerifier;
+  private final TransactionTemplate transactionTemplate;
+  private final int buckets;
+  private final long contendedLockNanos;
+  private final int hotThreshold;
+  private final Timer cardLockTimer;
+  private final Timer bucketLockTimer;
+  private final Timer rebalanceLockTimer;
+
+  // Contended lock waits per card, counted from the first one until the window expires.
+  private final Cache<String, LongAdder> contention;
+  // Bucket count of every split card.
+  private final Map<String, Integer> splitCards = new ConcurrentHashMap<>();
+  // Cards found without buckets; trusted for split-check-ttl, since another instance may split
+  // them.
+  private final Cache<String, Boolean> unsplitCards;
+
+  private final LongAdder splits = new LongAdder();
+  private final LongAdder rebalances = new LongAdder();
+
+  public BucketedTransactionEngine(
+      CardRepository repository,
+      CardBucketRepository bucketRepository,
+      CardPasswordVerifier passwordVerifier,
+      PlatformTransactionManager transactionManager,
+      @Value("${authorizer.bucketed.buckets:8}") int buckets,
+      @Value("${authorizer.bucketed.contended-lock-ms:5}") long contendedLockMillis,
+      @Value("${authorizer.bucketed.hot-threshold:20}") int hotThreshold,
+      @Value("${authorizer.bucketed.window:10s}") Duration window,
+      @Value("${authorizer.bucketed.split-check-ttl:2s}") Duration splitCheckTtl,
+      MeterRegistry meterRegistry) {
+    this.repository = repository;
+    this.bucketRepository = bucketRepository;
+    this.passwordVerifier = passwordVerifier;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.buckets = buckets;
+    this.contendedLockNanos = TimeUnit.MILLISECONDS.toNanos(contendedLockMillis);
+    this.hotThreshold = hotThreshold;
+    this.contention = Caffeine.newBuilder().maximumSize(10_000).expireAfterWrite(window).build();
+    this.unsplitCards =
+        Caffeine.newBuilder().maximumSize(100_000).expireAfterWrite(splitCheckTtl).build();
+    this.cardLockTimer = lockTimer(meterRegistry, "single");
+    this.bucketLockTimer = lockTimer(meterRegistry, "bucket");
+    this.rebalanceLockTimer = lockTimer(meterRegistry, "rebalance");
+  }
+
+  @PostConstruct
+  void loadSplitCards() {
+    for (Object[] row : bucketRepository.countBucketsByCardNumber()) {
+      splitCards.put((String) row[0], ((Number) row[1]).intValue());
+    }
+  }
+
+  // A debit of a split card may run two transactions: a bucket too low to cover it commits
+  // unchanged, then the rebalance locks every bucket. In a caller's transaction the first bucket
+  // would stay locked through the rebalance.
+  @Override
+  public boolean joinsCallerTransaction() {
+    return false;
+  }
+
+  @Override
+  public CardDTO execute(TransactionDTO transactionDTO) {
+    String cardNumber = transactionDTO.getCardNumber();
+    if (splitCards.containsKey(cardNumber)) {
+      return executeOnBuckets(transactionDTO);
+    }
+
+    CardDTO result;
+    try {
+      result = transactionTemplate.execute(status -> executeOnCard(transactionDTO));
+    } catch (TransactionException e) {
+      // The card was split by another instance, or while this debit waited for its row.
+      if (e.getStatus() == TransactionStatus.SALDO_INSUFICIENTE && refreshSplit(cardNumber)) {
+        return executeOnBuckets(transactionDTO);
+      }
+      throw e;
+    }
+
+    LongAdder contended = contention.getIfPresent(cardNumber);
+    if (contended != null && contended.sum() >= hotThreshold) {
+      split(cardNumber);
+    }
+    return result;
+  }
+
+  // Split cards report their row plus their buckets, read by one statement so a split that
+  // commits meanwhile is either fully seen or not at all. Cards recently found unsplit are read
+  // from tb_card through the balance cache as usual.
+  @Override
+  public Optional<Money> findBalance(String cardNumber) {
+    if (!splitCards.containsKey(cardNumber) && unsplitCards.getIfPresent(cardNumber) != null) {
+      return Optional.empty();
+    }
+    List<Object[]> rows = bucketRepository.findBalanceWithBuckets(cardNumber);
+    if (rows.isEmpty()) {
+      return Optional.empty();
+    }
+    long cents = ((Number) rows.getFirst()[0]).longValue();
+    if (rows.getFirst()[1] instanceof Number bucketCents) {
+      if (!splitCards.containsKey(cardNumber)) {
+        refreshSplit(cardNumber);
+      }
+      cents += bucketCents.longValue();
+    } else {
+      unsplitCards.put(cardNumber, Boolean.TRUE);
+    }
+    return Optional.of(Money.ofCents(cents));
+  }
+
+  public boolean isSplit(String cardNumber) {
+    return splitCards.containsKey(cardNumber);
+  }
+
+  public long getSplitCount() {
+    return splits.sum();
+  }
+
+  public long getRebalanceCount() {
+    return rebalances.sum();
+  }
+
+  private CardDTO executeOnCard(TransactionDTO transactionDTO) {
+    String cardNumber = transactionDTO.getCardNumber();
+    long start = System.nanoTime();
+    Card card =
+        timeLock(cardLockTimer, cardNumber, () -> repository.findByCardNumberForUpdate(cardNumber))
+            .orElseThrow(() -> new TransactionException(TransactionStatus.CARTAO_INEXISTENTE));
+    if (System.nanoTime() - start >= contendedLockNanos) {
+      contention.get(cardNumber, key -> new LongAdder()).increment();
+    }
+
+    if (!passwordVerifier.matches(cardNumber, transactionDTO.getPassword(), card.getPassword())) {
+      throw new TransactionException(TransactionStatus.SENHA_INVALIDA);
+    }
+    Money newBalance = card.getBalance().minus(Money.of(transactionDTO.getValue()));
+    if (newBalance.isNegative()) {
+      throw new TransactionException(TransactionStatus.SALDO_INSUFICIENTE);
+    }
+    card.setBalance(newBalance);
+    repository.save(card);
+    return new CardDTO(card);
+  }
+
+  private CardDTO executeOnBuckets(TransactionDTO transactionDTO) {
+    String cardNumber = transactionDTO.getCardNumber();
+    Card card =
+        repository
+            .findByCardNumber(cardNumber)
+            .orElseThrow(() -> new TransactionException(TransactionStatus.CARTAO_INEXISTENTE));
+    if (!passwordVerifier.matches(cardNumber, transactionDTO.getPassword(), card.getPassword())) {
+      throw new TransactionException(TransactionStatus.SENHA_INVALIDA);
+    }
+
+    long value = Money.of(transactionDTO.getValue()).cents();
+    int bucket = ThreadLocalRandom.current().nextInt(splitCards.get(cardNumber));
+    Long balance = transactionTemplate.execute(status -> debitBucket(cardNumber, bucket, value));
+    if (balance == null) {
+      balance = transactionTemplate.execute(status -> debitAllBuckets(cardNumber, value));
+    }
+    return new CardDTO(cardNumber, card.getPassword(), Money.ofCents(balance).toBigDecimal());
+  }
+
+  // Returns the card's new balance, or null when the bucket cannot cover the debit.
+  private Long debitBucket(String cardNumber, int bucket, long value) {
+    Optional<CardBucket> locked =
+        timeLock(
+            bucketLockTimer, cardNumber, () -> bucketRepository.findForUpdate(cardNumber, bucket));
+    if (locked.isEmpty() || locked.get().getBalance().cents() < value) {
+      return null;
+    }
+    CardBucket cardBucket = locked.get();
+    cardBucket.setBalance(Money.ofCents(cardBucket.getBalance().cents() - value));
+    // The query flushes the debit first; the other buckets are read as last committed.
+    return bucketRepository.sumBalanceCentsByCardNumber(cardNumber).orElse(0L);
+  }
+
+  private long debitAllBuckets(String cardNumber, long value) {
+    List<CardBucket> locked =
+        timeLock(
+            rebalanceLockTimer,
+            cardNumber,
+            () -> bucketRepository.findAllByCardNumberForUpdate(cardNumber));
+    long total = 0;
+    for (CardBucket cardBucket : locked) {
+      total += cardBucket.getBalance().cents();
+    }
+    if (total < value) {
+      throw new TransactionException(TransactionStatus.SALDO_INSUFICIENTE);
+    }
+    long remaining = total - value;
+    for (int i = 0; i < locked.size(); i++) {
+      locked.get(i).setBalance(Money.ofCents(share(remaining, locked.size(), i)));
+    }
+    rebalances.increment();
+    return remaining;
+  }
+
+  // Moves the whole balance into the buckets under the card's row lock, so no debit of the card
+  // can run against tb_card while it is being split.
+  private void split(String cardNumber) {
+    Integer created =
+        transactionTemplate.execute(
+            status -> {
+              Card card = repository.findByCardNumberForUpdate(cardNumber).orElse(null);
+              long existing = bucketRepository.countByCardNumber(cardNumber);
+              if (card == null || existing > 0) {
+                return (int) existing;
+              }
+              long balance = card.getBalance().cents();
+              List<CardBucket> parts = new ArrayList<>(buckets);
+              for (int i = 0; i < buckets; i++) {
+                parts.add(new CardBucket(cardNumber, i, Money.ofCents(share(balance, buckets, i))));
+              }
+              bucketRepository.saveAll(parts);
+              card.setBalance(Money.ZERO);
+              splits.increment();
+              log.info("Split hot card {} into {} balance buckets", cardNumber, buckets);
+              return buckets;
+            });
+    contention.invalidate(cardNumber);
+    if (created != null && created > 0) {
+      splitCards.put(cardNumber, created);
+      unsplitCards.invalidate(cardNumber);
+    }
+  }
+
+  private boolean refreshSplit(String cardNumber) {
+    long existing = bucketRepository.countByCardNumber(cardNumber);
+    if (existing == 0) {
+      return false;
+    }
+    splitCards.put(cardNumber, (int) existing);
+    unsplitCards.invalidate(cardNumber);
+    return true;
+  }
+
+  // The first buckets take the remainder, so the shares always add up to the total.
+  private static long share(long total, int parts, int index) {
+    return total / parts + (index < total % parts ? 1 : 0);
+  }
+
+  private static <T> T timeLock(Timer timer, String cardNumber, Supplier<T> query) {
+    CardLockEvent event = new CardLockEvent();
+    event.begin();
+    long start = System.nanoTime();
+    boolean found = false;
+    try {
+      T result = query.get();
+      found =
+          result instanceof Optional<?> optional
+              ? optional.isPresent()
+              : !((List<?>) result).isEmpty();
+      return result;
+    } finally {
+      long elapsed = System.nanoTime() - start;
+      timer.record(elapsed, TimeUnit.NANOSECONDS);
+      ServerTiming.record(ServerTiming.Phase.LOCK, elapsed);
+      event.complete(cardNumber, 1, found ? 1 : 0);
+    }
+  }
+
+  private static Timer lockTimer(MeterRegistry meterRegistry, String operation) {
+    return Timer.builder("authorizer.card.lock")
+        .description("Time to read and lock card rows with SELECT ... FOR UPDATE")
+        .tag("operation", operation)
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+  }
+}
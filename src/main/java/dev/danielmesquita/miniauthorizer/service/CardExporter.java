@@ -0,0 +1,122 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import dev.danielmesquita.miniauthorizer.entity.Money;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Writes the balance of every card in tb_card, in id order. Rows are read through a forward-only
+ * cursor and written as they arrive, so memory use does not grow with the table and the first
+ * line goes out before the query has finished.
+ */
+@Component
+public class CardExporter {
+
+  // Cards split by the bucketed engine keep the rest of their balance in tb_card_bucket. The
+  // subquery is one index lookup per card; unlike a join with GROUP BY, it lets the database
+  // stream the rows.
+  private static final String SELECT =
+      "SELECT c.card_number, c.balance_cents + COALESCE((SELECT SUM(b.balance_cents)"
+          + " FROM tb_card_bucket b WHERE b.card_number = c.card_number), 0)"
+          + " FROM tb_card c ORDER BY c.id";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final ObjectMapper objectMapper;
+
+  // MySQL only streams rows with a fetch size of Integer.MIN_VALUE; other values read the whole
+  // result first. See application-dev.properties.
+  public CardExporter(
+      DataSource dataSource,
+      ObjectMapper objectMapper,
+      @Value("${authorizer.export.fetch-size:1000}") int fetchSize) {
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    this.jdbcTemplate.setFetchSize(fetchSize);
+    this.objectMapper = objectMapper;
+  }
+
+  /** One {@code {"cardNumber":..,"balance":..}} object per line. Returns the cards written. */
+  public long writeNdjson(OutputStream out) {
+    JsonGenerator generator =
+        objectMapper.writer().withRootValueSeparator("\n").createGenerator(out);
+    long cards =
+        query(
+            (cardNumber, balance) -> {
+              generator.writeStartObject();
+              generator.writeStringProperty("cardNumber", cardNumber);
+              generator.writeNumberProperty("balance", balance);
+              generator.writeEndObject();
+            });
+    if (cards > 0) {
+      generator.writeRaw('\n');
+    }
+    // Not closed: that would close the response stream.
+    generator.flush();
+    return cards;
+  }
+
+  /** A {@code card_number,balance} header, then one line per card. Returns the cards written. */
+  public long writeCsv(OutputStream out) {
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    try {
+      writer.write("card_number,balance\n");
+      long cards =
+          query(
+              (cardNumber, balance) -> {
+                try {
+                  writer.write(csv(cardNumber));
+                  writer.write(',');
+                  writer.write(balance.toPlainString());
+                  writer.write('\n');
+                } catch (IOException e) {
+                  throw new UncheckedIOException(e);
+                }
+              });
+      writer.flush();
+      return cards;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private long query(CardWriter writer) {
+    long[] cards = {0};
+    jdbcTemplate.query(
+        SELECT,
+        (RowCallbackHandler)
+            resultSet -> {
+              writer.write(
+                  resultSet.getString(1), Money.ofCents(resultSet.getLong(2)).toBigDecimal());
+              cards[0]++;
+            });
+    return cards[0];
+  }
+
+  // Card numbers are free text, so quote the ones a CSV reader would split.
+  private static String csv(String value) {
+    if (value.indexOf(',') < 0
+        && value.indexOf('"') < 0
+        && value.indexOf('\n') < 0
+        && value.indexOf('\r') < 0) {
+      return value;
+    }
+    return '"' + value.replace("\"", "\"\"") + '"';
+  }
+
+  @FunctionalInterface
+  private interface CardWriter {
+    void write(String cardNumber, BigDecimal balance);
+  }
+}
@@ -0,0 +1,184 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import jakarta.annotation.PostConstruct;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bloom filter of every card number, so transactions and balance lookups for cards that do not
+ * exist are declined before they reach the engine. It is filled from tb_card at startup and again
+ * every {@code refresh-interval-ms}. Cards created here are added before their insert, so this
+ * instance never declines a card it created. Cards created by other instances since the last
+ * refill are missing, so with {@code confirm-misses} a miss is checked with one indexed lookup and
+ * the card is added if it exists; without it a miss is final and no query is made.
+ *
+ * <p>Bits are only ever set, so concurrent adds and lookups need no lock, and deleted cards stay in
+ * the filter as false positives.
+ */
+@Component
+@ConditionalOnProperty(name = "authorizer.card-filter.enabled", havingValue = "true")
+@DependsOnDatabaseInitialization
+public class CardFilter {
+
+  private static final Logger log = LoggerFactory.getLogger(CardFilter.class);
+
+  private static final String SELECT = "SELECT card_number FROM tb_card";
+  private static final String COUNT = "SELECT COUNT(*) FROM tb_card WHERE card_number = ?";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final AtomicLongArray words;
+  private final long bits;
+  private final int hashes;
+  private final boolean confirmMisses;
+
+  private final LongAdder setBits = new LongAdder();
+  private final LongAdder rejections = new LongAdder();
+  private final LongAdder falsePositives = new LongAdder();
+  private final LongAdder lateCards = new LongAdder();
+
+  // Sized for expected-cards at the false-positive-rate; past that the rate rises, which the
+  // estimated rate metric shows. The scan uses the export's fetch size, so it streams on MySQL.
+  public CardFilter(
+      DataSource dataSource,
+      @Value("${authorizer.card-filter.expected-cards:1000000}") long expectedCards,
+      @Value("${authorizer.card-filter.false-positive-rate:0.01}") double falsePositiveRate,
+      @Value("${authorizer.card-filter.confirm-misses:true}") boolean confirmMisses,
+      @Value("${authorizer.export.fetch-size:1000}") int fetchSize) {
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    this.jdbcTemplate.setFetchSize(fetchSize);
+    long optimalBits =
+        (long)
+            Math.ceil(-expectedCards * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+    this.words = new AtomicLongArray((int) Math.max(1, (optimalBits + 63) / 64));
+    this.bits = words.length() * 64L;
+    this.hashes = (int) Math.max(1, Math.round((double) bits / expectedCards * Math.log(2)));
+    this.confirmMisses = confirmMisses;
+  }
+
+  @PostConstruct
+  @Scheduled(
+      initialDelayString = "${authorizer.card-filter.refresh-interval-ms:300000}",
+      fixedDelayString = "${authorizer.card-filter.refresh-interval-ms:300000}")
+  public void refresh() {
+    long start = System.nanoTime();
+    long[] cards = {0};
+    jdbcTemplate.query(
+        SELECT,
+        (RowCallbackHandler)
+            resultSet -> {
+              add(resultSet.getString(1));
+              cards[0]++;
+            });
+    log.info(
+        "Card filter refreshed with {} cards in {} ms, estimated false-positive rate {}",
+        cards[0],
+        (System.nanoTime() - start) / 1_000_000,
+        String.format("%.4f", getEstimatedFalsePositiveRate()));
+  }
+
+  public void add(String cardNumber) {
+    long h1 = h1(cardNumber);
+    long h2 = h2(h1);
+    for (int i = 0; i < hashes; i++) {
+      long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+      int word = (int) (bit >>> 6);
+      long mask = 1L << bit;
+      long current = words.get(word);
+      while ((current & mask) == 0) {
+        long witness = words.compareAndExchange(word, current, current | mask);
+        if (witness == current) {
+          setBits.increment();
+          break;
+        }
+        current = witness;
+      }
+    }
+  }
+
+  public boolean mightContain(String cardNumber) {
+    long h1 = h1(cardNumber);
+    long h2 = h2(h1);
+    for (int i = 0; i < hashes; i++) {
+      long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+      if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Like {@link #mightContain}, confirming misses if configured and counting the rejections. */
+  public boolean admit(String cardNumber) {
+    if (mightContain(cardNumber)) {
+      return true;
+    }
+    if (confirmMisses && jdbcTemplate.queryForObject(COUNT, Long.class, cardNumber) > 0) {
+      add(cardNumber);
+      lateCards.increment();
+      return true;
+    }
+    rejections.increment();
+    return false;
+  }
+
+  // Called when a card the filter admitted turns out not to exist.
+  public void recordFalsePositive() {
+    falsePositives.increment();
+  }
+
+  public long getRejectionCount() {
+    return rejections.sum();
+  }
+
+  public long getFalsePositiveCount() {
+    return falsePositives.sum();
+  }
+
+  public long getLateCardCount() {
+    return lateCards.sum();
+  }
+
+  public long getMemoryBytes() {
+    return words.length() * 8L;
+  }
+
+  // Chance that an unknown card passes all hash probes, from the fraction of bits set.
+  public double getEstimatedFalsePositiveRate() {
+    return Math.pow((double) setBits.sum() / bits, hashes);
+  }
+
+  // Probe i is h1 + i * h2 (double hashing). h1 is FNV-1a over the characters, spread by the
+  // MurmurHash3 finalizer. h2 is derived from it and odd, so no step is 0 modulo the bit count,
+  // which is a multiple of 64.
+  private static long h1(String cardNumber) {
+    long hash = 0xCBF29CE484222325L;
+    for (int i = 0; i < cardNumber.length(); i++) {
+      hash ^= cardNumber.charAt(i);
+      hash *= 0x100000001B3L;
+    }
+    return mix(hash);
+  }
+
+  private static long h2(long h1) {
+    return mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+  }
+
+  private static long mix(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xFF51AFD7ED558CCDL;
+    hash ^= hash >>> 33;
+    hash *= 0xC4CEB9FE1A85EC53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
@@ -0,0 +1,91 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.danielmesquita.miniauthorizer.config.ServerTiming;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Checks card passwords, remembering successful BCrypt verifications for a bounded time. Entries
+ * are keyed by card number plus an HMAC of the presented password and store the hash they were
+ * verified against, so a changed card password never matches a stale entry. Failed checks are
+ * never cached.
+ */
+@Component
+public class CardPasswordVerifier {
+
+  private final PasswordEncoder passwordEncoder;
+  private final CredentialDigest credentialDigest;
+  private final Cache<VerificationKey, String> verified;
+  private final Timer cachedVerifications;
+  private final Timer hashedVerifications;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public CardPasswordVerifier(
+      PasswordEncoder passwordEncoder,
+      CredentialDigest credentialDigest,
+      @Value("${authorizer.card-password-cache.max-size:100000}") long maxSize,
+      @Value("${authorizer.card-password-cache.ttl:5m}") Duration ttl,
+      MeterRegistry meterRegistry) {
+    this.passwordEncoder = passwordEncoder;
+    this.credentialDigest = credentialDigest;
+    this.verified = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).build();
+    this.cachedVerifications = verificationTimer(meterRegistry, "hit");
+    this.hashedVerifications = verificationTimer(meterRegistry, "miss");
+  }
+
+  public boolean matches(String cardNumber, String rawPassword, String storedPassword) {
+    long start = System.nanoTime();
+    VerificationKey key = new VerificationKey(cardNumber, credentialDigest.digest(rawPassword));
+    if (storedPassword.equals(verified.getIfPresent(key))) {
+      hits.increment();
+      record(cachedVerifications, start);
+      return true;
+    }
+    misses.increment();
+
+    boolean matches = passwordEncoder.matches(rawPassword, storedPassword);
+    if (matches) {
+      verified.put(key, storedPassword);
+    }
+    record(hashedVerifications, start);
+    return matches;
+  }
+
+  private static void record(Timer timer, long start) {
+    long elapsed = System.nanoTime() - start;
+    timer.record(elapsed, TimeUnit.NANOSECONDS);
+    ServerTiming.record(ServerTiming.Phase.PASSWORD, elapsed);
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  public long getSize() {
+    return verified.estimatedSize();
+  }
+
+  private static Timer verificationTimer(MeterRegistry meterRegistry, String cache) {
+    return Timer.builder("authorizer.card.password.verification")
+        .description("Card password checks; cache=miss includes the BCrypt comparison")
+        .tag("cache", cache)
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+  }
+
+  private record VerificationKey(String cardNumber, String passwordDigest) {}
+}
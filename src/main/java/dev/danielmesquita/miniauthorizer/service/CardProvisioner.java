@@ -0,0 +1,198 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import dev.danielmesquita.miniauthorizer.dto.CardCreationResultDTO;
+import dev.danielmesquita.miniauthorizer.dto.CardDTO;
+import dev.danielmesquita.miniauthorizer.entity.Card;
+import dev.danielmesquita.miniauthorizer.enums.CardCreationStatus;
+import dev.danielmesquita.miniauthorizer.repository.CardRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.Validator;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Creates cards in bulk, a chunk at a time. Each chunk costs one query to find the card numbers
+ * that already exist and JDBC batch inserts, instead of a locking probe and an insert per card.
+ * Passwords are hashed in parallel on a dedicated fork-join pool, so a large import does not take
+ * over the threads that hash for requests. Every card gets its own outcome, in input order.
+ */
+@Service
+public class CardProvisioner {
+
+  private final CardRepository repository;
+  private final PasswordEncoder passwordEncoder;
+  private final TransactionEngine transactionEngine;
+  private final BalanceCache balanceCache;
+  private final Optional<CardFilter> cardFilter;
+  private final TransactionTemplate transactionTemplate;
+  private final Validator validator;
+  private final ForkJoinPool hashingPool;
+  private final int chunkSize;
+  private final Map<CardCreationStatus, Counter> outcomes =
+      new EnumMap<>(CardCreationStatus.class);
+
+  public CardProvisioner(
+      CardRepository repository,
+      PasswordEncoder passwordEncoder,
+      TransactionEngine transactionEngine,
+      BalanceCache balanceCache,
+      PlatformTransactionManager transactionManager,
+      Validator validator,
+      @Value("${authorizer.bulk.hashing-threads:0}") int hashingThreads,
+      @Value("${authorizer.bulk.chunk-size:1000}") int chunkSize,
+      MeterRegistry meterRegistry,
+      Optional<CardFilter> cardFilter) {
+    this.repository = repository;
+    this.passwordEncoder = passwordEncoder;
+    this.transactionEngine = transactionEngine;
+    this.balanceCache = balanceCache;
+    this.cardFilter = cardFilter;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.validator = validator;
+    this.hashingPool =
+        new ForkJoinPool(
+            hashingThreads > 0 ? hashingThreads : Runtime.getRuntime().availableProcessors());
+    this.chunkSize = chunkSize;
+    for (CardCreationStatus status : CardCreationStatus.values()) {
+      outcomes.put(
+          status,
+          Counter.builder("authorizer.cards.bulk")
+              .description("Bulk-provisioned cards by outcome")
+              .tag("status", status.name())
+              .register(meterRegistry));
+    }
+  }
+
+  public List<CardCreationResultDTO> createCards(List<CardDTO> cards) {
+    List<CardCreationResultDTO> results = new ArrayList<>(cards.size());
+    createCards(cards.iterator(), results::add);
+    return results;
+  }
+
+  // Results of a chunk are handed over once it commits, so a stream of cards never has to fit in
+  // memory.
+  public void createCards(Iterator<CardDTO> cards, Consumer<CardCreationResultDTO> results) {
+    List<CardDTO> chunk = new ArrayList<>(chunkSize);
+    while (cards.hasNext()) {
+      chunk.add(cards.next());
+      if (chunk.size() == chunkSize || !cards.hasNext()) {
+        createChunk(chunk).forEach(results);
+        chunk.clear();
+      }
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    hashingPool.shutdown();
+  }
+
+  private List<CardCreationResultDTO> createChunk(List<CardDTO> chunk) {
+    CardCreationStatus[] statuses = new CardCreationStatus[chunk.size()];
+    // Index of the first valid occurrence of each card number; later ones are duplicates.
+    Map<String, Integer> pending = new LinkedHashMap<>();
+    for (int i = 0; i < chunk.size(); i++) {
+      CardDTO cardDTO = chunk.get(i);
+      if (cardDTO == null || !validator.validate(cardDTO).isEmpty()) {
+        statuses[i] = CardCreationStatus.INVALID;
+      } else if (pending.putIfAbsent(cardDTO.getCardNumber(), i) != null) {
+        statuses[i] = CardCreationStatus.ALREADY_EXISTS;
+      }
+    }
+    if (!pending.isEmpty()) {
+      for (String existing : repository.findExistingCardNumbers(pending.keySet())) {
+        statuses[pending.remove(existing)] = CardCreationStatus.ALREADY_EXISTS;
+      }
+    }
+
+    List<Card> cards = hash(chunk, pending.values());
+    while (!cards.isEmpty()) {
+      try {
+        insert(cards);
+        break;
+      } catch (DataIntegrityViolationException e) {
+        // Another request created some of the cards since the query; report them and retry.
+        Set<String> existing =
+            new HashSet<>(
+                repository.findExistingCardNumbers(
+                    cards.stream().map(Card::getCardNumber).toList()));
+        if (existing.isEmpty()) {
+          throw e;
+        }
+        for (String cardNumber : existing) {
+          statuses[pending.remove(cardNumber)] = CardCreationStatus.ALREADY_EXISTS;
+        }
+        // The rolled-back cards keep the ids and versions they were given, so start over.
+        cards =
+            cards.stream()
+                .filter(card -> !existing.contains(card.getCardNumber()))
+                .map(
+                    card ->
+                        new Card(null, card.getCardNumber(), card.getPassword(), card.getBalance()))
+                .collect(Collectors.toCollection(ArrayList::new));
+      }
+    }
+    for (int index : pending.values()) {
+      statuses[index] = CardCreationStatus.CREATED;
+    }
+
+    List<CardCreationResultDTO> results = new ArrayList<>(chunk.size());
+    for (int i = 0; i < chunk.size(); i++) {
+      outcomes.get(statuses[i]).increment();
+      String cardNumber = chunk.get(i) == null ? null : chunk.get(i).getCardNumber();
+      results.add(new CardCreationResultDTO(cardNumber, statuses[i]));
+    }
+    return results;
+  }
+
+  private List<Card> hash(List<CardDTO> chunk, Iterable<Integer> indexes) {
+    List<CardDTO> toCreate = new ArrayList<>();
+    indexes.forEach(index -> toCreate.add(chunk.get(index)));
+    List<Card> cards =
+        hashingPool
+            .submit(
+                () ->
+                    toCreate.parallelStream()
+                        .map(
+                            cardDTO ->
+                                new Card(
+                                    null,
+                                    cardDTO.getCardNumber(),
+                                    passwordEncoder.encode(cardDTO.getPassword()),
+                                    CardService.INITIAL_BALANCE))
+                        .toList())
+            .join();
+    return new ArrayList<>(cards);
+  }
+
+  private void insert(List<Card> cards) {
+    // Before the insert, so no card is declined once it is visible.
+    cardFilter.ifPresent(filter -> cards.forEach(card -> filter.add(card.getCardNumber())));
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          repository.saveAllAndFlush(cards);
+          for (Card card : cards) {
+            balanceCache.invalidateAfterCommit(card.getCardNumber());
+          }
+          transactionEngine.cardsCreated(cards);
+        });
+  }
+}
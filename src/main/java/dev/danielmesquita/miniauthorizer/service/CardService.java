@@ -2,14 +2,25 @@ package dev.danielmesquita.miniauthorizer.service;
 
 import dev.danielmesquita.miniauthorizer.dto.CardDTO;
 import dev.danielmesquita.miniauthorizer.dto.TransactionDTO;
+import dev.danielmesquita.miniauthorizer.dto.TransactionResultDTO;
 import dev.danielmesquita.miniauthorizer.entity.Card;
+import dev.danielmesquita.miniauthorizer.entity.Money;
 import dev.danielmesquita.miniauthorizer.enums.TransactionStatus;
 import dev.danielmesquita.miniauthorizer.exception.CardAlreadyExistsException;
 import dev.danielmesquita.miniauthorizer.exception.ResourceNotFoundException;
 import dev.danielmesquita.miniauthorizer.exception.TransactionException;
+import dev.danielmesquita.miniauthorizer.jfr.CardCreationEvent;
+import dev.danielmesquita.miniauthorizer.jfr.TransactionEvent;
 import dev.danielmesquita.miniauthorizer.repository.CardRepository;
-import java.math.BigDecimal;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -17,63 +28,255 @@ import org.springframework.transaction.annotation.Transactional;
 @Service
 public class CardService {
 
+  static final Money INITIAL_BALANCE = Money.ofCents(500_00);
+  // Outcome of conflicts and database errors, which end without an authorization decision.
+  private static final String FAILED = TransactionStatus.ERROR.name();
+
   private final CardRepository repository;
   private final PasswordEncoder passwordEncoder;
+  private final TransactionEngine transactionEngine;
+  private final BalanceCache balanceCache;
+  private final TransactionLedger ledger;
+  private final IdempotencyStore idempotencyStore;
+  private final Optional<CardFilter> cardFilter;
+  private final Map<TransactionStatus, Timer> transactionTimers =
+      new EnumMap<>(TransactionStatus.class);
+  private final Timer failedTransactionTimer;
+  private final Map<TransactionStatus, Counter> batchItemCounters =
+      new EnumMap<>(TransactionStatus.class);
 
-  public CardService(CardRepository repository, PasswordEncoder passwordEncoder) {
+  public CardService(
+      CardRepository repository,
+      PasswordEncoder passwordEncoder,
+      TransactionEngine transactionEngine,
+      BalanceCache balanceCache,
+      TransactionLedger ledger,
+      IdempotencyStore idempotencyStore,
+      MeterRegistry meterRegistry,
+      Optional<CardFilter> cardFilter) {
     this.repository = repository;
     this.passwordEncoder = passwordEncoder;
+    this.transactionEngine = transactionEngine;
+    this.balanceCache = balanceCache;
+    this.ledger = ledger;
+    this.idempotencyStore = idempotencyStore;
+    this.cardFilter = cardFilter;
+    for (TransactionStatus status : TransactionStatus.values()) {
+      transactionTimers.put(status, transactionTimer(meterRegistry, status.name()));
+      batchItemCounters.put(
+          status,
+          Counter.builder("authorizer.batch.transactions")
+              .description("Batch items by outcome")
+              .tag("status", status.name())
+              .register(meterRegistry));
+    }
+    this.failedTransactionTimer = transactionTimer(meterRegistry, FAILED);
   }
 
   @Transactional
   public CardDTO createCard(CardDTO cardDTO) {
-    Optional<Card> existing = repository.findByCardNumberForUpdate(cardDTO.getCardNumber());
-    if (existing.isPresent()) {
-      throw new CardAlreadyExistsException("Card number already exists");
-    }
+    CardCreationEvent event = new CardCreationEvent();
+    event.begin();
+    boolean created = false;
+    try {
+      Optional<Card> existing = repository.findByCardNumberForUpdate(cardDTO.getCardNumber());
+      if (existing.isPresent()) {
+        throw new CardAlreadyExistsException("Card number already exists");
+      }
 
-    Card entity = new Card();
-    entity.setCardNumber(cardDTO.getCardNumber());
-    entity.setPassword(passwordEncoder.encode(cardDTO.getPassword()));
-    entity.setBalance(new BigDecimal("500")); // Initial balance
+      // Before the insert, so the card is never declined once it is visible.
+      cardFilter.ifPresent(filter -> filter.add(cardDTO.getCardNumber()));
+      Card entity = new Card();
+      entity.setCardNumber(cardDTO.getCardNumber());
+      entity.setPassword(passwordEncoder.encode(cardDTO.getPassword()));
+      entity.setBalance(INITIAL_BALANCE);
 
-    entity = repository.save(entity);
+      entity = repository.save(entity);
+      balanceCache.invalidateAfterCommit(cardDTO.getCardNumber());
+      transactionEngine.cardCreated(entity);
+      created = true;
 
-    return new CardDTO(entity);
+      return new CardDTO(entity);
+    } finally {
+      event.complete(cardDTO.getCardNumber(), created);
+    }
   }
 
-  @Transactional(readOnly = true)
-  public BigDecimal getBalance(String cardNumber) {
-    Card card =
-        repository
-            .findByCardNumber(cardNumber)
-            .orElseThrow(
-                () -> new ResourceNotFoundException("Card not found with number: " + cardNumber));
-    return card.getBalance();
+  public Money getBalance(String cardNumber) {
+    if (!cardFilter.map(filter -> filter.admit(cardNumber)).orElse(true)) {
+      throw cardNotFound(cardNumber);
+    }
+    Optional<Money> engineBalance = transactionEngine.findBalance(cardNumber);
+    if (engineBalance.isPresent()) {
+      return engineBalance.get();
+    }
+    Optional<Money> balance = balanceCache.get(cardNumber, this::loadBalance);
+    if (balance.isEmpty()) {
+      cardFilter.ifPresent(CardFilter::recordFalsePositive);
+      throw cardNotFound(cardNumber);
+    }
+    return balance.get();
   }
 
-  @Transactional
+  private static ResourceNotFoundException cardNotFound(String cardNumber) {
+    return new ResourceNotFoundException("Card not found with number: " + cardNumber);
+  }
+
+  private Optional<Money> loadBalance(String cardNumber) {
+    return repository.findBalanceCentsByCardNumber(cardNumber).map(Money::ofCents);
+  }
+
+  // Engines commit before returning, so the invalidation lands after the new balance is visible.
   public CardDTO executeTransaction(TransactionDTO transactionDTO) {
-    Card card =
-        repository
-            .findByCardNumberForUpdate(transactionDTO.getCardNumber())
-            .orElseThrow(() -> new TransactionException(TransactionStatus.CARTAO_INEXISTENTE));
+    TransactionEvent event = new TransactionEvent();
+    event.begin();
+    long start = System.nanoTime();
+    String cardNumber = transactionDTO.getCardNumber();
+    Money value = Money.of(transactionDTO.getValue());
+    CardDTO result;
+    try {
+      result = execute(transactionDTO);
+    } catch (TransactionException e) {
+      ledger.record(cardNumber, value, e.getStatus());
+      record(transactionTimers.get(e.getStatus()), start);
+      event.complete(cardNumber, e.getStatus().name(), false);
+      throw e;
+    } catch (RuntimeException e) {
+      record(failedTransactionTimer, start);
+      event.complete(cardNumber, FAILED, false);
+      throw e;
+    }
+    ledger.record(cardNumber, value, TransactionStatus.OK);
+    balanceCache.invalidateAfterCommit(cardNumber);
+    record(transactionTimers.get(TransactionStatus.OK), start);
+    event.complete(cardNumber, TransactionStatus.OK.name(), false);
+    return result;
+  }
+
+  // Cards the filter has never seen are declined without reaching the engine; the ones it lets
+  // through that the engine cannot find are its false positives.
+  private CardDTO execute(TransactionDTO transactionDTO) {
+    if (cardFilter.isEmpty()) {
+      return transactionEngine.execute(transactionDTO);
+    }
+    CardFilter filter = cardFilter.get();
+    if (!filter.admit(transactionDTO.getCardNumber())) {
+      throw new TransactionException(TransactionStatus.CARTAO_INEXISTENTE);
+    }
+    try {
+      return transactionEngine.execute(transactionDTO);
+    } catch (TransactionException e) {
+      if (e.getStatus() == TransactionStatus.CARTAO_INEXISTENTE) {
+        filter.recordFalsePositive();
+      }
+      throw e;
+    }
+  }
 
-    if (!passwordEncoder.matches(transactionDTO.getPassword(), card.getPassword())) {
-      throw new TransactionException(TransactionStatus.SENHA_INVALIDA);
+  // Replayed outcomes were already recorded by the request that produced them. A card the filter
+  // declines has nothing to protect, so its key is not stored. The filter is asked here rather
+  // than in execute: a miss it confirms against tb_card must still be debited under the key.
+  public CardDTO executeTransaction(TransactionDTO transactionDTO, String idempotencyKey) {
+    if (idempotencyKey == null) {
+      return executeTransaction(transactionDTO);
+    }
+    TransactionEvent event = new TransactionEvent();
+    event.begin();
+    long start = System.nanoTime();
+    String cardNumber = transactionDTO.getCardNumber();
+    if (!cardFilter.map(filter -> filter.admit(cardNumber)).orElse(true)) {
+      TransactionStatus declined = TransactionStatus.CARTAO_INEXISTENTE;
+      ledger.record(cardNumber, Money.of(transactionDTO.getValue()), declined);
+      record(transactionTimers.get(declined), start);
+      event.complete(cardNumber, declined.name(), false);
+      throw new TransactionException(declined);
     }
+    IdempotencyStore.Result result;
+    try {
+      result = idempotencyStore.execute(idempotencyKey, transactionDTO, transactionEngine);
+    } catch (RuntimeException e) {
+      record(failedTransactionTimer, start);
+      event.complete(transactionDTO.getCardNumber(), FAILED, false);
+      throw e;
+    }
+    if (!result.replayed()) {
+      if (result.status() == TransactionStatus.CARTAO_INEXISTENTE) {
+        cardFilter.ifPresent(CardFilter::recordFalsePositive);
+      }
+      ledger.record(result.cardNumber(), Money.ofCents(result.amountCents()), result.status());
+      if (result.status() == TransactionStatus.OK) {
+        balanceCache.invalidateAfterCommit(result.cardNumber());
+      }
+    }
+    record(transactionTimers.get(result.status()), start);
+    event.complete(result.cardNumber(), result.status().name(), result.replayed());
+    if (result.status() != TransactionStatus.OK) {
+      throw new TransactionException(result.status());
+    }
+    return result.card();
+  }
 
-    BigDecimal value = transactionDTO.getValue();
-    BigDecimal balance = card.getBalance();
-    BigDecimal newBalance = balance.subtract(value);
+  public List<TransactionResultDTO> executeBatch(List<TransactionDTO> transactions) {
+    List<TransactionStatus> statuses = executeBatchItems(transactions);
+    List<TransactionResultDTO> results = new ArrayList<>(transactions.size());
+    for (int i = 0; i < transactions.size(); i++) {
+      String cardNumber = transactions.get(i).getCardNumber();
+      TransactionStatus status = statuses.get(i);
+      // Failed items made no decision, so like failed single transactions they are not recorded.
+      if (status != TransactionStatus.ERROR) {
+        ledger.record(cardNumber, Money.of(transactions.get(i).getValue()), status);
+      }
+      batchItemCounters.get(status).increment();
+      if (status == TransactionStatus.OK) {
+        balanceCache.invalidateAfterCommit(cardNumber);
+      }
+      results.add(new TransactionResultDTO(cardNumber, status));
+    }
+    return results;
+  }
 
-    if ((newBalance).compareTo(BigDecimal.ZERO) < 0) {
-      throw new TransactionException(TransactionStatus.SALDO_INSUFICIENTE);
+  // Only the items the filter admits go to the engine; the rest are declined in place.
+  private List<TransactionStatus> executeBatchItems(List<TransactionDTO> transactions) {
+    if (cardFilter.isEmpty()) {
+      return transactionEngine.executeBatch(transactions);
+    }
+    CardFilter filter = cardFilter.get();
+    List<TransactionDTO> admitted = new ArrayList<>(transactions.size());
+    for (TransactionDTO transaction : transactions) {
+      if (filter.admit(transaction.getCardNumber())) {
+        admitted.add(transaction);
+      }
+    }
+    List<TransactionStatus> admittedStatuses =
+        admitted.isEmpty() ? List.of() : transactionEngine.executeBatch(admitted);
+    for (TransactionStatus status : admittedStatuses) {
+      if (status == TransactionStatus.CARTAO_INEXISTENTE) {
+        filter.recordFalsePositive();
+      }
     }
+    if (admitted.size() == transactions.size()) {
+      return admittedStatuses;
+    }
+    List<TransactionStatus> statuses = new ArrayList<>(transactions.size());
+    int next = 0;
+    for (TransactionDTO transaction : transactions) {
+      statuses.add(
+          next < admitted.size() && admitted.get(next) == transaction
+              ? admittedStatuses.get(next++)
+              : TransactionStatus.CARTAO_INEXISTENTE);
+    }
+    return statuses;
+  }
 
-    card.setBalance(newBalance);
-    repository.save(card);
+  private static void record(Timer timer, long start) {
+    timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+  }
 
-    return new CardDTO(card);
+  private static Timer transactionTimer(MeterRegistry meterRegistry, String status) {
+    return Timer.builder("authorizer.transaction")
+        .description("Single transactions by outcome, including replays of idempotency keys")
+        .tag("status", status)
+        .publishPercentileHistogram()
+        .register(meterRegistry);
   }
 }
@@ -0,0 +1,201 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import dev.danielmesquita.miniauthorizer.entity.Card;
+import dev.danielmesquita.miniauthorizer.projection.CardVersion;
+import dev.danielmesquita.miniauthorizer.repository.CardRepository;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+/**
+ * Compact binary snapshot of the cards held by the in-memory engine, so a restarted node starts
+ * with its cards loaded instead of reading tb_card one miss at a time. {@link #load()} reads the
+ * file through a memory map in one sequential pass, then compares each card's version with
+ * tb_card and re-reads only the rows written after the snapshot and the cards created since.
+ */
+@Component
+@ConditionalOnProperty(name = "authorizer.snapshot.enabled", havingValue = "true")
+public class CardSnapshot {
+
+  public record Entry(String cardNumber, String password, long balanceCents, long version) {}
+
+  // Version of a card whose balance was not flushed when the snapshot was taken. It never matches
+  // tb_card, so the card is re-read.
+  public static final long UNFLUSHED = -1;
+
+  private static final Logger log = LoggerFactory.getLogger(CardSnapshot.class);
+
+  private static final int MAGIC = 0x534e4150;
+  private static final int PAGE_SIZE = 10_000;
+
+  private final CardRepository repository;
+  private final Path path;
+
+  public CardSnapshot(
+      CardRepository repository,
+      @Value("${authorizer.snapshot.path:data/cards.snapshot}") Path path) {
+    this.repository = repository;
+    this.path = path;
+  }
+
+  // Written to a temporary file and moved over the previous snapshot, which stays valid until then.
+  public void write(Collection<Entry> entries) {
+    Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+    try {
+      if (path.getParent() != null) {
+        Files.createDirectories(path.getParent());
+      }
+      CRC32C crc = new CRC32C();
+      try (DataOutputStream out =
+          new DataOutputStream(
+              new BufferedOutputStream(
+                  new CheckedOutputStream(Files.newOutputStream(temporary), crc), 1 << 16))) {
+        out.writeInt(MAGIC);
+        out.writeInt(entries.size());
+        for (Entry entry : entries) {
+          writeString(out, entry.cardNumber());
+          writeString(out, entry.password());
+          out.writeLong(entry.balanceCents());
+          out.writeLong(entry.version());
+        }
+        out.flush();
+        out.writeInt((int) crc.getValue());
+      }
+      try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+        channel.force(true);
+      }
+      Files.move(
+          temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot write card snapshot " + path, e);
+    }
+  }
+
+  /** Cards of the last snapshot brought up to date with tb_card; empty without a usable file. */
+  public List<Entry> load() {
+    long start = System.nanoTime();
+    Map<String, Entry> snapshot = read();
+    if (snapshot.isEmpty()) {
+      return List.of();
+    }
+    List<Entry> cards = new ArrayList<>(snapshot.size());
+    int reread = reconcile(snapshot, cards);
+    log.info(
+        "Loaded {} cards from snapshot {} in {} ms, {} of them re-read from tb_card",
+        cards.size(),
+        path,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+        reread);
+    return cards;
+  }
+
+  private Map<String, Entry> read() {
+    if (!Files.exists(path)) {
+      return Map.of();
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < 12 || size > Integer.MAX_VALUE) {
+        log.warn("Card snapshot {} has an unexpected size of {} bytes, ignoring it", path, size);
+        return Map.of();
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      int end = (int) size - 4;
+      CRC32C crc = new CRC32C();
+      crc.update(buffer.slice(0, end));
+      if (buffer.getInt(0) != MAGIC || (int) crc.getValue() != buffer.getInt(end)) {
+        log.warn("Card snapshot {} is incomplete or corrupt, ignoring it", path);
+        return Map.of();
+      }
+      buffer.position(4);
+      int count = buffer.getInt();
+      Map<String, Entry> entries = HashMap.newHashMap(count);
+      for (int i = 0; i < count; i++) {
+        String cardNumber = readString(buffer);
+        String password = readString(buffer);
+        entries.put(
+            cardNumber, new Entry(cardNumber, password, buffer.getLong(), buffer.getLong()));
+      }
+      return entries;
+    } catch (IOException | BufferUnderflowException e) {
+      log.warn("Cannot read card snapshot {}, ignoring it", path, e);
+      return Map.of();
+    }
+  }
+
+  // Walks tb_card's versions in id order, keeping unchanged cards from the snapshot and collecting
+  // the rest, which are read in full. Cards deleted since the snapshot are dropped.
+  private int reconcile(Map<String, Entry> snapshot, List<Entry> cards) {
+    List<String> changed = new ArrayList<>();
+    long afterId = 0;
+    List<CardVersion> page;
+    do {
+      page = repository.findVersionsAfter(afterId, Limit.of(PAGE_SIZE));
+      for (CardVersion row : page) {
+        Entry entry = snapshot.get(row.cardNumber());
+        if (entry != null && entry.version() == row.version()) {
+          cards.add(entry);
+        } else {
+          changed.add(row.cardNumber());
+        }
+        afterId = row.id();
+      }
+    } while (page.size() == PAGE_SIZE);
+
+    for (int from = 0; from < changed.size(); from += PAGE_SIZE) {
+      List<String> numbers = changed.subList(from, Math.min(from + PAGE_SIZE, changed.size()));
+      for (Card card : repository.findAllByCardNumberIn(numbers)) {
+        cards.add(
+            new Entry(
+                card.getCardNumber(),
+                card.getPassword(),
+                card.getBalance().cents(),
+                card.getVersion()));
+      }
+    }
+    return changed.size();
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    if (value == null) {
+      out.writeShort(-1);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeShort(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(MappedByteBuffer buffer) {
+    short length = buffer.getShort();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,65 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import dev.danielmesquita.miniauthorizer.dto.CardDTO;
+import dev.danielmesquita.miniauthorizer.dto.TransactionDTO;
+import dev.danielmesquita.miniauthorizer.entity.Card;
+import dev.danielmesquita.miniauthorizer.entity.Money;
+import dev.danielmesquita.miniauthorizer.enums.TransactionStatus;
+import dev.danielmesquita.miniauthorizer.exception.TransactionException;
+import dev.danielmesquita.miniauthorizer.repository.CardRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Debits with a single conditional UPDATE. The password is checked against a plain read before
+ * the transaction starts, so the row lock only lives for the UPDATE and the commit.
+ */
+@Component
+@ConditionalOnProperty(name = "authorizer.transaction.mode", havingValue = "conditional")
+public class ConditionalDebitTransactionEngine implements TransactionEngine {
+
+  private final CardRepository repository;
+  private final CardPasswordVerifier passwordVerifier;
+  private final TransactionTemplate transactionTemplate;
+
+  public ConditionalDebitTransactionEngine(
+      CardRepository repository,
+      CardPasswordVerifier passwordVerifier,
+      PlatformTransactionManager transactionManager) {
+    this.repository = repository;
+    this.passwordVerifier = passwordVerifier;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  @Override
+  public CardDTO execute(TransactionDTO transactionDTO) {
+    String cardNumber = transactionDTO.getCardNumber();
+    Card card =
+        repository
+            .findByCardNumber(cardNumber)
+            .orElseThrow(() -> new TransactionException(TransactionStatus.CARTAO_INEXISTENTE));
+
+    if (!passwordVerifier.matches(cardNumber, transactionDTO.getPassword(), card.getPassword())) {
+      throw new TransactionException(TransactionStatus.SENHA_INVALIDA);
+    }
+
+    long cents = Money.of(transactionDTO.getValue()).cents();
+    Money newBalance =
+        transactionTemplate.execute(
+            status -> {
+              // Cards are never deleted, so no affected row means the balance was too low.
+              if (repository.debit(cardNumber, cents) == 0) {
+                throw new TransactionException(TransactionStatus.SALDO_INSUFICIENTE);
+              }
+              return repository
+                  .findBalanceCentsByCardNumber(cardNumber)
+                  .map(Money::ofCents)
+                  .orElseThrow(
+                      () -> new TransactionException(TransactionStatus.CARTAO_INEXISTENTE));
+            });
+
+    return new CardDTO(cardNumber, card.getPassword(), newBalance.toBigDecimal());
+  }
+}
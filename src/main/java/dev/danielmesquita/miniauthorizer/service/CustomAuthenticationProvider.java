@@ -1,14 +1,21 @@
 package dev.danielmesquita.miniauthorizer.service;
 
+import dev.danielmesquita.miniauthorizer.config.ServerTiming;
 import dev.danielmesquita.miniauthorizer.exception.UnauthorizedException;
 import dev.danielmesquita.miniauthorizer.projection.UserDetailsProjection;
 import dev.danielmesquita.miniauthorizer.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
@@ -17,33 +24,78 @@ public class CustomAuthenticationProvider implements AuthenticationProvider {
 
   private final UserRepository userRepository;
   private final PasswordEncoder passwordEncoder;
+  private final AuthenticatedPrincipalCache principalCache;
+  private final Timer cachedAuthentications;
+  private final Timer verifiedAuthentications;
+  private final Timer failedAuthentications;
 
   public CustomAuthenticationProvider(
-      UserRepository userRepository, PasswordEncoder passwordEncoder) {
+      UserRepository userRepository,
+      PasswordEncoder passwordEncoder,
+      AuthenticatedPrincipalCache principalCache,
+      MeterRegistry meterRegistry) {
     this.userRepository = userRepository;
     this.passwordEncoder = passwordEncoder;
+    this.principalCache = principalCache;
+    this.cachedAuthentications = authenticationTimer(meterRegistry, "success", "hit");
+    this.verifiedAuthentications = authenticationTimer(meterRegistry, "success", "miss");
+    this.failedAuthentications = authenticationTimer(meterRegistry, "failure", "miss");
   }
 
   @Override
   public Authentication authenticate(Authentication authentication) throws AuthenticationException {
     String username = authentication.getName();
     String password = Objects.requireNonNull(authentication.getCredentials()).toString();
+    long start = System.nanoTime();
 
+    Optional<List<GrantedAuthority>> cached = principalCache.find(username, password);
+    if (cached.isPresent()) {
+      record(cachedAuthentications, start);
+      return new UsernamePasswordAuthenticationToken(username, password, cached.get());
+    }
+
+    long generation = principalCache.generation();
     List<UserDetailsProjection> result = userRepository.findUserDetailsByEmail(username);
     if (result.isEmpty()) {
+      record(failedAuthentications, start);
       throw new UnauthorizedException("Invalid username or password");
     }
 
     String storedPassword = result.getFirst().getPassword();
     if (!passwordEncoder.matches(password, storedPassword)) {
+      record(failedAuthentications, start);
       throw new UnauthorizedException("Invalid username or password");
     }
 
-    return new UsernamePasswordAuthenticationToken(username, password, List.of());
+    List<GrantedAuthority> authorities =
+        result.stream()
+            .map(UserDetailsProjection::getAuthority)
+            .filter(Objects::nonNull)
+            .<GrantedAuthority>map(SimpleGrantedAuthority::new)
+            .toList();
+    principalCache.put(username, password, authorities, generation);
+    record(verifiedAuthentications, start);
+
+    return new UsernamePasswordAuthenticationToken(username, password, authorities);
   }
 
   @Override
   public boolean supports(Class<?> authentication) {
     return authentication.equals(UsernamePasswordAuthenticationToken.class);
   }
+
+  private static void record(Timer timer, long start) {
+    long elapsed = System.nanoTime() - start;
+    timer.record(elapsed, TimeUnit.NANOSECONDS);
+    ServerTiming.record(ServerTiming.Phase.AUTH, elapsed);
+  }
+
+  private static Timer authenticationTimer(MeterRegistry meterRegistry, String result, String cache) {
+    return Timer.builder("authorizer.authentication")
+        .description("HTTP Basic authentication; cache=miss includes the user query and BCrypt")
+        .tag("result", result)
+        .tag("cache", cache)
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+  }
 }
@@ -0,0 +1,265 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import dev.danielmesquita.miniauthorizer.config.ServerTiming;
+import dev.danielmesquita.miniauthorizer.dto.CardDTO;
+import dev.danielmesquita.miniauthorizer.dto.TransactionDTO;
+import dev.danielmesquita.miniauthorizer.entity.Card;
+import dev.danielmesquita.miniauthorizer.entity.Money;
+import dev.danielmesquita.miniauthorizer.enums.TransactionStatus;
+import dev.danielmesquita.miniauthorizer.exception.TransactionException;
+import dev.danielmesquita.miniauthorizer.jfr.CardLockEvent;
+import dev.danielmesquita.miniauthorizer.repository.CardRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Coalesces concurrent debits of the same card into one database transaction. The first debit of
+ * a card leads its group: it waits {@code authorizer.group-commit.window-us}, then for the group
+ * before it to commit, and then applies every debit queued for the card in arrival order against
+ * one {@code SELECT ... FOR UPDATE} and commits once. Debits that arrive while a group commits
+ * join the next one, so batches grow with commit latency instead of queueing on the row lock.
+ * Each caller gets its own outcome, after the commit.
+ */
+@Component
+@ConditionalOnProperty(name = "authorizer.transaction.mode", havingValue = "group-commit")
+public class GroupCommitTransactionEngine implements TransactionEngine {
+
+  private static final Logger log = LoggerFactory.getLogger(GroupCommitTransactionEngine.class);
+
+  private final CardRepository repository;
+  private final CardPasswordVerifier passwordVerifier;
+  private final TransactionTemplate transactionTemplate;
+  private final long windowNanos;
+  private final int maxBatchSize;
+  private final Timer lockTimer;
+  private final DistributionSummary batchSizes;
+
+  private final Map<String, List<PendingDebit>> groups = new ConcurrentHashMap<>();
+  // Serializes the leaders of a card, so the next group keeps filling while one commits.
+  private final ReentrantLock[] leaderLocks;
+
+  public GroupCommitTransactionEngine(
+      CardRepository repository,
+      CardPasswordVerifier passwordVerifier,
+      PlatformTransactionManager transactionManager,
+      @Value("${authorizer.group-commit.window-us:1000}") long windowMicros,
+      @Value("${authorizer.group-commit.max-batch-size:256}") int maxBatchSize,
+      @Value("${authorizer.group-commit.lock-stripes:256}") int lockStripes,
+      MeterRegistry meterRegistry) {
+    this.repository = repository;
+    this.passwordVerifier = passwordVerifier;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+    this.maxBatchSize = maxBatchSize;
+    this.leaderLocks = new ReentrantLock[lockStripes];
+    for (int i = 0; i < lockStripes; i++) {
+      leaderLocks[i] = new ReentrantLock();
+    }
+    this.lockTimer =
+        Timer.builder("authorizer.card.lock")
+            .description("Time to read and lock card rows with SELECT ... FOR UPDATE")
+            .tag("operation", "group")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    this.batchSizes =
+        DistributionSummary.builder("authorizer.group-commit.batch.size")
+            .description("Debits applied by one group commit")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+  }
+
+  // Debits commit in their group's transaction, never in the caller's.
+  @Override
+  public boolean joinsCallerTransaction() {
+    return false;
+  }
+
+  @Override
+  public CardDTO execute(TransactionDTO transactionDTO) {
+    PendingDebit debit = new PendingDebit(transactionDTO, new CompletableFuture<>());
+    if (enqueue(debit)) {
+      awaitWindow();
+      lead(transactionDTO.getCardNumber());
+    }
+    try {
+      return debit.result().join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  // Every item is queued before any group is led, so items of one card share a commit with each
+  // other and with concurrent requests. The window is waited once for the whole batch, not once
+  // per card. Never throws: a group whose commit failed reports its items as ERROR, since the
+  // groups before it are already committed.
+  @Override
+  public List<TransactionStatus> executeBatch(List<TransactionDTO> transactions) {
+    List<PendingDebit> debits = new ArrayList<>(transactions.size());
+    Set<String> led = new LinkedHashSet<>();
+    for (TransactionDTO transactionDTO : transactions) {
+      PendingDebit debit = new PendingDebit(transactionDTO, new CompletableFuture<>());
+      debits.add(debit);
+      if (enqueue(debit)) {
+        led.add(transactionDTO.getCardNumber());
+      }
+    }
+    if (!led.isEmpty()) {
+      awaitWindow();
+    }
+    for (String cardNumber : led) {
+      lead(cardNumber);
+    }
+
+    List<TransactionStatus> statuses = new ArrayList<>(transactions.size());
+    for (PendingDebit debit : debits) {
+      try {
+        debit.result().join();
+        statuses.add(TransactionStatus.OK);
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof TransactionException declined) {
+          statuses.add(declined.getStatus());
+        } else {
+          log.warn(
+              "Batch debit of card {} failed",
+              debit.transactionDTO().getCardNumber(),
+              e.getCause());
+          statuses.add(TransactionStatus.ERROR);
+        }
+      }
+    }
+    return statuses;
+  }
+
+  // Returns whether the debit opened a new group, whose caller must lead it.
+  private boolean enqueue(PendingDebit debit) {
+    boolean[] leader = new boolean[1];
+    groups.compute(
+        debit.transactionDTO().getCardNumber(),
+        (number, group) -> {
+          if (group == null) {
+            group = new ArrayList<>();
+            leader[0] = true;
+          }
+          group.add(debit);
+          return group;
+        });
+    return leader[0];
+  }
+
+  // Lets the debits that arrive within the window join the groups about to be led.
+  private void awaitWindow() {
+    if (windowNanos > 0) {
+      LockSupport.parkNanos(windowNanos);
+    }
+  }
+
+  private void lead(String cardNumber) {
+    ReentrantLock lock = leaderLocks[Math.floorMod(cardNumber.hashCode(), leaderLocks.length)];
+    lock.lock();
+    try {
+      List<PendingDebit> group = groups.remove(cardNumber);
+      for (int from = 0; from < group.size(); from += maxBatchSize) {
+        commit(cardNumber, group.subList(from, Math.min(from + maxBatchSize, group.size())));
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void commit(String cardNumber, List<PendingDebit> batch) {
+    TransactionStatus[] statuses = new TransactionStatus[batch.size()];
+    CardDTO[] cards = new CardDTO[batch.size()];
+    try {
+      transactionTemplate.executeWithoutResult(
+          status -> {
+            Optional<Card> locked = lock(cardNumber);
+            boolean debited = false;
+            for (int i = 0; i < batch.size(); i++) {
+              if (locked.isEmpty()) {
+                statuses[i] = TransactionStatus.CARTAO_INEXISTENTE;
+                continue;
+              }
+              Card card = locked.get();
+              statuses[i] = debit(card, batch.get(i).transactionDTO());
+              if (statuses[i] == TransactionStatus.OK) {
+                // Each caller sees the balance right after its own debit.
+                cards[i] = new CardDTO(card);
+                debited = true;
+              }
+            }
+            if (debited) {
+              repository.save(locked.get());
+            }
+          });
+    } catch (RuntimeException e) {
+      for (PendingDebit debit : batch) {
+        debit.result().completeExceptionally(e);
+      }
+      return;
+    }
+
+    batchSizes.record(batch.size());
+    for (int i = 0; i < batch.size(); i++) {
+      CompletableFuture<CardDTO> result = batch.get(i).result();
+      if (statuses[i] == TransactionStatus.OK) {
+        result.complete(cards[i]);
+      } else {
+        result.completeExceptionally(new TransactionException(statuses[i]));
+      }
+    }
+  }
+
+  private Optional<Card> lock(String cardNumber) {
+    CardLockEvent event = new CardLockEvent();
+    event.begin();
+    long start = System.nanoTime();
+    Optional<Card> card = Optional.empty();
+    try {
+      card = repository.findByCardNumberForUpdate(cardNumber);
+      return card;
+    } finally {
+      long elapsed = System.nanoTime() - start;
+      lockTimer.record(elapsed, TimeUnit.NANOSECONDS);
+      ServerTiming.record(ServerTiming.Phase.LOCK, elapsed);
+      event.complete(cardNumber, 1, card.isPresent() ? 1 : 0);
+    }
+  }
+
+  private TransactionStatus debit(Card card, TransactionDTO transactionDTO) {
+    if (!passwordVerifier.matches(
+        card.getCardNumber(), transactionDTO.getPassword(), card.getPassword())) {
+      return TransactionStatus.SENHA_INVALIDA;
+    }
+    Money newBalance = card.getBalance().minus(Money.of(transactionDTO.getValue()));
+    if (newBalance.isNegative()) {
+      return TransactionStatus.SALDO_INSUFICIENTE;
+    }
+    card.setBalance(newBalance);
+    return TransactionStatus.OK;
+  }
+
+  private record PendingDebit(TransactionDTO transactionDTO, CompletableFuture<CardDTO> result) {}
+}
@@ -0,0 +1,222 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.danielmesquita.miniauthorizer.dto.CardDTO;
+import dev.danielmesquita.miniauthorizer.dto.TransactionDTO;
+import dev.danielmesquita.miniauthorizer.entity.Card;
+import dev.danielmesquita.miniauthorizer.entity.IdempotencyRecord;
+import dev.danielmesquita.miniauthorizer.entity.Money;
+import dev.danielmesquita.miniauthorizer.enums.TransactionStatus;
+import dev.danielmesquita.miniauthorizer.exception.IdempotencyKeyException;
+import dev.danielmesquita.miniauthorizer.exception.TransactionException;
+import dev.danielmesquita.miniauthorizer.repository.CardRepository;
+import dev.danielmesquita.miniauthorizer.repository.IdempotencyRecordRepository;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Remembers the outcome of transactions sent with an Idempotency-Key. Recent keys live in a
+ * bounded in-memory index, so a new key costs a map lookup; tb_idempotency_key is only read when
+ * its primary key rejects the insert of a key this instance no longer (or never) saw. Requests
+ * that arrive while the first one with the same key is running wait for its outcome.
+ */
+@Component
+public class IdempotencyStore {
+
+  private static final Logger log = LoggerFactory.getLogger(IdempotencyStore.class);
+
+  public static final int MAX_KEY_LENGTH = 255;
+
+  private static final String INSERT_SQL =
+      "INSERT INTO tb_idempotency_key"
+          + " (idempotency_key, card_number, amount_cents, status, balance_cents, created_at)"
+          + " VALUES (?, ?, ?, ?, ?, ?)";
+
+  private final IdempotencyRecordRepository repository;
+  private final CardRepository cardRepository;
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final Duration retention;
+  private final Cache<String, CompletableFuture<Result>> results;
+
+  private final LongAdder replays = new LongAdder();
+  private final LongAdder storedReplays = new LongAdder();
+
+  public IdempotencyStore(
+      IdempotencyRecordRepository repository,
+      CardRepository cardRepository,
+      JdbcTemplate jdbcTemplate,
+      PlatformTransactionManager transactionManager,
+      @Value("${authorizer.idempotency.max-size:100000}") long maxSize,
+      @Value("${authorizer.idempotency.retention:24h}") Duration retention) {
+    this.repository = repository;
+    this.cardRepository = cardRepository;
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.retention = retention;
+    this.results = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(retention).build();
+  }
+
+  public Result execute(String key, TransactionDTO transactionDTO, TransactionEngine engine) {
+    if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+      throw new IdempotencyKeyException(
+          "Idempotency-Key must have between 1 and " + MAX_KEY_LENGTH + " characters");
+    }
+    long amountCents = Money.of(transactionDTO.getValue()).cents();
+
+    CompletableFuture<Result> pending = new CompletableFuture<>();
+    CompletableFuture<Result> existing = results.asMap().putIfAbsent(key, pending);
+    if (existing != null) {
+      replays.increment();
+      return replay(await(existing), transactionDTO.getCardNumber(), amountCents);
+    }
+
+    try {
+      Result result = executeOnce(key, transactionDTO, amountCents, engine);
+      pending.complete(result);
+      return result;
+    } catch (RuntimeException e) {
+      // Failures that are not decisions (conflicts, database errors) are not remembered.
+      results.asMap().remove(key, pending);
+      pending.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${authorizer.idempotency.purge-interval-ms:3600000}")
+  public void purge() {
+    int purged = repository.deleteCreatedBefore(Instant.now().minus(retention));
+    if (purged > 0) {
+      log.info("Purged {} idempotency keys older than {}", purged, retention);
+    }
+  }
+
+  public long getReplayCount() {
+    return replays.sum();
+  }
+
+  public long getStoredReplayCount() {
+    return storedReplays.sum();
+  }
+
+  public long getSize() {
+    return results.estimatedSize();
+  }
+
+  private Result executeOnce(
+      String key, TransactionDTO transactionDTO, long amountCents, TransactionEngine engine) {
+    String cardNumber = transactionDTO.getCardNumber();
+    Result result;
+    try {
+      if (engine.joinsCallerTransaction()) {
+        // The key is inserted in the debit's transaction, so a duplicate rolls the debit back.
+        return transactionTemplate.execute(
+            status -> {
+              Result approved =
+                  approved(cardNumber, amountCents, engine.execute(transactionDTO));
+              insert(key, approved);
+              return approved;
+            });
+      }
+      result = approved(cardNumber, amountCents, engine.execute(transactionDTO));
+    } catch (TransactionException e) {
+      result = new Result(cardNumber, amountCents, e.getStatus(), null, false);
+    } catch (DuplicateKeyException e) {
+      return stored(key, cardNumber, amountCents);
+    }
+
+    try {
+      insert(key, result);
+      return result;
+    } catch (DuplicateKeyException e) {
+      if (result.status() == TransactionStatus.OK) {
+        log.warn(
+            "Idempotency key was used concurrently by another instance; card {} was debited twice",
+            cardNumber);
+      }
+      return stored(key, cardNumber, amountCents);
+    }
+  }
+
+  private void insert(String key, Result result) {
+    Long balanceCents =
+        result.card() == null ? null : Money.of(result.card().getBalance()).cents();
+    jdbcTemplate.update(
+        INSERT_SQL,
+        key,
+        result.cardNumber(),
+        result.amountCents(),
+        result.status().name(),
+        balanceCents,
+        Timestamp.from(Instant.now()));
+  }
+
+  private Result stored(String key, String cardNumber, long amountCents) {
+    storedReplays.increment();
+    IdempotencyRecord record =
+        repository
+            .findById(key)
+            .orElseThrow(() -> new IllegalStateException("Idempotency key vanished: " + key));
+    CardDTO card = null;
+    if (record.getStatus() == TransactionStatus.OK) {
+      String password =
+          cardRepository
+              .findByCardNumber(record.getCardNumber())
+              .map(Card::getPassword)
+              .orElse(null);
+      card =
+          new CardDTO(
+              record.getCardNumber(),
+              password,
+              Money.ofCents(record.getBalanceCents()).toBigDecimal());
+    }
+    Result result =
+        new Result(
+            record.getCardNumber(), record.getAmountCents(), record.getStatus(), card, true);
+    return replay(result, cardNumber, amountCents);
+  }
+
+  private static Result approved(String cardNumber, long amountCents, CardDTO card) {
+    return new Result(cardNumber, amountCents, TransactionStatus.OK, card, false);
+  }
+
+  private static Result replay(Result result, String cardNumber, long amountCents) {
+    if (!result.cardNumber().equals(cardNumber) || result.amountCents() != amountCents) {
+      throw new IdempotencyKeyException("Idempotency-Key was already used for another transaction");
+    }
+    return new Result(result.cardNumber(), amountCents, result.status(), result.card(), true);
+  }
+
+  private static Result await(CompletableFuture<Result> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  /** Outcome of a transaction; {@code card} is only set when {@code status} is OK. */
+  public record Result(
+      String cardNumber,
+      long amountCents,
+      TransactionStatus status,
+      CardDTO card,
+      boolean replayed) {}
+}
@@ -0,0 +1,382 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import dev.danielmesquita.miniauthorizer.dto.CardDTO;
+import dev.danielmesquita.miniauthorizer.dto.TransactionDTO;
+import dev.danielmesquita.miniauthorizer.entity.Card;
+import dev.danielmesquita.miniauthorizer.entity.Money;
+import dev.danielmesquita.miniauthorizer.enums.TransactionStatus;
+import dev.danielmesquita.miniauthorizer.exception.TransactionException;
+import dev.danielmesquita.miniauthorizer.repository.CardRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keeps card balances in memory and authorizes debits under per-card striped locks. Debits are
+ * persisted to tb_card write-behind by {@link #flush()}, so this mode assumes a single node owns
+ * the balances of the cards it serves. With a {@link WriteAheadLog} every debit is logged and on
+ * disk before it is acknowledged, each flush checkpoints the log, and startup rebuilds the
+ * balances logged after the last checkpoint. With a {@link CardSnapshot} startup also loads every
+ * card of the last snapshot, so the first requests do not miss.
+ */
+@Component
+@ConditionalOnProperty(name = "authorizer.transaction.mode", havingValue = "in-memory")
+public class InMemoryTransactionEngine implements TransactionEngine {
+
+  private static final Logger log = LoggerFactory.getLogger(InMemoryTransactionEngine.class);
+
+  private final CardRepository repository;
+  private final CardPasswordVerifier passwordVerifier;
+  private final TransactionTemplate transactionTemplate;
+
+  private final Map<String, CardState> cards = new ConcurrentHashMap<>();
+  private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+  private final ReentrantLock[] locks;
+  private final WriteAheadLog writeAheadLog;
+  private final CardSnapshot cardSnapshot;
+
+  // Guards flush, which also runs on shutdown; writes tb_card and then checkpoints the log.
+  private final ReentrantLock flushLock = new ReentrantLock();
+  private long checkpointedSequence = -1;
+
+  public InMemoryTransactionEngine(
+      CardRepository repository,
+      CardPasswordVerifier passwordVerifier,
+      PlatformTransactionManager transactionManager,
+      @Value("${authorizer.in-memory.lock-stripes:256}") int lockStripes,
+      Optional<WriteAheadLog> writeAheadLog,
+      Optional<CardSnapshot> cardSnapshot) {
+    this.repository = repository;
+    this.passwordVerifier = passwordVerifier;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.locks = new ReentrantLock[lockStripes];
+    for (int i = 0; i < lockStripes; i++) {
+      locks[i] = new ReentrantLock();
+    }
+    this.writeAheadLog = writeAheadLog.orElse(null);
+    this.cardSnapshot = cardSnapshot.orElse(null);
+  }
+
+  // Starts from the snapshot, then applies the balances logged after the last checkpoint. Those
+  // are newer than tb_card and are written back by the first flush.
+  @PostConstruct
+  void recover() {
+    if (cardSnapshot != null) {
+      for (CardSnapshot.Entry entry : cardSnapshot.load()) {
+        cards.put(
+            entry.cardNumber(),
+            new CardState(entry.password(), entry.balanceCents(), entry.version()));
+      }
+    }
+    if (writeAheadLog == null || writeAheadLog.recoveredBalances().isEmpty()) {
+      return;
+    }
+    Map<String, Long> recovered = writeAheadLog.recoveredBalances();
+    for (Map.Entry<String, Long> entry : recovered.entrySet()) {
+      load(entry.getKey())
+          .ifPresent(
+              state -> {
+                state.set(entry.getValue());
+                dirty.add(entry.getKey());
+              });
+    }
+    log.info("Recovered {} card balances from the write-ahead log", recovered.size());
+    flush();
+  }
+
+  @Override
+  public CardDTO execute(TransactionDTO transactionDTO) {
+    String cardNumber = transactionDTO.getCardNumber();
+    CardState state =
+        load(cardNumber)
+            .orElseThrow(() -> new TransactionException(TransactionStatus.CARTAO_INEXISTENTE));
+
+    if (!passwordVerifier.matches(cardNumber, transactionDTO.getPassword(), state.password)) {
+      throw new TransactionException(TransactionStatus.SENHA_INVALIDA);
+    }
+
+    long value = Money.of(transactionDTO.getValue()).cents();
+    long newBalance;
+    long logged = 0;
+    ReentrantLock lock = lockFor(cardNumber);
+    lock.lock();
+    try {
+      // Checked against the logged balance, so debits waiting for their fsync are counted.
+      newBalance = state.loggedCents - value;
+      if (newBalance < 0) {
+        throw new TransactionException(TransactionStatus.SALDO_INSUFICIENTE);
+      }
+      // Marked before logging, so a checkpoint that covers the record also flushes the card.
+      dirty.add(cardNumber);
+      if (writeAheadLog == null) {
+        state.set(newBalance);
+      } else {
+        logged = writeAheadLog.append(WriteAheadLog.RecordType.DEBIT, cardNumber, newBalance);
+        state.loggedCents = newBalance;
+        state.loggedSequence = logged;
+      }
+    } finally {
+      lock.unlock();
+    }
+    if (writeAheadLog != null) {
+      // Throws if the record never reaches the disk; the debit is then never published.
+      writeAheadLog.awaitDurable(logged);
+      publish(state, lockFor(cardNumber), logged, newBalance);
+    }
+
+    return new CardDTO(cardNumber, state.password, Money.ofCents(newBalance).toBigDecimal());
+  }
+
+  // Debits are applied in memory and cannot be rolled back with a database transaction.
+  @Override
+  public boolean joinsCallerTransaction() {
+    return false;
+  }
+
+  @Override
+  public Optional<Money> findBalance(String cardNumber) {
+    CardState state = cards.get(cardNumber);
+    if (state == null) {
+      return Optional.empty();
+    }
+    ReentrantLock lock = lockFor(cardNumber);
+    lock.lock();
+    try {
+      return Optional.of(Money.ofCents(state.balanceCents));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void cardCreated(Card card) {
+    cardsCreated(List.of(card));
+  }
+
+  // New cards are logged once their rows are committed, so recovery can rebuild them like debits.
+  // The records of one insert share a single wait for the fsync.
+  @Override
+  public void cardsCreated(List<Card> created) {
+    if (writeAheadLog == null || created.isEmpty()) {
+      return;
+    }
+    Runnable append =
+        () -> {
+          long logged = 0;
+          for (Card card : created) {
+            String cardNumber = card.getCardNumber();
+            ReentrantLock lock = lockFor(cardNumber);
+            lock.lock();
+            try {
+              logged =
+                  writeAheadLog.append(
+                      WriteAheadLog.RecordType.CREATE, cardNumber, card.getBalance().cents());
+              cards.putIfAbsent(
+                  cardNumber,
+                  new CardState(card.getPassword(), card.getBalance().cents(), card.getVersion()));
+            } finally {
+              lock.unlock();
+            }
+          }
+          writeAheadLog.awaitDurable(logged);
+        };
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      append.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            append.run();
+          }
+        });
+  }
+
+  @Scheduled(fixedDelayString = "${authorizer.in-memory.flush-interval-ms:100}")
+  public void flush() {
+    flushLock.lock();
+    try {
+      // Taken first: every card logged before the mark is dirty by now, or already flushed.
+      WriteAheadLog.Mark mark = writeAheadLog == null ? null : writeAheadLog.mark();
+      if (!dirty.isEmpty() && !writeBack()) {
+        return;
+      }
+      if (mark != null && mark.sequence() != checkpointedSequence) {
+        writeAheadLog.checkpoint(mark);
+        checkpointedSequence = mark.sequence();
+      }
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  private boolean writeBack() {
+    List<String> pending = new ArrayList<>(dirty);
+    // Removing before reading the balance means a debit racing with the flush re-marks the card.
+    pending.forEach(dirty::remove);
+    // Publishes the debits still waiting for their fsync, so the checkpoint cannot pass a logged
+    // debit whose balance was not written. Debits that can no longer become durable were never
+    // acknowledged and stay out of tb_card; the log is then left for recovery to replay.
+    boolean settled = true;
+    for (String number : pending) {
+      settled &= settle(number);
+    }
+    try {
+      transactionTemplate.executeWithoutResult(
+          status -> pending.forEach(number -> repository.updateBalance(number, balanceOf(number))));
+      // Each update bumped the row's version; tracked so snapshots can tell unchanged rows apart.
+      pending.forEach(number -> cards.get(number).version++);
+      return settled;
+    } catch (RuntimeException e) {
+      dirty.addAll(pending);
+      log.warn("Write-behind of {} card balances failed, will retry", pending.size(), e);
+      return false;
+    }
+  }
+
+  // Cards not flushed yet are written with an unknown version, so the next startup re-reads them.
+  @Scheduled(
+      initialDelayString = "${authorizer.snapshot.interval-ms:60000}",
+      fixedDelayString = "${authorizer.snapshot.interval-ms:60000}")
+  public void snapshot() {
+    if (cardSnapshot == null) {
+      return;
+    }
+    List<CardSnapshot.Entry> entries = new ArrayList<>(cards.size());
+    flushLock.lock();
+    try {
+      for (Map.Entry<String, CardState> card : cards.entrySet()) {
+        String cardNumber = card.getKey();
+        CardState state = card.getValue();
+        ReentrantLock lock = lockFor(cardNumber);
+        lock.lock();
+        try {
+          long version = dirty.contains(cardNumber) ? CardSnapshot.UNFLUSHED : state.version;
+          entries.add(
+              new CardSnapshot.Entry(cardNumber, state.password, state.balanceCents, version));
+        } finally {
+          lock.unlock();
+        }
+      }
+    } finally {
+      flushLock.unlock();
+    }
+    cardSnapshot.write(entries);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    flush();
+    snapshot();
+  }
+
+  private Optional<CardState> load(String cardNumber) {
+    CardState state = cards.get(cardNumber);
+    if (state != null) {
+      return Optional.of(state);
+    }
+    // Misses are not cached: the card may be created after an unknown-card decline.
+    Optional<Card> card = repository.findByCardNumber(cardNumber);
+    return card.map(
+        entity ->
+            cards.computeIfAbsent(
+                cardNumber,
+                number ->
+                    new CardState(
+                        entity.getPassword(), entity.getBalance().cents(), entity.getVersion())));
+  }
+
+  // Makes a debit visible once its record is durable. Debits of a card can finish their fsync
+  // wait out of order, so only a later record replaces the published balance.
+  private static void publish(CardState state, ReentrantLock lock, long sequence, long cents) {
+    lock.lock();
+    try {
+      if (sequence > state.publishedSequence) {
+        state.balanceCents = cents;
+        state.publishedSequence = sequence;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // Returns false if the card's last logged debit cannot be made durable.
+  private boolean settle(String cardNumber) {
+    CardState state = cards.get(cardNumber);
+    ReentrantLock lock = lockFor(cardNumber);
+    long sequence;
+    long cents;
+    lock.lock();
+    try {
+      if (state.loggedSequence <= state.publishedSequence) {
+        return true;
+      }
+      sequence = state.loggedSequence;
+      cents = state.loggedCents;
+    } finally {
+      lock.unlock();
+    }
+    try {
+      writeAheadLog.awaitDurable(sequence);
+    } catch (IllegalStateException e) {
+      return false;
+    }
+    publish(state, lock, sequence, cents);
+    return true;
+  }
+
+  private long balanceOf(String cardNumber) {
+    ReentrantLock lock = lockFor(cardNumber);
+    lock.lock();
+    try {
+      return cards.get(cardNumber).balanceCents;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private ReentrantLock lockFor(String cardNumber) {
+    return locks[Math.floorMod(cardNumber.hashCode(), locks.length)];
+  }
+
+  // Guarded by the card's stripe lock. With a write-ahead log, balanceCents is the balance after
+  // the last durable debit, which reads and flushes see; loggedCents also counts the debits
+  // still waiting for their fsync.
+  private static final class CardState {
+    private final String password;
+    private long balanceCents;
+    private long loggedCents;
+    private long loggedSequence;
+    private long publishedSequence;
+    // Version of the tb_card row; changed only under flushLock.
+    private long version;
+
+    private CardState(String password, long balanceCents, Long version) {
+      this.password = password;
+      set(balanceCents);
+      this.version = version == null ? 0 : version;
+    }
+
+    private void set(long cents) {
+      balanceCents = cents;
+      loggedCents = cents;
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import dev.danielmesquita.miniauthorizer.dto.CardDTO;
+import dev.danielmesquita.miniauthorizer.dto.TransactionDTO;
+import dev.danielmesquita.miniauthorizer.entity.Card;
+import dev.danielmesquita.miniauthorizer.entity.Money;
+import dev.danielmesquita.miniauthorizer.enums.TransactionStatus;
+import dev.danielmesquita.miniauthorizer.exception.ConcurrentTransactionException;
+import dev.danielmesquita.miniauthorizer.exception.TransactionException;
+import dev.danielmesquita.miniauthorizer.repository.CardRepository;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Reads the card without locking and writes the new balance with a compare-and-set on {@link
+ * Card#getVersion()}. Version conflicts are retried with exponential backoff and full jitter.
+ */
+@Component
+@ConditionalOnProperty(name = "authorizer.transaction.mode", havingValue = "optimistic")
+public class OptimisticTransactionEngine implements TransactionEngine {
+
+  private final CardRepository repository;
+  private final CardPasswordVerifier passwordVerifier;
+  private final TransactionTemplate transactionTemplate;
+  private final int maxAttempts;
+  private final long backoffMillis;
+  private final long maxBackoffMillis;
+
+  private final LongAdder retries = new LongAdder();
+  private final LongAdder exhausted = new LongAdder();
+
+  public OptimisticTransactionEngine(
+      CardRepository repository,
+      CardPasswordVerifier passwordVerifier,
+      PlatformTransactionManager transactionManager,
+      @Value("${authorizer.optimistic.max-attempts:5}") int maxAttempts,
+      @Value("${authorizer.optimistic.backoff-ms:2}") long backoffMillis,
+      @Value("${authorizer.optimistic.max-backoff-ms:50}") long maxBackoffMillis) {
+    this.repository = repository;
+    this.passwordVerifier = passwordVerifier;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.maxAttempts = maxAttempts;
+    this.backoffMillis = backoffMillis;
+    this.maxBackoffMillis = maxBackoffMillis;
+  }
+
+  // Retries must re-read committed rows, which an enclosing transaction would hide.
+  @Override
+  public boolean joinsCallerTransaction() {
+    return false;
+  }
+
+  @Override
+  public CardDTO execute(TransactionDTO transactionDTO) {
+    String cardNumber = transactionDTO.getCardNumber();
+    Money value = Money.of(transactionDTO.getValue());
+    String verifiedPassword = null;
+
+    for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+      Card card =
+          repository
+              .findByCardNumber(cardNumber)
+              .orElseThrow(() -> new TransactionException(TransactionStatus.CARTAO_INEXISTENTE));
+
+      // Only hash again if the stored password changed between attempts.
+      if (!card.getPassword().equals(verifiedPassword)) {
+        if (!passwordVerifier.matches(cardNumber, transactionDTO.getPassword(), card.getPassword())) {
+          throw new TransactionException(TransactionStatus.SENHA_INVALIDA);
+        }
+        verifiedPassword = card.getPassword();
+      }
+
+      Money newBalance = card.getBalance().minus(value);
+      if (newBalance.isNegative()) {
+        throw new TransactionException(TransactionStatus.SALDO_INSUFICIENTE);
+      }
+
+      Integer updated =
+          transactionTemplate.execute(
+              status ->
+                  repository.compareAndSetBalance(
+                      cardNumber, newBalance.cents(), card.getVersion()));
+      if (updated != null && updated == 1) {
+        return new CardDTO(cardNumber, card.getPassword(), newBalance.toBigDecimal());
+      }
+
+      if (attempt < maxAttempts) {
+        retries.increment();
+        backoff(attempt);
+      }
+    }
+
+    exhausted.increment();
+    throw new ConcurrentTransactionException("Card is being updated concurrently, try again");
+  }
+
+  public long getRetryCount() {
+    return retries.sum();
+  }
+
+  public long getExhaustedCount() {
+    return exhausted.sum();
+  }
+
+  private void backoff(int attempt) {
+    long ceiling = Math.min(maxBackoffMillis, backoffMillis << Math.min(attempt - 1, 20));
+    long ceilingMicros = TimeUnit.MILLISECONDS.toMicros(ceiling);
+    try {
+      TimeUnit.MICROSECONDS.sleep(ThreadLocalRandom.current().nextLong(ceilingMicros + 1));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ConcurrentTransactionException("Interrupted while retrying transaction");
+    }
+  }
+}
@@ -0,0 +1,205 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import dev.danielmesquita.miniauthorizer.config.ServerTiming;
+import dev.danielmesquita.miniauthorizer.dto.CardDTO;
+import dev.danielmesquita.miniauthorizer.dto.TransactionDTO;
+import dev.danielmesquita.miniauthorizer.entity.Card;
+import dev.danielmesquita.miniauthorizer.entity.Money;
+import dev.danielmesquita.miniauthorizer.enums.TransactionStatus;
+import dev.danielmesquita.miniauthorizer.exception.TransactionException;
+import dev.danielmesquita.miniauthorizer.jfr.CardLockEvent;
+import dev.danielmesquita.miniauthorizer.repository.CardRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Component
+@ConditionalOnProperty(
+    name = "authorizer.transaction.mode",
+    havingValue = "pessimistic",
+    matchIfMissing = true)
+public class PessimisticTransactionEngine implements TransactionEngine {
+
+  private static final Logger log = LoggerFactory.getLogger(PessimisticTransactionEngine.class);
+
+  private final CardRepository repository;
+  private final CardPasswordVerifier passwordVerifier;
+  private final TransactionTemplate transactionTemplate;
+  private final int batchChunkSize;
+  private final Timer lockTimer;
+  private final Timer batchLockTimer;
+
+  public PessimisticTransactionEngine(
+      CardRepository repository,
+      CardPasswordVerifier passwordVerifier,
+      PlatformTransactionManager transactionManager,
+      @Value("${authorizer.batch.chunk-size:500}") int batchChunkSize,
+      MeterRegistry meterRegistry) {
+    this.repository = repository;
+    this.passwordVerifier = passwordVerifier;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.batchChunkSize = batchChunkSize;
+    this.lockTimer = lockTimer(meterRegistry, "single");
+    this.batchLockTimer = lockTimer(meterRegistry, "batch");
+  }
+
+  @Override
+  @Transactional
+  public CardDTO execute(TransactionDTO transactionDTO) {
+    String cardNumber = transactionDTO.getCardNumber();
+    Card card =
+        lock(cardNumber)
+            .orElseThrow(() -> new TransactionException(TransactionStatus.CARTAO_INEXISTENTE));
+
+    TransactionStatus status = debit(card, transactionDTO);
+    if (status != TransactionStatus.OK) {
+      throw new TransactionException(status);
+    }
+    repository.save(card);
+
+    return new CardDTO(card);
+  }
+
+  /**
+   * Groups the batch by card and authorizes it in chunks of about {@code batchChunkSize} items.
+   * Each chunk locks its cards with one query in card number order, so concurrent batches cannot
+   * deadlock, and commits once. A chunk that fails is rolled back and its items reported as ERROR;
+   * the chunks committed before and after it keep their statuses.
+   */
+  @Override
+  public List<TransactionStatus> executeBatch(List<TransactionDTO> transactions) {
+    SortedMap<String, List<Integer>> itemsByCard = new TreeMap<>();
+    for (int i = 0; i < transactions.size(); i++) {
+      itemsByCard
+          .computeIfAbsent(transactions.get(i).getCardNumber(), number -> new ArrayList<>())
+          .add(i);
+    }
+
+    TransactionStatus[] statuses = new TransactionStatus[transactions.size()];
+    List<String> chunk = new ArrayList<>();
+    int chunkItems = 0;
+    for (Map.Entry<String, List<Integer>> entry : itemsByCard.entrySet()) {
+      chunk.add(entry.getKey());
+      chunkItems += entry.getValue().size();
+      if (chunkItems >= batchChunkSize) {
+        executeChunk(chunk, itemsByCard, transactions, statuses);
+        chunk = new ArrayList<>();
+        chunkItems = 0;
+      }
+    }
+    if (!chunk.isEmpty()) {
+      executeChunk(chunk, itemsByCard, transactions, statuses);
+    }
+    return Arrays.asList(statuses);
+  }
+
+  private void executeChunk(
+      List<String> cardNumbers,
+      Map<String, List<Integer>> itemsByCard,
+      List<TransactionDTO> transactions,
+      TransactionStatus[] statuses) {
+    try {
+      transactionTemplate.executeWithoutResult(
+          status -> {
+            Map<String, Card> cards = new HashMap<>();
+            List<Card> locked = lockAll(cardNumbers);
+            for (Card card : locked) {
+              cards.put(card.getCardNumber(), card);
+            }
+            // Items of a card are applied in request order; the managed cards are flushed
+            // on commit.
+            for (String cardNumber : cardNumbers) {
+              Card card = cards.get(cardNumber);
+              for (int index : itemsByCard.get(cardNumber)) {
+                statuses[index] =
+                    card == null
+                        ? TransactionStatus.CARTAO_INEXISTENTE
+                        : debit(card, transactions.get(index));
+              }
+            }
+          });
+    } catch (RuntimeException e) {
+      log.warn("Batch chunk of {} cards failed and was rolled back", cardNumbers.size(), e);
+      for (String cardNumber : cardNumbers) {
+        for (int index : itemsByCard.get(cardNumber)) {
+          statuses[index] = TransactionStatus.ERROR;
+        }
+      }
+    }
+  }
+
+  private Optional<Card> lock(String cardNumber) {
+    CardLockEvent event = new CardLockEvent();
+    event.begin();
+    long start = System.nanoTime();
+    Optional<Card> card = Optional.empty();
+    try {
+      card = repository.findByCardNumberForUpdate(cardNumber);
+      return card;
+    } finally {
+      recordLock(lockTimer, start);
+      event.complete(cardNumber, 1, card.isPresent() ? 1 : 0);
+    }
+  }
+
+  private List<Card> lockAll(List<String> cardNumbers) {
+    CardLockEvent event = new CardLockEvent();
+    event.begin();
+    long start = System.nanoTime();
+    List<Card> cards = List.of();
+    try {
+      cards = repository.findAllByCardNumberInForUpdate(cardNumbers);
+      return cards;
+    } finally {
+      recordLock(batchLockTimer, start);
+      event.complete(null, cardNumbers.size(), cards.size());
+    }
+  }
+
+  private static void recordLock(Timer timer, long start) {
+    long elapsed = System.nanoTime() - start;
+    timer.record(elapsed, TimeUnit.NANOSECONDS);
+    ServerTiming.record(ServerTiming.Phase.LOCK, elapsed);
+  }
+
+  // Includes the query itself, which is negligible next to waiting for the row lock under load.
+  private static Timer lockTimer(MeterRegistry meterRegistry, String operation) {
+    return Timer.builder("authorizer.card.lock")
+        .description("Time to read and lock card rows with SELECT ... FOR UPDATE")
+        .tag("operation", operation)
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+  }
+
+  private TransactionStatus debit(Card card, TransactionDTO transactionDTO) {
+    String cardNumber = card.getCardNumber();
+    if (!passwordVerifier.matches(cardNumber, transactionDTO.getPassword(), card.getPassword())) {
+      return TransactionStatus.SENHA_INVALIDA;
+    }
+
+    Money value = Money.of(transactionDTO.getValue());
+    Money newBalance = card.getBalance().minus(value);
+    if (newBalance.isNegative()) {
+      return TransactionStatus.SALDO_INSUFICIENTE;
+    }
+
+    card.setBalance(newBalance);
+    return TransactionStatus.OK;
+  }
+}
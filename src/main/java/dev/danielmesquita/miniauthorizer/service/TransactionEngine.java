@@ -0,0 +1,60 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import dev.danielmesquita.miniauthorizer.dto.CardDTO;
+import dev.danielmesquita.miniauthorizer.dto.TransactionDTO;
+import dev.danielmesquita.miniauthorizer.entity.Card;
+import dev.danielmesquita.miniauthorizer.entity.Money;
+import dev.danielmesquita.miniauthorizer.enums.TransactionStatus;
+import dev.danielmesquita.miniauthorizer.exception.TransactionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Strategy used by {@link CardService} to authorize a debit. Implementations are selected with
+ * the {@code authorizer.transaction.mode} property and must report declines by throwing {@link
+ * dev.danielmesquita.miniauthorizer.exception.TransactionException}.
+ */
+public interface TransactionEngine {
+
+  CardDTO execute(TransactionDTO transactionDTO);
+
+  // Returns one status per transaction, in request order, and never throws: an item that fails
+  // without a decision is reported as ERROR so the items already committed are still reported.
+  // Engines may override this to share locks and commits across items.
+  default List<TransactionStatus> executeBatch(List<TransactionDTO> transactions) {
+    List<TransactionStatus> statuses = new ArrayList<>(transactions.size());
+    for (TransactionDTO transactionDTO : transactions) {
+      try {
+        execute(transactionDTO);
+        statuses.add(TransactionStatus.OK);
+      } catch (TransactionException e) {
+        statuses.add(e.getStatus());
+      } catch (RuntimeException e) {
+        LoggerFactory.getLogger(TransactionEngine.class)
+            .warn("Batch item for card {} failed", transactionDTO.getCardNumber(), e);
+        statuses.add(TransactionStatus.ERROR);
+      }
+    }
+    return statuses;
+  }
+
+  // Whether execute can join a transaction started by the caller and be rolled back with it.
+  default boolean joinsCallerTransaction() {
+    return true;
+  }
+
+  // Called by CardService.createCard while its transaction is still open.
+  default void cardCreated(Card card) {}
+
+  // Called by CardProvisioner for the cards of one insert, still inside its transaction.
+  default void cardsCreated(List<Card> cards) {
+    cards.forEach(this::cardCreated);
+  }
+
+  // Engines that own balances outside tb_card return them here; empty means "read the database".
+  default Optional<Money> findBalance(String cardNumber) {
+    return Optional.empty();
+  }
+}
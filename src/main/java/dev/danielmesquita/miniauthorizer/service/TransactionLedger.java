@@ -0,0 +1,164 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import dev.danielmesquita.miniauthorizer.entity.LedgerEntry;
+import dev.danielmesquita.miniauthorizer.entity.Money;
+import dev.danielmesquita.miniauthorizer.enums.TransactionStatus;
+import jakarta.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Appends every authorization decision to tb_transaction. {@link #record} only enqueues; {@link
+ * #flush()} drains the queue in JDBC batch inserts. When the queue is full the caller flushes
+ * before enqueueing, so a slow database slows authorizations down instead of losing entries. A
+ * batch the database refuses outright is written one entry at a time and the offending entries are
+ * dropped, so they cannot block the queue.
+ */
+@Component
+public class TransactionLedger {
+
+  private static final Logger log = LoggerFactory.getLogger(TransactionLedger.class);
+
+  private static final String INSERT_SQL =
+      "INSERT INTO tb_transaction (card_number, amount_cents, status, created_at)"
+          + " VALUES (?, ?, ?, ?)";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final BlockingQueue<LedgerEntry> queue;
+  private final int batchSize;
+
+  // Entries of a failed insert, retried before anything newer. Guarded by flushLock, which is not
+  // a monitor so a virtual thread waiting on the insert does not pin its carrier.
+  private final ReentrantLock flushLock = new ReentrantLock();
+  private final List<LedgerEntry> unwritten = new ArrayList<>();
+
+  private final LongAdder written = new LongAdder();
+  private final LongAdder callerFlushes = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+
+  public TransactionLedger(
+      JdbcTemplate jdbcTemplate,
+      @Value("${authorizer.ledger.queue-capacity:10000}") int queueCapacity,
+      @Value("${authorizer.ledger.batch-size:500}") int batchSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    this.batchSize = batchSize;
+  }
+
+  public void record(String cardNumber, Money amount, TransactionStatus status) {
+    LedgerEntry entry = new LedgerEntry(cardNumber, amount, status, Instant.now());
+    if (queue.offer(entry)) {
+      return;
+    }
+    callerFlushes.increment();
+    flush();
+    try {
+      queue.put(entry);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      log.error("Interrupted while recording {} for card {}", status, cardNumber);
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${authorizer.ledger.flush-interval-ms:50}")
+  public void flush() {
+    flushLock.lock();
+    try {
+      if (unwritten.isEmpty() && queue.drainTo(unwritten, batchSize) == 0) {
+        return;
+      }
+      do {
+        try {
+          insert(unwritten);
+          written.add(unwritten.size());
+          unwritten.clear();
+        } catch (DataIntegrityViolationException e) {
+          // Retrying would fail the same way and hold back every later entry, so find the entries
+          // the database refuses and drop them.
+          log.warn("Ledger batch of {} entries refused, writing one by one", unwritten.size(), e);
+          if (!insertOneByOne()) {
+            return;
+          }
+        } catch (RuntimeException e) {
+          log.warn("Writing {} ledger entries failed, will retry", unwritten.size(), e);
+          return;
+        }
+      } while (queue.drainTo(unwritten, batchSize) > 0);
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    flush();
+  }
+
+  public long getWrittenCount() {
+    return written.sum();
+  }
+
+  public long getRejectedCount() {
+    return rejected.sum();
+  }
+
+  public long getCallerFlushCount() {
+    return callerFlushes.sum();
+  }
+
+  public int getQueueSize() {
+    return queue.size();
+  }
+
+  // Returns false, keeping the entries not yet written, when a failure is not the entry's fault.
+  private boolean insertOneByOne() {
+    Iterator<LedgerEntry> entries = unwritten.iterator();
+    while (entries.hasNext()) {
+      LedgerEntry entry = entries.next();
+      try {
+        insert(List.of(entry));
+        written.increment();
+      } catch (DataIntegrityViolationException e) {
+        rejected.increment();
+        log.error(
+            "Dropping ledger entry {} of {} cents for card {}: {}",
+            entry.getStatus(),
+            entry.getAmount().cents(),
+            entry.getCardNumber(),
+            e.getMostSpecificCause().getMessage());
+      } catch (RuntimeException e) {
+        log.warn("Writing {} ledger entries failed, will retry", unwritten.size(), e);
+        return false;
+      }
+      entries.remove();
+    }
+    return true;
+  }
+
+  private void insert(List<LedgerEntry> entries) {
+    jdbcTemplate.batchUpdate(
+        INSERT_SQL,
+        entries,
+        entries.size(),
+        (statement, entry) -> {
+          statement.setString(1, entry.getCardNumber());
+          statement.setLong(2, entry.getAmount().cents());
+          statement.setString(3, entry.getStatus().name());
+          statement.setTimestamp(4, Timestamp.from(entry.getCreatedAt()));
+        });
+  }
+}
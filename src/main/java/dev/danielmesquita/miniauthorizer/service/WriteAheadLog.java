@@ -0,0 +1,358 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Append-only log of in-memory balance changes in a memory-mapped ring file. Records carry the
+ * card's new balance rather than the debited amount, so replaying a record twice is harmless.
+ *
+ * <p>The header keeps the checkpoint: the position up to which tb_card holds every logged
+ * balance. Records between the checkpoint and the write position are live and are never
+ * overwritten; an append that would reach the checkpoint fails. Each pass over the file has an
+ * epoch, written into its records, so recovery stops at the first record left over from an older
+ * pass. {@link #awaitDurable} returns once a record is on disk; concurrent callers share one fsync.
+ */
+@Component
+@ConditionalOnProperty(name = "authorizer.wal.enabled", havingValue = "true")
+public class WriteAheadLog {
+
+  public enum RecordType {
+    CREATE,
+    DEBIT
+  }
+
+  public record Mark(int offset, int epoch, long sequence) {}
+
+  private static final Logger log = LoggerFactory.getLogger(WriteAheadLog.class);
+
+  private static final int MAGIC = 0x57414c31;
+  // magic, checkpoint offset, checkpoint epoch
+  private static final int HEADER_SIZE = 12;
+  // payload length, epoch, CRC-32C of the payload
+  private static final int RECORD_HEADER_SIZE = 12;
+  private static final int WRAP = -1;
+
+  private final MappedByteBuffer buffer;
+  private final int capacity;
+  private final long fsyncIntervalNanos;
+
+  // Guarded by appendLock, which is not a monitor so virtual threads do not pin their carrier.
+  private final ReentrantLock appendLock = new ReentrantLock();
+  private int offset;
+  private int epoch;
+  private int checkpointOffset;
+  private int checkpointEpoch;
+  // Bytes appended since startup, including skipped file tails; only ever grows.
+  private long sequence;
+
+  private final ReentrantLock syncLock = new ReentrantLock();
+  private final Condition synced = syncLock.newCondition();
+  private volatile long durableSequence;
+  // Set when the sync thread's fsync fails. Its pages may be lost and a retry could report them
+  // durable, so the log refuses appends and waits until restarted.
+  private volatile RuntimeException syncFailure;
+  private final Thread syncer;
+  private volatile boolean closed;
+
+  private final Map<String, Long> recovered;
+  private final LongAdder appends = new LongAdder();
+  private final LongAdder fsyncs = new LongAdder();
+
+  public WriteAheadLog(
+      @Value("${authorizer.wal.path:data/authorizer.wal}") Path path,
+      @Value("${authorizer.wal.size-mb:64}") int sizeMb,
+      @Value("${authorizer.wal.fsync-interval-ms:2}") long fsyncIntervalMillis) {
+    this.capacity = sizeMb * 1024 * 1024;
+    this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMillis);
+    try {
+      if (path.getParent() != null) {
+        Files.createDirectories(path.getParent());
+      }
+      try (FileChannel channel =
+          FileChannel.open(
+              path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        if (channel.size() > 0 && channel.size() != capacity) {
+          throw new IllegalStateException(
+              "Write-ahead log " + path + " has " + channel.size() + " bytes, expected " + capacity);
+        }
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot open write-ahead log " + path, e);
+    }
+
+    if (buffer.getInt(0) != MAGIC) {
+      buffer.putInt(0, MAGIC);
+      writeCheckpoint(HEADER_SIZE, 1);
+      buffer.force();
+    }
+    this.checkpointOffset = buffer.getInt(4);
+    this.checkpointEpoch = buffer.getInt(8);
+    this.recovered = Collections.unmodifiableMap(scan());
+
+    if (fsyncIntervalNanos > 0) {
+      this.syncer = Thread.ofPlatform().name("wal-sync").daemon().start(this::syncLoop);
+    } else {
+      this.syncer = null;
+    }
+  }
+
+  /** Latest balance of every card logged after the checkpoint, in log order. */
+  public Map<String, Long> recoveredBalances() {
+    return recovered;
+  }
+
+  // Returns the sequence to pass to awaitDurable. Callers that log the same card must append in
+  // the order they changed its balance.
+  public long append(RecordType type, String cardNumber, long balanceCents) {
+    byte[] number = cardNumber.getBytes(StandardCharsets.UTF_8);
+    int payloadSize = 1 + 8 + number.length;
+    int size = RECORD_HEADER_SIZE + payloadSize;
+    appendLock.lock();
+    try {
+      failIfSyncFailed();
+      if (!reserve(size)) {
+        throw new IllegalStateException("Write-ahead log is full; checkpoints are not keeping up");
+      }
+      CRC32C crc = new CRC32C();
+      int payload = offset + RECORD_HEADER_SIZE;
+      buffer.put(payload, (byte) type.ordinal());
+      buffer.putLong(payload + 1, balanceCents);
+      buffer.put(payload + 9, number);
+      crc.update(buffer.slice(payload, payloadSize));
+      buffer.putInt(offset + 4, epoch);
+      buffer.putInt(offset + 8, (int) crc.getValue());
+      // The length goes last: a record whose length is set is complete.
+      buffer.putInt(offset, payloadSize);
+      offset += size;
+      sequence += size;
+      appends.increment();
+      return sequence;
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  public void awaitDurable(long recordSequence) {
+    if (durableSequence >= recordSequence) {
+      return;
+    }
+    syncLock.lock();
+    try {
+      if (syncer == null) {
+        if (durableSequence < recordSequence) {
+          sync();
+        }
+        return;
+      }
+      while (durableSequence < recordSequence && !closed) {
+        failIfSyncFailed();
+        synced.awaitUninterruptibly();
+      }
+    } finally {
+      syncLock.unlock();
+    }
+  }
+
+  /** Position to checkpoint once every change logged so far has been written to tb_card. */
+  public Mark mark() {
+    appendLock.lock();
+    try {
+      return new Mark(offset, epoch, sequence);
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  public void checkpoint(Mark mark) {
+    appendLock.lock();
+    try {
+      checkpointOffset = mark.offset();
+      checkpointEpoch = mark.epoch();
+      writeCheckpoint(mark.offset(), mark.epoch());
+    } finally {
+      appendLock.unlock();
+    }
+    buffer.force(0, HEADER_SIZE);
+  }
+
+  public long getAppendCount() {
+    return appends.sum();
+  }
+
+  public long getFsyncCount() {
+    return fsyncs.sum();
+  }
+
+  @PreDestroy
+  public void close() {
+    closed = true;
+    if (syncer != null) {
+      syncer.interrupt();
+    }
+    syncLock.lock();
+    try {
+      sync();
+      synced.signalAll();
+    } finally {
+      syncLock.unlock();
+    }
+  }
+
+  // Moves to the start of the file when the record does not fit before its end. Never passes the
+  // checkpoint, which in the previous epoch still guards live records.
+  private boolean reserve(int size) {
+    boolean sameEpoch = epoch == checkpointEpoch;
+    if (offset + size <= (sameEpoch ? capacity : checkpointOffset)) {
+      return true;
+    }
+    if (!sameEpoch || HEADER_SIZE + size > checkpointOffset) {
+      return false;
+    }
+    if (offset + 4 <= capacity) {
+      buffer.putInt(offset, WRAP);
+    }
+    sequence += capacity - offset;
+    offset = HEADER_SIZE;
+    epoch++;
+    return true;
+  }
+
+  private Map<String, Long> scan() {
+    Map<String, Long> balances = new LinkedHashMap<>();
+    offset = checkpointOffset;
+    epoch = checkpointEpoch;
+    CRC32C crc = new CRC32C();
+    while (true) {
+      if (offset + RECORD_HEADER_SIZE > capacity || buffer.getInt(offset) == WRAP) {
+        if (epoch != checkpointEpoch || checkpointOffset == HEADER_SIZE) {
+          break;
+        }
+        offset = HEADER_SIZE;
+        epoch++;
+        continue;
+      }
+      int payloadSize = buffer.getInt(offset);
+      if (payloadSize < 9
+          || offset + RECORD_HEADER_SIZE + payloadSize > capacity
+          || buffer.getInt(offset + 4) != epoch) {
+        break;
+      }
+      int payload = offset + RECORD_HEADER_SIZE;
+      crc.reset();
+      crc.update(buffer.slice(payload, payloadSize));
+      if ((int) crc.getValue() != buffer.getInt(offset + 8)) {
+        log.warn("Write-ahead log has a torn record at offset {}, ignoring the rest", offset);
+        break;
+      }
+      byte[] number = new byte[payloadSize - 9];
+      buffer.get(payload + 9, number);
+      String cardNumber = new String(number, StandardCharsets.UTF_8);
+      balances.remove(cardNumber);
+      balances.put(cardNumber, buffer.getLong(payload + 1));
+      offset += RECORD_HEADER_SIZE + payloadSize;
+    }
+    clearUnacknowledged();
+    return balances;
+  }
+
+  // Records after the last valid one were never acknowledged, but pages reach the disk in any
+  // order, so some of them may look valid. Clearing them keeps new records from being followed
+  // by stale ones on the next recovery. When the scan stopped before wrapping, records of the
+  // next epoch may also sit before the checkpoint, where the next pass would read into them.
+  private void clearUnacknowledged() {
+    if (epoch == checkpointEpoch) {
+      clear(offset, capacity);
+      clear(HEADER_SIZE, checkpointOffset);
+    } else {
+      clear(offset, checkpointOffset);
+    }
+    buffer.force();
+  }
+
+  private void clear(int start, int end) {
+    byte[] zeros = new byte[4096];
+    for (int from = start; from < end; from += zeros.length) {
+      int length = Math.min(zeros.length, end - from);
+      for (int i = 0; i < length; i++) {
+        if (buffer.get(from + i) != 0) {
+          buffer.put(from, zeros, 0, length);
+          break;
+        }
+      }
+    }
+  }
+
+  private void writeCheckpoint(int checkpoint, int checkpointEpoch) {
+    buffer.putInt(4, checkpoint);
+    buffer.putInt(8, checkpointEpoch);
+  }
+
+  private void syncLoop() {
+    while (!closed) {
+      try {
+        TimeUnit.NANOSECONDS.sleep(fsyncIntervalNanos);
+      } catch (InterruptedException e) {
+        return;
+      }
+      if (durableSequence == sequence()) {
+        continue;
+      }
+      syncLock.lock();
+      try {
+        sync();
+      } catch (RuntimeException e) {
+        log.error("Write-ahead log fsync failed, refusing further appends", e);
+        syncFailure = e;
+        return;
+      } finally {
+        synced.signalAll();
+        syncLock.unlock();
+      }
+    }
+  }
+
+  private void failIfSyncFailed() {
+    if (syncFailure != null) {
+      throw new IllegalStateException("Write-ahead log fsync failed", syncFailure);
+    }
+  }
+
+  // Called with syncLock held.
+  private void sync() {
+    long target = sequence();
+    buffer.force();
+    fsyncs.increment();
+    durableSequence = target;
+  }
+
+  private long sequence() {
+    appendLock.lock();
+    try {
+      return sequence;
+    } finally {
+      appendLock.unlock();
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package dev.danielmesquita.miniauthorizer.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import dev.danielmesquita.miniauthorizer.repository.CardRepository;
+import dev.danielmesquita.miniauthorizer.service.CardExporter;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Live heap and time of {@code CardExporter.writeNdjson} versus {@code CardRepository.findAll}
+ * over the same table. The heap is sampled after a full GC every {@code benchmark.sample-mb} of
+ * output, so it shows what the export holds on to rather than what it allocates. Run with {@code
+ * mvn test -Dtest=CardExportBenchmark -Dbenchmark=true}; tune with {@code -Dbenchmark.cards}.
+ */
+@SpringBootTest(
+    properties = {
+      "spring.jpa.show-sql=false",
+      "spring.datasource.url=jdbc:h2:mem:exportdb;LAZY_QUERY_EXECUTION=TRUE"
+    })
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class CardExportBenchmark {
+
+  private static final String INSERT =
+      "INSERT INTO tb_card (id, card_number, password, balance_cents, version)"
+          + " VALUES (?, ?, 'hash', 50000, 0)";
+
+  @Autowired private CardExporter cardExporter;
+  @Autowired private CardRepository cardRepository;
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  private final int cards = Integer.getInteger("benchmark.cards", 200_000);
+  private final int sampleBytes = Integer.getInteger("benchmark.sample-mb", 1) << 20;
+  private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+  @BeforeEach
+  void setup() {
+    cardRepository.deleteAll();
+    List<Object[]> rows = new ArrayList<>(10_000);
+    for (int i = 1; i <= cards; i++) {
+      rows.add(new Object[] {1_000_000 + i, String.format("9%015d", i)});
+      if (rows.size() == 10_000 || i == cards) {
+        jdbcTemplate.batchUpdate(INSERT, rows);
+        rows.clear();
+      }
+    }
+  }
+
+  @AfterEach
+  void cleanup() {
+    cardRepository.deleteAll();
+  }
+
+  @Test
+  void exportMemoryAndTime() {
+    long exportBaseline = liveHeap();
+    SamplingStream out = new SamplingStream();
+    long start = System.nanoTime();
+    long exported = cardExporter.writeNdjson(out);
+    double exportMs = (System.nanoTime() - start) / 1_000_000.0;
+    double firstByteMs = (out.firstWrite - start) / 1_000_000.0;
+    assertEquals(cards, exported);
+
+    long findAllBaseline = liveHeap();
+    start = System.nanoTime();
+    List<?> all = cardRepository.findAll();
+    double findAllMs = (System.nanoTime() - start) / 1_000_000.0;
+    long findAllHeap = liveHeap() - findAllBaseline;
+    assertEquals(cards, all.size());
+
+    System.out.printf(
+        "Card export, %d cards, %.1f MB of NDJSON%n"
+            + "  writeNdjson: %8.0f ms, first byte after %6.1f ms, live heap +%6.1f MB%n"
+            + "  findAll:     %8.0f ms,                            live heap +%6.1f MB%n",
+        cards,
+        out.bytes / 1_048_576.0,
+        exportMs,
+        firstByteMs,
+        (out.maxHeap - exportBaseline) / 1_048_576.0,
+        findAllMs,
+        findAllHeap / 1_048_576.0);
+  }
+
+  private long liveHeap() {
+    System.gc();
+    return memory.getHeapMemoryUsage().getUsed();
+  }
+
+  // Discards the output, sampling the live heap as it goes.
+  private class SamplingStream extends OutputStream {
+    long bytes;
+    long firstWrite;
+    long maxHeap;
+    private long nextSample;
+
+    @Override
+    public void write(int b) {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      if (bytes == 0) {
+        firstWrite = System.nanoTime();
+      }
+      bytes += len;
+      if (bytes >= nextSample) {
+        maxHeap = Math.max(maxHeap, liveHeap());
+        nextSample += sampleBytes;
+      }
+    }
+  }
+}
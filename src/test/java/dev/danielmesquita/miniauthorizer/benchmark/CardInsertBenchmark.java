@@ -0,0 +1,72 @@
+package dev.danielmesquita.miniauthorizer.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import dev.danielmesquita.miniauthorizer.entity.Card;
+import dev.danielmesquita.miniauthorizer.entity.Money;
+import dev.danielmesquita.miniauthorizer.repository.CardRepository;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Insert throughput of {@code CardRepository.saveAll}, one transaction per chunk, and the JDBC
+ * statements it takes. Run with {@code mvn test -Dtest=CardInsertBenchmark -Dbenchmark=true};
+ * tune with {@code -Dbenchmark.cards} and {@code -Dbenchmark.chunk-size}.
+ */
+@SpringBootTest(
+    properties = {"spring.jpa.show-sql=false", "spring.jpa.properties.hibernate.generate_statistics=true"})
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class CardInsertBenchmark {
+
+  @Autowired private CardRepository cardRepository;
+  @Autowired private PlatformTransactionManager transactionManager;
+  @Autowired private EntityManagerFactory entityManagerFactory;
+
+  private final int cards = Integer.getInteger("benchmark.cards", 20_000);
+  private final int chunkSize = Integer.getInteger("benchmark.chunk-size", 1000);
+
+  @BeforeEach
+  void setup() {
+    cardRepository.deleteAll();
+  }
+
+  @Test
+  void insertThroughput() {
+    // Warm up before measuring.
+    insert("5", cards / 4);
+    cardRepository.deleteAll();
+
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+    long start = System.nanoTime();
+    insert("7", cards);
+    double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+    assertEquals(cards, cardRepository.count());
+    System.out.printf(
+        "Card inserts, %d cards in transactions of %d%n"
+            + "  %8.0f cards/s, %d JDBC statements prepared%n",
+        cards, chunkSize, cards / seconds, statistics.getPrepareStatementCount());
+  }
+
+  private void insert(String prefix, int count) {
+    TransactionTemplate template = new TransactionTemplate(transactionManager);
+    for (int from = 0; from < count; from += chunkSize) {
+      List<Card> chunk = new ArrayList<>(chunkSize);
+      for (int i = from; i < Math.min(from + chunkSize, count); i++) {
+        chunk.add(new Card(null, prefix + String.format("%015d", i), "hash", Money.ofCents(500_00)));
+      }
+      template.executeWithoutResult(status -> cardRepository.saveAll(chunk));
+    }
+  }
+}
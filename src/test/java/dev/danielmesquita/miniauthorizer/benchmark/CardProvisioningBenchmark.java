@@ -0,0 +1,136 @@
+package dev.danielmesquita.miniauthorizer.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import dev.danielmesquita.miniauthorizer.dto.CardDTO;
+import dev.danielmesquita.miniauthorizer.repository.CardRepository;
+import dev.danielmesquita.miniauthorizer.service.BalanceCache;
+import dev.danielmesquita.miniauthorizer.service.CardProvisioner;
+import dev.danielmesquita.miniauthorizer.service.CardService;
+import dev.danielmesquita.miniauthorizer.service.IdempotencyStore;
+import dev.danielmesquita.miniauthorizer.service.TransactionEngine;
+import dev.danielmesquita.miniauthorizer.service.TransactionLedger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Time to create cards one request at a time through {@code CardService.createCard}, from {@code
+ * threads} concurrent clients, versus one {@code CardProvisioner} call. Run with {@code mvn test
+ * -Dtest=CardProvisioningBenchmark -Dbenchmark=true}; tune with {@code -Dbenchmark.cards}, {@code
+ * -Dbenchmark.threads} and {@code -Dbenchmark.bcrypt-strength}, which is lowered by default so
+ * the database side is not hidden behind BCrypt on small machines.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class CardProvisioningBenchmark {
+
+  @Autowired private CardRepository cardRepository;
+  @Autowired private TransactionEngine transactionEngine;
+  @Autowired private BalanceCache balanceCache;
+  @Autowired private TransactionLedger ledger;
+  @Autowired private IdempotencyStore idempotencyStore;
+  @Autowired private PlatformTransactionManager transactionManager;
+  @Autowired private Validator validator;
+
+  private final int cards = Integer.getInteger("benchmark.cards", 2000);
+  private final int threads = Integer.getInteger("benchmark.threads", 8);
+  private final int strength = Integer.getInteger("benchmark.bcrypt-strength", 4);
+  private final PasswordEncoder passwordEncoder = new BCryptPasswordEncoder(strength);
+
+  @BeforeEach
+  void setup() {
+    cardRepository.deleteAll();
+  }
+
+  @Test
+  void provisioningTime() throws Exception {
+    CardService cardService =
+        new CardService(
+            cardRepository,
+            passwordEncoder,
+            transactionEngine,
+            balanceCache,
+            ledger,
+            idempotencyStore,
+            new SimpleMeterRegistry(),
+            Optional.empty());
+    CardProvisioner cardProvisioner =
+        new CardProvisioner(
+            cardRepository,
+            passwordEncoder,
+            transactionEngine,
+            balanceCache,
+            transactionManager,
+            validator,
+            0,
+            1000,
+            new SimpleMeterRegistry(),
+            Optional.empty());
+
+    // Warm up both paths before measuring.
+    perCard(cardService, batch("5000", cards / 4));
+    cardProvisioner.createCards(batch("6000", cards / 4));
+    cardRepository.deleteAll();
+
+    long start = System.nanoTime();
+    perCard(cardService, batch("7000", cards));
+    double perCard = (System.nanoTime() - start) / 1_000_000.0;
+    start = System.nanoTime();
+    cardProvisioner.createCards(batch("8000", cards));
+    double bulk = (System.nanoTime() - start) / 1_000_000.0;
+    cardProvisioner.shutdown();
+
+    assertEquals(cards * 2L, cardRepository.count());
+    System.out.printf(
+        "Card provisioning, %d cards, BCrypt strength %d, %d cores%n"
+            + "  createCard, %d clients: %8.0f ms%n"
+            + "  bulk:                  %8.0f ms (%.2fx)%n",
+        cards,
+        strength,
+        Runtime.getRuntime().availableProcessors(),
+        threads,
+        perCard,
+        bulk,
+        perCard / bulk);
+  }
+
+  private void perCard(CardService cardService, List<CardDTO> batch) throws Exception {
+    // createCard relies on @Transactional, which only applies to the Spring bean.
+    TransactionTemplate template = new TransactionTemplate(transactionManager);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<?>> futures = new ArrayList<>(batch.size());
+    for (CardDTO cardDTO : batch) {
+      futures.add(executor.submit(() -> template.execute(status -> cardService.createCard(cardDTO))));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+  }
+
+  private static List<CardDTO> batch(String prefix, int size) {
+    List<CardDTO> batch = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      CardDTO cardDTO = new CardDTO();
+      cardDTO.setCardNumber(prefix + String.format("%012d", i));
+      cardDTO.setPassword("1234");
+      batch.add(cardDTO);
+    }
+    return batch;
+  }
+}
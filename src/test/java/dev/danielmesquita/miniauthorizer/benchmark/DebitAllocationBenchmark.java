@@ -0,0 +1,122 @@
+package dev.danielmesquita.miniauthorizer.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import dev.danielmesquita.miniauthorizer.dto.TransactionDTO;
+import dev.danielmesquita.miniauthorizer.entity.Card;
+import dev.danielmesquita.miniauthorizer.entity.Money;
+import dev.danielmesquita.miniauthorizer.repository.CardRepository;
+import dev.danielmesquita.miniauthorizer.service.CardPasswordVerifier;
+import dev.danielmesquita.miniauthorizer.service.ConditionalDebitTransactionEngine;
+import dev.danielmesquita.miniauthorizer.service.CredentialDigest;
+import dev.danielmesquita.miniauthorizer.service.InMemoryTransactionEngine;
+import dev.danielmesquita.miniauthorizer.service.PessimisticTransactionEngine;
+import dev.danielmesquita.miniauthorizer.service.TransactionEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Single-threaded latency and heap allocation per debit for each engine, with the password cache
+ * warm so hashing does not dominate. Run with {@code mvn test -Dtest=DebitAllocationBenchmark
+ * -Dbenchmark=true}; tune with {@code -Dbenchmark.operations}.
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class DebitAllocationBenchmark {
+
+  @Autowired private CardRepository cardRepository;
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  private final String cardNumber = "4000000000000002";
+  private final String password = "1234";
+  private final int operations = Integer.getInteger("benchmark.operations", 20_000);
+  private final PasswordEncoder passwordEncoder = new BCryptPasswordEncoder(4);
+
+  private final com.sun.management.ThreadMXBean threads =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  @BeforeEach
+  void setup() {
+    cardRepository.deleteAll();
+    cardRepository.save(new Card(null, cardNumber, passwordEncoder.encode(password), Money.ZERO));
+  }
+
+  @Test
+  void debitAllocation() {
+    CardPasswordVerifier passwordVerifier =
+        new CardPasswordVerifier(
+            passwordEncoder,
+            new CredentialDigest(),
+            1000,
+            Duration.ofHours(1),
+            new SimpleMeterRegistry());
+    TransactionTemplate template = new TransactionTemplate(transactionManager);
+    PessimisticTransactionEngine pessimistic =
+        new PessimisticTransactionEngine(
+            cardRepository, passwordVerifier, transactionManager, 500, new SimpleMeterRegistry());
+    TransactionEngine pessimisticEngine =
+        transactionDTO -> template.execute(status -> pessimistic.execute(transactionDTO));
+    TransactionEngine conditionalEngine =
+        new ConditionalDebitTransactionEngine(cardRepository, passwordVerifier, transactionManager);
+
+    System.out.printf("Debit cost, 1 thread, %d operations%n", operations);
+    report("pessimistic", pessimisticEngine);
+    report("conditional", conditionalEngine);
+    // Created after the reset so it loads the funded balance into memory.
+    resetBalance(operations * 3L);
+    report(
+        "in-memory",
+        new InMemoryTransactionEngine(
+            cardRepository,
+            passwordVerifier,
+            transactionManager,
+            256,
+            Optional.empty(),
+            Optional.empty()));
+  }
+
+  private void report(String name, TransactionEngine engine) {
+    TransactionDTO debit = new TransactionDTO(cardNumber, password, new BigDecimal("1.00"));
+    if (!name.equals("in-memory")) {
+      resetBalance(operations * 3L);
+    }
+    // The first pass warms up the JIT and the password cache.
+    for (int i = 0; i < operations; i++) {
+      engine.execute(debit);
+    }
+
+    long threadId = Thread.currentThread().threadId();
+    long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+    long start = System.nanoTime();
+    for (int i = 0; i < operations; i++) {
+      engine.execute(debit);
+    }
+    long elapsed = System.nanoTime() - start;
+    long bytes = threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+
+    System.out.printf(
+        "  %-12s %8.2f us/op %10.0f bytes/op%n",
+        name, elapsed / 1_000.0 / operations, bytes / (double) operations);
+    if (!name.equals("in-memory")) {
+      assertEquals(
+          operations * 100L, cardRepository.findBalanceCentsByCardNumber(cardNumber).orElseThrow());
+    }
+  }
+
+  private void resetBalance(long units) {
+    new TransactionTemplate(transactionManager)
+        .executeWithoutResult(status -> cardRepository.updateBalance(cardNumber, units * 100));
+  }
+}
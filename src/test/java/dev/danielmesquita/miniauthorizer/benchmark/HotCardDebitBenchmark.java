@@ -0,0 +1,151 @@
+package dev.danielmesquita.miniauthorizer.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import dev.danielmesquita.miniauthorizer.dto.TransactionDTO;
+import dev.danielmesquita.miniauthorizer.entity.Card;
+import dev.danielmesquita.miniauthorizer.entity.Money;
+import dev.danielmesquita.miniauthorizer.repository.CardRepository;
+import dev.danielmesquita.miniauthorizer.service.CardPasswordVerifier;
+import dev.danielmesquita.miniauthorizer.service.ConditionalDebitTransactionEngine;
+import dev.danielmesquita.miniauthorizer.service.CredentialDigest;
+import dev.danielmesquita.miniauthorizer.service.GroupCommitTransactionEngine;
+import dev.danielmesquita.miniauthorizer.service.PessimisticTransactionEngine;
+import dev.danielmesquita.miniauthorizer.service.TransactionEngine;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Single hot card throughput of the pessimistic, conditional and group-commit debit engines. Run
+ * with {@code mvn test -Dtest=HotCardDebitBenchmark -Dbenchmark=true}; tune with {@code
+ * -Dbenchmark.threads}, {@code -Dbenchmark.operations} and {@code -Dbenchmark.window-us} (the
+ * group-commit window). Lower {@code -Dbenchmark.bcrypt-strength} to isolate locking cost from
+ * hashing cost.
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class HotCardDebitBenchmark {
+
+  @Autowired private CardRepository cardRepository;
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  private final String cardNumber = "4000000000000001";
+  private final String password = "1234";
+  private final int threads = Integer.getInteger("benchmark.threads", 8);
+  private final int operations = Integer.getInteger("benchmark.operations", 400);
+  private final long windowMicros = Long.getLong("benchmark.window-us", 1000);
+  private final PasswordEncoder passwordEncoder =
+      new BCryptPasswordEncoder(Integer.getInteger("benchmark.bcrypt-strength", 10));
+
+  @BeforeEach
+  void setup() {
+    cardRepository.deleteAll();
+    cardRepository.save(
+        new Card(null, cardNumber, passwordEncoder.encode(password), Money.ZERO));
+  }
+
+  @Test
+  void hotCardThroughput() throws Exception {
+    // The verification cache is disabled so every debit pays for BCrypt, like the original path.
+    CardPasswordVerifier passwordVerifier =
+        new CardPasswordVerifier(
+            passwordEncoder, new CredentialDigest(), 0, Duration.ZERO, new SimpleMeterRegistry());
+    TransactionEngine pessimisticEngine =
+        transactional(
+            new PessimisticTransactionEngine(
+                cardRepository,
+                passwordVerifier,
+                transactionManager,
+                500,
+                new SimpleMeterRegistry()));
+    TransactionEngine conditionalEngine =
+        new ConditionalDebitTransactionEngine(cardRepository, passwordVerifier, transactionManager);
+    SimpleMeterRegistry groupCommitRegistry = new SimpleMeterRegistry();
+    TransactionEngine groupCommitEngine =
+        new GroupCommitTransactionEngine(
+            cardRepository,
+            passwordVerifier,
+            transactionManager,
+            windowMicros,
+            256,
+            256,
+            groupCommitRegistry);
+
+    // Warm up both paths before measuring.
+    run(pessimisticEngine, threads * 4);
+    run(conditionalEngine, threads * 4);
+    run(groupCommitEngine, threads * 4);
+    DistributionSummary batchSizes =
+        groupCommitRegistry.get("authorizer.group-commit.batch.size").summary();
+    long warmupBatches = batchSizes.count();
+
+    double pessimistic = run(pessimisticEngine, operations);
+    double conditional = run(conditionalEngine, operations);
+    double groupCommit = run(groupCommitEngine, operations);
+    double batchSize = operations / (double) (batchSizes.count() - warmupBatches);
+
+    System.out.printf(
+        "Hot card debit, %d threads, %d operations, BCrypt strength %d%n"
+            + "  pessimistic (FOR UPDATE + save): %8.1f ops/s%n"
+            + "  conditional (single UPDATE):     %8.1f ops/s (%.2fx)%n"
+            + "  group commit (%d us window):    %8.1f ops/s (%.2fx), %.1f debits per commit%n",
+        threads,
+        operations,
+        Integer.getInteger("benchmark.bcrypt-strength", 10),
+        pessimistic,
+        conditional,
+        conditional / pessimistic,
+        windowMicros,
+        groupCommit,
+        groupCommit / pessimistic,
+        batchSize);
+  }
+
+  private double run(TransactionEngine engine, int count) throws Exception {
+    resetBalance(count * 100L);
+    TransactionDTO debit = new TransactionDTO(cardNumber, password, BigDecimal.ONE);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<?>> futures = new ArrayList<>(count);
+
+    long start = System.nanoTime();
+    for (int i = 0; i < count; i++) {
+      futures.add(executor.submit(() -> engine.execute(debit)));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    long elapsed = System.nanoTime() - start;
+    executor.shutdown();
+
+    // Every debit must have been applied exactly once.
+    assertEquals(0L, cardRepository.findBalanceCentsByCardNumber(cardNumber).orElseThrow());
+    return count / (elapsed / 1_000_000_000.0);
+  }
+
+  // The pessimistic engine relies on @Transactional, which only applies to the Spring bean.
+  private TransactionEngine transactional(TransactionEngine engine) {
+    TransactionTemplate template = new TransactionTemplate(transactionManager);
+    return transactionDTO -> template.execute(status -> engine.execute(transactionDTO));
+  }
+
+  private void resetBalance(long balanceCents) {
+    new TransactionTemplate(transactionManager)
+        .executeWithoutResult(status -> cardRepository.updateBalance(cardNumber, balanceCents));
+  }
+}
@@ -0,0 +1,280 @@
+package dev.danielmesquita.miniauthorizer.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dev.danielmesquita.miniauthorizer.entity.Card;
+import dev.danielmesquita.miniauthorizer.entity.Money;
+import dev.danielmesquita.miniauthorizer.repository.CardRepository;
+import dev.danielmesquita.miniauthorizer.service.AccessTokenService;
+import dev.danielmesquita.miniauthorizer.service.TransactionEngine;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Drives {@code POST /transactions} and {@code GET /cards/{cardNumber}} over HTTP with closed-loop
+ * clients, picking cards from a Zipf distribution so a few hot cards receive most of the traffic.
+ * Each skew runs against fresh cards and ends with an overdraft check: no balance is negative and
+ * every card lost exactly the amount of its approved debits. Run with {@code mvn test
+ * -Dtest=LoadHarnessBenchmark -Dbenchmark=true}; pick the engine with {@code
+ * -Dauthorizer.transaction.mode} and tune with {@code -Dbenchmark.clients}, {@code
+ * -Dbenchmark.cards}, {@code -Dbenchmark.skews} (Zipf exponents, 0 is uniform), {@code
+ * -Dbenchmark.read-percent}, {@code -Dbenchmark.initial-balance-cents} and {@code
+ * -Dbenchmark.seconds}. Card passwords are hashed with {@code -Dbenchmark.bcrypt-strength}
+ * (default 4) so the first debit of each card does not hide locking cost behind BCrypt. Any other
+ * database can be used through {@code -Dspring.datasource.url}.
+ */
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {"spring.jpa.show-sql=false", "authorizer.token.ttl=1h"})
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class LoadHarnessBenchmark {
+
+  private static final String PASSWORD = "1234";
+  private static final long DEBIT_CENTS = 100;
+  // Latencies are recorded in microseconds, up to one minute, with three significant digits.
+  private static final long MAX_LATENCY_MICROS = 60_000_000L;
+
+  @LocalServerPort private int port;
+
+  @Autowired private CardRepository cardRepository;
+  @Autowired private TransactionEngine transactionEngine;
+  @Autowired private AccessTokenService accessTokenService;
+
+  private final int clients = Integer.getInteger("benchmark.clients", 64);
+  private final int cards = Integer.getInteger("benchmark.cards", 1000);
+  private final int readPercent = Integer.getInteger("benchmark.read-percent", 20);
+  private final long initialBalanceCents =
+      Long.getLong("benchmark.initial-balance-cents", 1_000_000L);
+  private final int seconds = Integer.getInteger("benchmark.seconds", 10);
+  private final PasswordEncoder passwordEncoder =
+      new BCryptPasswordEncoder(Integer.getInteger("benchmark.bcrypt-strength", 4));
+  private final double[] skews =
+      Arrays.stream(System.getProperty("benchmark.skews", "0,0.99,1.5").split(","))
+          .mapToDouble(Double::parseDouble)
+          .toArray();
+
+  private final HttpClient httpClient =
+      HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+  @Test
+  void hotCardSkew() throws Exception {
+    String token =
+        accessTokenService
+            .issue(
+                UsernamePasswordAuthenticationToken.authenticated(
+                    "load-harness", null, List.of(new SimpleGrantedAuthority("ROLE_CLIENT"))))
+            .getAccessToken();
+    String passwordHash = passwordEncoder.encode(PASSWORD);
+
+    System.out.printf(
+        "Load harness: %s mode, %d clients, %d cards, %d%% reads, %d s per skew%n",
+        transactionEngine.getClass().getSimpleName(), clients, cards, readPercent, seconds);
+    for (int i = 0; i < skews.length; i++) {
+      String prefix = String.format("9%03d", i);
+      createCards(prefix, passwordHash);
+      Result result = run(prefix, new ZipfSampler(cards, skews[i]), token);
+      report(skews[i], result);
+      checkInvariant(prefix, result.approvedDebits());
+    }
+  }
+
+  private Result run(String prefix, ZipfSampler sampler, String token) throws Exception {
+    // The first two seconds warm up the JIT, the connection pools and the caches.
+    long warmupEnd = System.nanoTime() + 2_000_000_000L;
+    long end = warmupEnd + seconds * 1_000_000_000L;
+    AtomicLongArray approvedDebits = new AtomicLongArray(cards);
+    List<Future<ClientResult>> futures = new ArrayList<>(clients);
+
+    try (ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int c = 0; c < clients; c++) {
+        long seed = c;
+        futures.add(
+            clientThreads.submit(
+                () -> {
+                  SplittableRandom random = new SplittableRandom(seed);
+                  ClientResult client = new ClientResult();
+                  long now;
+                  while ((now = System.nanoTime()) < end) {
+                    int card = sampler.sample(random);
+                    boolean read = random.nextInt(100) < readPercent;
+                    int status = read ? balance(prefix, card, token) : debit(prefix, card, token);
+                    if (!read && status == 200) {
+                      approvedDebits.incrementAndGet(card);
+                    }
+                    if (now >= warmupEnd) {
+                      client.record(read, status, (System.nanoTime() - now) / 1_000);
+                    }
+                  }
+                  return client;
+                }));
+      }
+
+      ClientResult total = new ClientResult();
+      for (Future<ClientResult> future : futures) {
+        total.add(future.get());
+      }
+      return new Result(total, approvedDebits);
+    }
+  }
+
+  private int debit(String prefix, int card, String token) throws Exception {
+    String body =
+        "{\"cardNumber\":\""
+            + cardNumber(prefix, card)
+            + "\",\"password\":\""
+            + PASSWORD
+            + "\",\"value\":"
+            + Money.ofCents(DEBIT_CENTS).toBigDecimal()
+            + "}";
+    return send(
+        HttpRequest.newBuilder(uri("/transactions"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body)),
+        token);
+  }
+
+  private int balance(String prefix, int card, String token) throws Exception {
+    return send(HttpRequest.newBuilder(uri("/cards/" + cardNumber(prefix, card))).GET(), token);
+  }
+
+  private int send(HttpRequest.Builder request, String token) throws Exception {
+    return httpClient
+        .send(
+            request.header("Authorization", "Bearer " + token).build(),
+            HttpResponse.BodyHandlers.discarding())
+        .statusCode();
+  }
+
+  private URI uri(String path) {
+    return URI.create("http://localhost:" + port + path);
+  }
+
+  private void createCards(String prefix, String passwordHash) {
+    List<Card> batch = new ArrayList<>(cards);
+    for (int card = 0; card < cards; card++) {
+      batch.add(
+          new Card(
+              null, cardNumber(prefix, card), passwordHash, Money.ofCents(initialBalanceCents)));
+    }
+    cardRepository.saveAll(batch);
+  }
+
+  // Engines that keep balances in memory know them better than the table does.
+  private void checkInvariant(String prefix, AtomicLongArray approvedDebits) {
+    for (int card = 0; card < cards; card++) {
+      String cardNumber = cardNumber(prefix, card);
+      long balance =
+          transactionEngine
+              .findBalance(cardNumber)
+              .map(Money::cents)
+              .orElseGet(() -> cardRepository.findBalanceCentsByCardNumber(cardNumber).orElseThrow());
+      assertTrue(balance >= 0, "Card " + cardNumber + " is overdrawn: " + balance);
+      assertEquals(
+          initialBalanceCents - approvedDebits.get(card) * DEBIT_CENTS,
+          balance,
+          "Card " + cardNumber + " balance does not match its approved debits");
+    }
+  }
+
+  private static String cardNumber(String prefix, int card) {
+    return prefix + String.format("%012d", card);
+  }
+
+  private void report(double skew, Result result) {
+    ClientResult total = result.total();
+    System.out.printf(
+        "  skew %.2f: %8.1f req/s, %d approved, %d declined, %d errors%n",
+        skew,
+        (total.writes.getTotalCount() + total.reads.getTotalCount()) / (double) seconds,
+        total.approved,
+        total.declined,
+        total.errors);
+    printLatencies("POST /transactions ", total.writes);
+    printLatencies("GET /cards/{number}", total.reads);
+  }
+
+  private static void printLatencies(String label, Histogram histogram) {
+    System.out.printf(
+        "    %s p50 %7.2f ms, p90 %7.2f ms, p99 %7.2f ms, p99.9 %7.2f ms, max %7.2f ms%n",
+        label,
+        histogram.getValueAtPercentile(50) / 1_000.0,
+        histogram.getValueAtPercentile(90) / 1_000.0,
+        histogram.getValueAtPercentile(99) / 1_000.0,
+        histogram.getValueAtPercentile(99.9) / 1_000.0,
+        histogram.getMaxValue() / 1_000.0);
+  }
+
+  private record Result(ClientResult total, AtomicLongArray approvedDebits) {}
+
+  private static class ClientResult {
+
+    private final Histogram writes = new Histogram(MAX_LATENCY_MICROS, 3);
+    private final Histogram reads = new Histogram(MAX_LATENCY_MICROS, 3);
+    private long approved;
+    private long declined;
+    private long errors;
+
+    void record(boolean read, int status, long latencyMicros) {
+      (read ? reads : writes).recordValue(Math.min(latencyMicros, MAX_LATENCY_MICROS));
+      if (status == 422) {
+        declined++;
+      } else if (status != 200) {
+        errors++;
+      } else if (!read) {
+        approved++;
+      }
+    }
+
+    void add(ClientResult other) {
+      writes.add(other.writes);
+      reads.add(other.reads);
+      approved += other.approved;
+      declined += other.declined;
+      errors += other.errors;
+    }
+  }
+
+  /** Card index 0 is the hottest; exponent 0 picks cards uniformly. */
+  private static class ZipfSampler {
+
+    private final double[] cumulative;
+
+    ZipfSampler(int cards, double exponent) {
+      cumulative = new double[cards];
+      double sum = 0;
+      for (int i = 0; i < cards; i++) {
+        sum += 1 / Math.pow(i + 1, exponent);
+        cumulative[i] = sum;
+      }
+      for (int i = 0; i < cards; i++) {
+        cumulative[i] /= sum;
+      }
+    }
+
+    int sample(SplittableRandom random) {
+      int index = Arrays.binarySearch(cumulative, random.nextDouble());
+      return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+  }
+}
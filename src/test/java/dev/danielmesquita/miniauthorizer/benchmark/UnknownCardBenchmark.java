@@ -0,0 +1,135 @@
+package dev.danielmesquita.miniauthorizer.benchmark;
+
+import dev.danielmesquita.miniauthorizer.dto.TransactionDTO;
+import dev.danielmesquita.miniauthorizer.exception.TransactionException;
+import dev.danielmesquita.miniauthorizer.repository.CardRepository;
+import dev.danielmesquita.miniauthorizer.service.BalanceCache;
+import dev.danielmesquita.miniauthorizer.service.CardFilter;
+import dev.danielmesquita.miniauthorizer.service.CardService;
+import dev.danielmesquita.miniauthorizer.service.IdempotencyStore;
+import dev.danielmesquita.miniauthorizer.service.TransactionEngine;
+import dev.danielmesquita.miniauthorizer.service.TransactionLedger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Cost of declining transactions for card numbers that do not exist, with and without a {@code
+ * CardFilter} in front of the engine, over a table of {@code benchmark.cards} cards. The filter
+ * runs both with confirmed misses, its default, and with final ones. Run with
+ * {@code mvn test -Dtest=UnknownCardBenchmark -Dbenchmark=true}; tune with {@code
+ * -Dbenchmark.cards} and {@code -Dbenchmark.operations}.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class UnknownCardBenchmark {
+
+  private static final String INSERT =
+      "INSERT INTO tb_card (id, card_number, password, balance_cents, version)"
+          + " VALUES (?, ?, 'hash', 50000, 0)";
+
+  @Autowired private CardRepository cardRepository;
+  @Autowired private PasswordEncoder passwordEncoder;
+  @Autowired private TransactionEngine transactionEngine;
+  @Autowired private BalanceCache balanceCache;
+  @Autowired private TransactionLedger ledger;
+  @Autowired private IdempotencyStore idempotencyStore;
+  @Autowired private JdbcTemplate jdbcTemplate;
+  @Autowired private DataSource dataSource;
+
+  private final int cards = Integer.getInteger("benchmark.cards", 100_000);
+  private final int operations = Integer.getInteger("benchmark.operations", 50_000);
+
+  @BeforeEach
+  void setup() {
+    cardRepository.deleteAll();
+    List<Object[]> rows = new ArrayList<>(10_000);
+    for (int i = 1; i <= cards; i++) {
+      rows.add(new Object[] {1_000_000 + i, String.format("9%015d", i)});
+      if (rows.size() == 10_000 || i == cards) {
+        jdbcTemplate.batchUpdate(INSERT, rows);
+        rows.clear();
+      }
+    }
+  }
+
+  @AfterEach
+  void cleanup() {
+    cardRepository.deleteAll();
+  }
+
+  @Test
+  void unknownCardDeclines() {
+    CardFilter confirming = new CardFilter(dataSource, cards, 0.01, true, 1000);
+    confirming.refresh();
+    CardFilter filter = new CardFilter(dataSource, cards, 0.01, false, 1000);
+    filter.refresh();
+    CardService unfiltered = cardService(Optional.empty());
+    CardService confirmed = cardService(Optional.of(confirming));
+    CardService filtered = cardService(Optional.of(filter));
+
+    // Warm up every path before measuring.
+    decline(unfiltered, "7", operations / 4);
+    decline(confirmed, "7", operations / 4);
+    decline(filtered, "7", operations / 4);
+    double unfilteredUs = time(unfiltered);
+    double confirmedUs = time(confirmed);
+    double filteredUs = time(filtered);
+
+    System.out.printf(
+        "Unknown card declines, %d operations against %d cards%n"
+            + "  no filter:                %8.2f us/op%n"
+            + "  filter, confirmed misses: %8.2f us/op (%.1fx)%n"
+            + "  filter, final misses:     %8.2f us/op (%.1fx), %d false positives, %d bytes%n",
+        operations,
+        cards,
+        unfilteredUs,
+        confirmedUs,
+        unfilteredUs / confirmedUs,
+        filteredUs,
+        unfilteredUs / filteredUs,
+        filter.getFalsePositiveCount(),
+        filter.getMemoryBytes());
+  }
+
+  private double time(CardService cardService) {
+    long start = System.nanoTime();
+    decline(cardService, "8", operations);
+    return (System.nanoTime() - start) / 1_000.0 / operations;
+  }
+
+  private CardService cardService(Optional<CardFilter> filter) {
+    return new CardService(
+        cardRepository,
+        passwordEncoder,
+        transactionEngine,
+        balanceCache,
+        ledger,
+        idempotencyStore,
+        new SimpleMeterRegistry(),
+        filter);
+  }
+
+  private static void decline(CardService cardService, String prefix, int count) {
+    for (int i = 0; i < count; i++) {
+      try {
+        cardService.executeTransaction(
+            new TransactionDTO(prefix + String.format("%015d", i), "1234", BigDecimal.ONE));
+        throw new IllegalStateException("Unknown card was authorized");
+      } catch (TransactionException expected) {
+        // CARTAO_INEXISTENTE
+      }
+    }
+  }
+}
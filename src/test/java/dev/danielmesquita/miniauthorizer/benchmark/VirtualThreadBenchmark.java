@@ -0,0 +1,125 @@
+package dev.danielmesquita.miniauthorizer.benchmark;
+
+import dev.danielmesquita.miniauthorizer.config.OffloadingPasswordEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Throughput and p99 of a request that waits on a slow database and then checks a BCrypt password,
+ * served by Tomcat's default 200 platform threads or by one virtual thread per request, with
+ * hashing inline or offloaded to {@link OffloadingPasswordEncoder}. Clients are closed-loop and
+ * latency includes time queued for a server thread. Run with {@code mvn test
+ * -Dtest=VirtualThreadBenchmark -Dbenchmark=true}; tune with {@code -Dbenchmark.clients}, {@code
+ * -Dbenchmark.db-latency-ms}, {@code -Dbenchmark.bcrypt-strength} and {@code
+ * -Dbenchmark.seconds}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class VirtualThreadBenchmark {
+
+  private static final int TOMCAT_MAX_THREADS = 200;
+
+  private final int clients = Integer.getInteger("benchmark.clients", 1000);
+  private final int dbLatencyMs = Integer.getInteger("benchmark.db-latency-ms", 200);
+  private final int strength = Integer.getInteger("benchmark.bcrypt-strength", 4);
+  private final int seconds = Integer.getInteger("benchmark.seconds", 5);
+
+  @Test
+  void slowDatabase() throws Exception {
+    PasswordEncoder bcrypt = new BCryptPasswordEncoder(strength);
+    String hash = bcrypt.encode("1234");
+    int cores = Runtime.getRuntime().availableProcessors();
+
+    try (OffloadingPasswordEncoder offloading =
+        new OffloadingPasswordEncoder(bcrypt, cores, 10_000)) {
+      System.out.printf(
+          "Slow database (%d ms per request), %d clients, BCrypt strength %d, %d cores%n",
+          dbLatencyMs, clients, strength, cores);
+      report("platform threads (200), inline hashing ", platformRun(bcrypt, hash));
+      report("virtual threads, inline hashing        ", virtualRun(bcrypt, hash));
+      report("virtual threads, offloaded hashing     ", virtualRun(offloading, hash));
+    }
+  }
+
+  private Result platformRun(PasswordEncoder encoder, String hash) throws Exception {
+    try (ExecutorService server = Executors.newFixedThreadPool(TOMCAT_MAX_THREADS)) {
+      return run(server, encoder, hash);
+    }
+  }
+
+  private Result virtualRun(PasswordEncoder encoder, String hash) throws Exception {
+    try (ExecutorService server = Executors.newVirtualThreadPerTaskExecutor()) {
+      return run(server, encoder, hash);
+    }
+  }
+
+  private Result run(ExecutorService server, PasswordEncoder encoder, String hash)
+      throws Exception {
+    Runnable request =
+        () -> {
+          try {
+            Thread.sleep(dbLatencyMs);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          if (!encoder.matches("1234", hash)) {
+            throw new IllegalStateException("password mismatch");
+          }
+        };
+
+    // The first second warms up the JIT and the pools and is not measured.
+    long warmupEnd = System.nanoTime() + 1_000_000_000L;
+    long end = warmupEnd + seconds * 1_000_000_000L;
+    List<Future<long[]>> clientLatencies = new ArrayList<>(clients);
+    try (ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < clients; i++) {
+        clientLatencies.add(
+            clientThreads.submit(
+                () -> {
+                  long[] latencies = new long[1024];
+                  int count = 0;
+                  long now;
+                  while ((now = System.nanoTime()) < end) {
+                    server.submit(request).get();
+                    if (now >= warmupEnd) {
+                      if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                      }
+                      latencies[count++] = System.nanoTime() - now;
+                    }
+                  }
+                  return Arrays.copyOf(latencies, count);
+                }));
+      }
+
+      List<long[]> all = new ArrayList<>(clients);
+      for (Future<long[]> future : clientLatencies) {
+        all.add(future.get());
+      }
+      long[] latencies = all.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+      return new Result(latencies.length / (double) seconds, percentile(latencies, 0.99));
+    }
+  }
+
+  private static void report(String label, Result result) {
+    System.out.printf(
+        "  %s %9.1f req/s, p99 %7.1f ms%n", label, result.throughput(), result.p99Ms());
+  }
+
+  private static double percentile(long[] sorted, double percentile) {
+    if (sorted.length == 0) {
+      return Double.NaN;
+    }
+    int index = (int) Math.ceil(percentile * sorted.length) - 1;
+    return sorted[Math.max(index, 0)] / 1_000_000.0;
+  }
+
+  private record Result(double throughput, double p99Ms) {}
+}
@@ -0,0 +1,76 @@
+package dev.danielmesquita.miniauthorizer.config;
+
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+public class OffloadingPasswordEncoderTests {
+
+  private final AtomicReference<Thread> hashingThread = new AtomicReference<>();
+
+  private OffloadingPasswordEncoder encoder;
+
+  @BeforeEach
+  public void setUp() {
+    PasswordEncoder recording =
+        new PasswordEncoder() {
+          @Override
+          public String encode(CharSequence rawPassword) {
+            hashingThread.set(Thread.currentThread());
+            return "hashed:" + rawPassword;
+          }
+
+          @Override
+          public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            hashingThread.set(Thread.currentThread());
+            if (rawPassword.equals("boom")) {
+              throw new IllegalArgumentException("boom");
+            }
+            return encodedPassword.equals("hashed:" + rawPassword);
+          }
+        };
+    encoder = new OffloadingPasswordEncoder(recording, 1, 10);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    encoder.close();
+  }
+
+  @Test
+  public void platformThreadsShouldHashInline() {
+    Assertions.assertEquals("hashed:1234", encoder.encode("1234"));
+
+    Assertions.assertSame(Thread.currentThread(), hashingThread.get());
+  }
+
+  @Test
+  public void virtualThreadsShouldHashOnPool() throws Exception {
+    AtomicReference<Boolean> matched = new AtomicReference<>();
+    Thread.ofVirtual().start(() -> matched.set(encoder.matches("1234", "hashed:1234"))).join();
+
+    Assertions.assertTrue(matched.get());
+    Assertions.assertFalse(hashingThread.get().isVirtual());
+    Assertions.assertTrue(hashingThread.get().getName().startsWith("password-hashing-"));
+  }
+
+  @Test
+  public void virtualThreadsShouldReceiveDelegateExceptions() throws Exception {
+    AtomicReference<Throwable> thrown = new AtomicReference<>();
+    Thread.ofVirtual()
+        .start(
+            () -> {
+              try {
+                encoder.matches("boom", "hashed:boom");
+              } catch (RuntimeException e) {
+                thrown.set(e);
+              }
+            })
+        .join();
+
+    Assertions.assertInstanceOf(IllegalArgumentException.class, thrown.get());
+  }
+}
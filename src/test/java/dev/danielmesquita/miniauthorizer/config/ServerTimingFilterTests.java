@@ -0,0 +1,101 @@
+package dev.danielmesquita.miniauthorizer.config;
+
+import jakarta.servlet.FilterChain;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class ServerTimingFilterTests {
+
+  private final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/transactions");
+  private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+  // Stands in for the security filter and the controller.
+  private final FilterChain chain =
+      (req, res) -> {
+        ServerTiming.record(ServerTiming.Phase.AUTH, 2_000_000);
+        ServerTiming.record(ServerTiming.Phase.LOCK, 1_500_000);
+        ServerTiming.record(ServerTiming.Phase.PASSWORD, 250_000);
+        ServerTiming.record(ServerTiming.Phase.PASSWORD, 250_000);
+        res.getOutputStream().write("{\"balance\":10}".getBytes(StandardCharsets.UTF_8));
+        res.flushBuffer();
+      };
+
+  @Test
+  public void filterShouldAddServerTimingWhenRequested() throws Exception {
+    request.addHeader(ServerTimingFilter.REQUEST_HEADER, "true");
+
+    new ServerTimingFilter(true).doFilter(request, response, chain);
+
+    String header = response.getHeader(ServerTimingFilter.RESPONSE_HEADER);
+    Assertions.assertNotNull(header);
+    Assertions.assertTrue(header.startsWith("auth;dur=2.000;desc=\"authentication\", "));
+    Assertions.assertTrue(header.contains("lock;dur=1.500;desc=\"row lock wait\""));
+    Assertions.assertTrue(header.contains("password;dur=0.500;desc=\"card password check x2\""));
+    Assertions.assertFalse(header.contains("commit"));
+    Assertions.assertTrue(header.contains("total;dur="));
+    Assertions.assertEquals("{\"balance\":10}", response.getContentAsString());
+  }
+
+  @Test
+  public void filterShouldPassStreamedResponsesThroughUnbuffered() throws Exception {
+    request.addHeader(ServerTimingFilter.REQUEST_HEADER, "true");
+    FilterChain streaming =
+        (req, res) -> {
+          res.setContentType("application/x-ndjson");
+          res.getOutputStream().write("{\"n\":1}\n".getBytes(StandardCharsets.UTF_8));
+          res.flushBuffer();
+          // Already on the wire before the body ends.
+          Assertions.assertEquals("{\"n\":1}\n", response.getContentAsString());
+          res.getOutputStream().write("{\"n\":2}\n".getBytes(StandardCharsets.UTF_8));
+        };
+
+    new ServerTimingFilter(true).doFilter(request, response, streaming);
+
+    Assertions.assertNull(response.getHeader(ServerTimingFilter.RESPONSE_HEADER));
+    Assertions.assertEquals("{\"n\":1}\n{\"n\":2}\n", response.getContentAsString());
+  }
+
+  @Test
+  public void filterShouldCommitStreamedResponsesFlushedBeforeTheFirstWrite() throws Exception {
+    request.addHeader(ServerTimingFilter.REQUEST_HEADER, "true");
+    FilterChain streaming =
+        (req, res) -> {
+          res.setContentType("text/csv");
+          res.flushBuffer();
+          Assertions.assertTrue(response.isCommitted());
+          res.getOutputStream().write("card_number,balance\n".getBytes(StandardCharsets.UTF_8));
+        };
+
+    new ServerTimingFilter(true).doFilter(request, response, streaming);
+
+    Assertions.assertNull(response.getHeader(ServerTimingFilter.RESPONSE_HEADER));
+    Assertions.assertEquals("card_number,balance\n", response.getContentAsString());
+  }
+
+  @Test
+  public void filterShouldNotTimeRequestsThatDidNotAsk() throws Exception {
+    new ServerTimingFilter(true).doFilter(request, response, chain);
+
+    Assertions.assertNull(response.getHeader(ServerTimingFilter.RESPONSE_HEADER));
+    Assertions.assertEquals("{\"balance\":10}", response.getContentAsString());
+  }
+
+  @Test
+  public void filterShouldIgnoreRequestHeaderWhenNotAllowed() throws Exception {
+    request.addHeader(ServerTimingFilter.REQUEST_HEADER, "true");
+
+    new ServerTimingFilter(false).doFilter(request, response, chain);
+
+    Assertions.assertNull(response.getHeader(ServerTimingFilter.RESPONSE_HEADER));
+  }
+
+  @Test
+  public void recordShouldBeIgnoredOutsideTimedRequests() {
+    ServerTiming.record(ServerTiming.Phase.COMMIT, 1_000_000);
+
+    Assertions.assertNull(ServerTiming.current());
+  }
+}
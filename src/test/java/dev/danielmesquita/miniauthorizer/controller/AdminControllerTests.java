@@ -0,0 +1,147 @@
+package dev.danielmesquita.miniauthorizer.controller;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import dev.danielmesquita.miniauthorizer.config.CustomAuthenticationEntryPoint;
+import dev.danielmesquita.miniauthorizer.config.SecurityConfig;
+import dev.danielmesquita.miniauthorizer.repository.CardRepository;
+import dev.danielmesquita.miniauthorizer.repository.UserRepository;
+import dev.danielmesquita.miniauthorizer.service.AccessTokenService;
+import dev.danielmesquita.miniauthorizer.service.AuthenticatedPrincipalCache;
+import dev.danielmesquita.miniauthorizer.service.CardExporter;
+import dev.danielmesquita.miniauthorizer.service.CustomAuthenticationProvider;
+import dev.danielmesquita.miniauthorizer.service.CustomUserDetailsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+@WebMvcTest(AdminController.class)
+@AutoConfigureMockMvc
+@Import({SecurityConfig.class, CustomAuthenticationEntryPoint.class})
+public class AdminControllerTests {
+
+  @Autowired private MockMvc mockMvc;
+
+  @MockitoBean private AuthenticatedPrincipalCache principalCache;
+
+  @MockitoBean private CardExporter cardExporter;
+
+  @MockitoBean CardRepository cardRepository;
+
+  @MockitoBean UserRepository userRepository;
+
+  @MockitoBean CustomUserDetailsService userDetailsService;
+
+  @MockitoBean private CustomAuthenticationProvider customAuthenticationProvider;
+
+  @MockitoBean private AccessTokenService accessTokenService;
+
+  private final String adminUsername = "admin@legit.com";
+  private final String clientUsername = "client@legit.com";
+  private final String rightUserPassword = "realstrongpassword";
+  private final String encryptedUserPassword =
+      new BCryptPasswordEncoder().encode(rightUserPassword);
+
+  @BeforeEach
+  public void setUp() {
+    when(userDetailsService.loadUserByUsername(adminUsername))
+        .thenReturn(
+            User.builder()
+                .username(adminUsername)
+                .password(encryptedUserPassword)
+                .roles("ADMIN")
+                .build());
+    when(userDetailsService.loadUserByUsername(clientUsername))
+        .thenReturn(
+            User.builder()
+                .username(clientUsername)
+                .password(encryptedUserPassword)
+                .roles("CLIENT")
+                .build());
+  }
+
+  @Test
+  public void evictPrincipalShouldReturnNoContentForAdmin() throws Exception {
+    mockMvc
+        .perform(
+            delete("/admin/principal-cache/" + clientUsername)
+                .with(httpBasic(adminUsername, rightUserPassword)))
+        .andExpect(status().isNoContent());
+
+    Mockito.verify(principalCache).evict(clientUsername);
+  }
+
+  @Test
+  public void evictAllPrincipalsShouldReturnNoContentForAdmin() throws Exception {
+    mockMvc
+        .perform(delete("/admin/principal-cache").with(httpBasic(adminUsername, rightUserPassword)))
+        .andExpect(status().isNoContent());
+
+    Mockito.verify(principalCache).evictAll();
+  }
+
+  @Test
+  public void evictPrincipalShouldReturnForbiddenForNonAdmin() throws Exception {
+    mockMvc
+        .perform(
+            delete("/admin/principal-cache/" + adminUsername)
+                .with(httpBasic(clientUsername, rightUserPassword)))
+        .andExpect(status().isForbidden());
+
+    Mockito.verifyNoInteractions(principalCache);
+  }
+
+  @Test
+  public void evictPrincipalShouldReturnUnauthorizedWhenNoCredentials() throws Exception {
+    mockMvc
+        .perform(delete("/admin/principal-cache/" + adminUsername))
+        .andExpect(status().isUnauthorized());
+  }
+
+  @Test
+  public void exportCardsShouldStreamNdjsonByDefault() throws Exception {
+    mockMvc
+        .perform(get("/admin/cards/export").with(httpBasic(adminUsername, rightUserPassword)))
+        .andExpect(status().isOk())
+        .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON));
+
+    Mockito.verify(cardExporter).writeNdjson(ArgumentMatchers.any());
+  }
+
+  @Test
+  public void exportCardsShouldWriteCsvWhenAsked() throws Exception {
+    mockMvc
+        .perform(
+            get("/admin/cards/export")
+                .accept("text/csv")
+                .with(httpBasic(adminUsername, rightUserPassword)))
+        .andExpect(status().isOk())
+        .andExpect(content().contentTypeCompatibleWith("text/csv"));
+
+    Mockito.verify(cardExporter).writeCsv(ArgumentMatchers.any());
+  }
+
+  @Test
+  public void exportCardsShouldReturnForbiddenForNonAdmin() throws Exception {
+    mockMvc
+        .perform(get("/admin/cards/export").with(httpBasic(clientUsername, rightUserPassword)))
+        .andExpect(status().isForbidden());
+
+    Mockito.verifyNoInteractions(cardExporter);
+  }
+}
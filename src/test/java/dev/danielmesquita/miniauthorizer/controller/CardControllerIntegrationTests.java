@@ -10,12 +10,15 @@ import dev.danielmesquita.miniauthorizer.config.CustomAuthenticationEntryPoint;
 import dev.danielmesquita.miniauthorizer.config.SecurityConfig;
 import dev.danielmesquita.miniauthorizer.dto.CardDTO;
 import dev.danielmesquita.miniauthorizer.dto.TransactionDTO;
+import dev.danielmesquita.miniauthorizer.entity.Money;
 import dev.danielmesquita.miniauthorizer.enums.TransactionStatus;
 import dev.danielmesquita.miniauthorizer.exception.CardAlreadyExistsException;
 import dev.danielmesquita.miniauthorizer.exception.ResourceNotFoundException;
 import dev.danielmesquita.miniauthorizer.exception.TransactionException;
 import dev.danielmesquita.miniauthorizer.repository.CardRepository;
 import dev.danielmesquita.miniauthorizer.repository.UserRepository;
+import dev.danielmesquita.miniauthorizer.service.AccessTokenService;
+import dev.danielmesquita.miniauthorizer.service.CardProvisioner;
 import dev.danielmesquita.miniauthorizer.service.CardService;
 import dev.danielmesquita.miniauthorizer.service.CustomAuthenticationProvider;
 import dev.danielmesquita.miniauthorizer.service.CustomUserDetailsService;
@@ -46,6 +49,8 @@ public class CardControllerIntegrationTests {
 
   @MockitoBean private CardService service;
 
+  @MockitoBean private CardProvisioner cardProvisioner;
+
   @MockitoBean CardRepository cardRepository;
 
   @MockitoBean UserRepository userRepository;
@@ -54,6 +59,8 @@ public class CardControllerIntegrationTests {
 
   @MockitoBean private CustomAuthenticationProvider customAuthenticationProvider;
 
+  @MockitoBean private AccessTokenService accessTokenService;
+
   @Autowired private ObjectMapper objectMapper;
 
   private CardDTO cardDTO;
@@ -128,7 +135,7 @@ public class CardControllerIntegrationTests {
 
   @Test
   public void getCardBalanceShouldReturnOkWhenCardExists() throws Exception {
-    when(service.getBalance(cardDTO.getCardNumber())).thenReturn(new BigDecimal("500.00"));
+    when(service.getBalance(cardDTO.getCardNumber())).thenReturn(Money.ofCents(500_00));
     mockMvc
         .perform(
             MockMvcRequestBuilders.get("/cards/" + cardDTO.getCardNumber())
@@ -161,7 +168,7 @@ public class CardControllerIntegrationTests {
 
   @Test
   public void transactionShouldReturnUnprocessableWhenInsufficientBalance() throws Exception {
-    when(service.executeTransaction(Mockito.any(TransactionDTO.class)))
+    when(service.executeTransaction(Mockito.any(TransactionDTO.class), Mockito.any()))
         .thenThrow(new TransactionException(TransactionStatus.SALDO_INSUFICIENTE));
     TransactionDTO transactionDTO = new TransactionDTO();
     transactionDTO.setCardNumber(cardDTO.getCardNumber());
@@ -180,7 +187,7 @@ public class CardControllerIntegrationTests {
 
   @Test
   public void transactionShouldReturnUnprocessableWhenCardDoesNotExist() throws Exception {
-    when(service.executeTransaction(Mockito.any(TransactionDTO.class)))
+    when(service.executeTransaction(Mockito.any(TransactionDTO.class), Mockito.any()))
         .thenThrow(new TransactionException(TransactionStatus.CARTAO_INEXISTENTE));
     TransactionDTO transactionDTO = new TransactionDTO();
     transactionDTO.setCardNumber("0000000000000000");
@@ -199,7 +206,7 @@ public class CardControllerIntegrationTests {
 
   @Test
   public void transactionShouldReturnUnprocessableWhenPasswordIsWrong() throws Exception {
-    when(service.executeTransaction(Mockito.any(TransactionDTO.class)))
+    when(service.executeTransaction(Mockito.any(TransactionDTO.class), Mockito.any()))
         .thenThrow(new TransactionException(TransactionStatus.SENHA_INVALIDA));
     TransactionDTO transactionDTO = new TransactionDTO();
     transactionDTO.setCardNumber(cardDTO.getCardNumber());
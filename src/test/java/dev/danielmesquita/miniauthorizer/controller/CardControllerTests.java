@@ -3,20 +3,31 @@ package dev.danielmesquita.miniauthorizer.controller;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import dev.danielmesquita.miniauthorizer.config.CustomAuthenticationEntryPoint;
 import dev.danielmesquita.miniauthorizer.config.SecurityConfig;
+import dev.danielmesquita.miniauthorizer.dto.BatchTransactionDTO;
+import dev.danielmesquita.miniauthorizer.dto.CardCreationResultDTO;
 import dev.danielmesquita.miniauthorizer.dto.CardDTO;
 import dev.danielmesquita.miniauthorizer.dto.TransactionDTO;
+import dev.danielmesquita.miniauthorizer.dto.TransactionResultDTO;
+import dev.danielmesquita.miniauthorizer.enums.CardCreationStatus;
+import dev.danielmesquita.miniauthorizer.enums.TransactionStatus;
 import dev.danielmesquita.miniauthorizer.exception.CardAlreadyExistsException;
 import dev.danielmesquita.miniauthorizer.repository.CardRepository;
 import dev.danielmesquita.miniauthorizer.repository.UserRepository;
+import dev.danielmesquita.miniauthorizer.service.AccessTokenService;
+import dev.danielmesquita.miniauthorizer.service.CardProvisioner;
 import dev.danielmesquita.miniauthorizer.service.CardService;
 import dev.danielmesquita.miniauthorizer.service.CustomAuthenticationProvider;
 import dev.danielmesquita.miniauthorizer.service.CustomUserDetailsService;
 import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -42,6 +53,8 @@ public class CardControllerTests {
 
   @MockitoBean private CardService service;
 
+  @MockitoBean private CardProvisioner cardProvisioner;
+
   @MockitoBean CardRepository cardRepository;
 
   @MockitoBean UserRepository userRepository;
@@ -50,6 +63,8 @@ public class CardControllerTests {
 
   @MockitoBean private CustomAuthenticationProvider customAuthenticationProvider;
 
+  @MockitoBean private AccessTokenService accessTokenService;
+
   @Autowired private ObjectMapper objectMapper;
 
   private CardDTO cardDTO;
@@ -169,7 +184,8 @@ public class CardControllerTests {
 
   @Test
   public void transactionShouldReturnCardDTOWhenPasswordIsRight() throws Exception {
-    when(service.executeTransaction(Mockito.any(TransactionDTO.class))).thenReturn(cardDTO);
+    when(service.executeTransaction(Mockito.any(TransactionDTO.class), Mockito.any()))
+        .thenReturn(cardDTO);
     String jsonBody = objectMapper.writeValueAsString(transactionDTO);
 
     ResultActions resultActions =
@@ -185,6 +201,135 @@ public class CardControllerTests {
     resultActions.andExpect(jsonPath("$.cardNumber").value(cardDTO.getCardNumber()));
   }
 
+  @Test
+  public void createCardsShouldReturnStatusForEachCard() throws Exception {
+    when(cardProvisioner.createCards(Mockito.anyList()))
+        .thenReturn(
+            List.of(
+                new CardCreationResultDTO(cardDTO.getCardNumber(), CardCreationStatus.CREATED),
+                new CardCreationResultDTO(
+                    cardDTO.getCardNumber(), CardCreationStatus.ALREADY_EXISTS)));
+    String jsonBody = objectMapper.writeValueAsString(List.of(cardDTO, cardDTO));
+
+    mockMvc
+        .perform(
+            post("/cards/bulk")
+                .content(jsonBody)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .with(httpBasic(rightUsername, rightUserPassword)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].status").value("CREATED"))
+        .andExpect(jsonPath("$[1].status").value("ALREADY_EXISTS"));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void createCardStreamShouldAnswerEachLineWithOneResultLine() throws Exception {
+    Mockito.doAnswer(
+            invocation -> {
+              Iterator<CardDTO> cards = invocation.getArgument(0);
+              Consumer<CardCreationResultDTO> results = invocation.getArgument(1);
+              cards.forEachRemaining(
+                  card ->
+                      results.accept(
+                          new CardCreationResultDTO(
+                              card.getCardNumber(),
+                              card.getCardNumber() == null
+                                  ? CardCreationStatus.INVALID
+                                  : CardCreationStatus.CREATED)));
+              return null;
+            })
+        .when(cardProvisioner)
+        .createCards(Mockito.any(Iterator.class), Mockito.any(Consumer.class));
+    String body = objectMapper.writeValueAsString(cardDTO) + "\n\nnot json\n";
+
+    mockMvc
+        .perform(
+            post("/cards/bulk")
+                .content(body)
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .with(httpBasic(rightUsername, rightUserPassword)))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+        .andExpect(
+            content()
+                .string(
+                    "{\"cardNumber\":\"1234567890123456\",\"status\":\"CREATED\"}\n"
+                        + "{\"cardNumber\":null,\"status\":\"INVALID\"}\n"));
+  }
+
+  @Test
+  public void transactionBatchShouldReturnStatusForEachItem() throws Exception {
+    when(service.executeBatch(Mockito.anyList()))
+        .thenReturn(
+            List.of(
+                new TransactionResultDTO(transactionDTO.getCardNumber(), TransactionStatus.OK),
+                new TransactionResultDTO(
+                    transactionDTO.getCardNumber(), TransactionStatus.SALDO_INSUFICIENTE)));
+    String jsonBody =
+        objectMapper.writeValueAsString(
+            new BatchTransactionDTO(List.of(transactionDTO, transactionDTO)));
+
+    mockMvc
+        .perform(
+            post("/transactions/batch")
+                .content(jsonBody)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .with(httpBasic(rightUsername, rightUserPassword)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].status").value("OK"))
+        .andExpect(jsonPath("$[1].status").value("SALDO_INSUFICIENTE"));
+  }
+
+  @Test
+  public void transactionBatchShouldReturnBadRequestWhenBatchIsEmpty() throws Exception {
+    String jsonBody = objectMapper.writeValueAsString(new BatchTransactionDTO(List.of()));
+
+    mockMvc
+        .perform(
+            post("/transactions/batch")
+                .content(jsonBody)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .with(httpBasic(rightUsername, rightUserPassword)))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void transactionShouldPassIdempotencyKeyToService() throws Exception {
+    when(service.executeTransaction(Mockito.any(TransactionDTO.class), Mockito.eq("key-1")))
+        .thenReturn(cardDTO);
+    String jsonBody = objectMapper.writeValueAsString(transactionDTO);
+
+    mockMvc
+        .perform(
+            post("/transactions")
+                .header("Idempotency-Key", "key-1")
+                .content(jsonBody)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .with(httpBasic(rightUsername, rightUserPassword)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.cardNumber").value(cardDTO.getCardNumber()));
+  }
+
+  @Test
+  public void transactionShouldReturnBadRequestWhenCardNumberIsTooLong() throws Exception {
+    transactionDTO.setCardNumber("1".repeat(256));
+    String jsonBody = objectMapper.writeValueAsString(transactionDTO);
+
+    mockMvc
+        .perform(
+            post("/transactions")
+                .content(jsonBody)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .with(httpBasic(rightUsername, rightUserPassword)))
+        .andExpect(status().isBadRequest());
+  }
+
   @Test
   public void transactionShouldReturnBadRequestWhenValueIsNegative() throws Exception {
     transactionDTO.setValue(new BigDecimal("-10.00"));
@@ -200,6 +345,21 @@ public class CardControllerTests {
         .andExpect(status().isBadRequest());
   }
 
+  @Test
+  public void transactionShouldReturnBadRequestWhenValueHasFractionsOfCent() throws Exception {
+    transactionDTO.setValue(new BigDecimal("10.001"));
+    String jsonBody = objectMapper.writeValueAsString(transactionDTO);
+
+    mockMvc
+        .perform(
+            post("/transactions")
+                .content(jsonBody)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .with(httpBasic(rightUsername, rightUserPassword)))
+        .andExpect(status().isBadRequest());
+  }
+
   @Test
   public void transactionShouldReturnBadRequestWhenValueIsNull() throws Exception {
     transactionDTO.setValue(null);
@@ -0,0 +1,131 @@
+package dev.danielmesquita.miniauthorizer.controller;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import dev.danielmesquita.miniauthorizer.config.CustomAuthenticationEntryPoint;
+import dev.danielmesquita.miniauthorizer.config.SecurityConfig;
+import dev.danielmesquita.miniauthorizer.entity.Money;
+import dev.danielmesquita.miniauthorizer.repository.CardRepository;
+import dev.danielmesquita.miniauthorizer.repository.UserRepository;
+import dev.danielmesquita.miniauthorizer.service.AccessTokenService;
+import dev.danielmesquita.miniauthorizer.service.CardProvisioner;
+import dev.danielmesquita.miniauthorizer.service.CardService;
+import dev.danielmesquita.miniauthorizer.service.CustomAuthenticationProvider;
+import dev.danielmesquita.miniauthorizer.service.CustomUserDetailsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+@WebMvcTest({TokenController.class, CardController.class})
+@AutoConfigureMockMvc
+@Import({SecurityConfig.class, CustomAuthenticationEntryPoint.class, AccessTokenService.class})
+public class TokenControllerTests {
+
+  @Autowired private MockMvc mockMvc;
+
+  @Autowired private ObjectMapper objectMapper;
+
+  @MockitoBean private CardService service;
+
+  @MockitoBean private CardProvisioner cardProvisioner;
+
+  @MockitoBean CardRepository cardRepository;
+
+  @MockitoBean UserRepository userRepository;
+
+  @MockitoBean CustomUserDetailsService userDetailsService;
+
+  @MockitoBean private CustomAuthenticationProvider customAuthenticationProvider;
+
+  private final String cardNumber = "1234567890123456";
+  private final String rightUsername = "realuser@legit.com";
+  private final String rightUserPassword = "realstrongpassword";
+  private final String encryptedUserPassword =
+      new BCryptPasswordEncoder().encode(rightUserPassword);
+
+  @BeforeEach
+  public void setUp() {
+    when(userDetailsService.loadUserByUsername(rightUsername))
+        .thenReturn(
+            User.builder()
+                .username(rightUsername)
+                .password(encryptedUserPassword)
+                .roles("USER")
+                .build());
+    when(service.getBalance(cardNumber)).thenReturn(Money.ofCents(500_00));
+  }
+
+  @Test
+  public void issueTokenShouldReturnBearerTokenForBasicCredentials() throws Exception {
+    mockMvc
+        .perform(post("/auth/token").with(httpBasic(rightUsername, rightUserPassword)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.tokenType").value("Bearer"))
+        .andExpect(jsonPath("$.expiresIn").value(300));
+  }
+
+  @Test
+  public void issueTokenShouldReturnUnauthorizedWithoutCredentials() throws Exception {
+    mockMvc.perform(post("/auth/token")).andExpect(status().isUnauthorized());
+  }
+
+  @Test
+  public void bearerTokenShouldAuthenticateWithoutCheckingThePassword() throws Exception {
+    String token = issueToken();
+    Mockito.clearInvocations(userDetailsService);
+
+    mockMvc
+        .perform(
+            get("/cards/" + cardNumber).header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+        .andExpect(status().isOk());
+
+    Mockito.verifyNoInteractions(userDetailsService);
+  }
+
+  @Test
+  public void tamperedBearerTokenShouldReturnUnauthorized() throws Exception {
+    String token = issueToken();
+    String tampered = token.substring(0, token.length() - 2) + "AA";
+
+    mockMvc
+        .perform(
+            get("/cards/" + cardNumber).header(HttpHeaders.AUTHORIZATION, "Bearer " + tampered))
+        .andExpect(status().isUnauthorized());
+  }
+
+  @Test
+  public void bearerTokenShouldNotIssueNewTokens() throws Exception {
+    String token = issueToken();
+
+    mockMvc
+        .perform(post("/auth/token").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+        .andExpect(status().isUnauthorized());
+  }
+
+  private String issueToken() throws Exception {
+    String body =
+        mockMvc
+            .perform(post("/auth/token").with(httpBasic(rightUsername, rightUserPassword)))
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    JsonNode json = objectMapper.readTree(body);
+    return json.get("accessToken").asString();
+  }
+}
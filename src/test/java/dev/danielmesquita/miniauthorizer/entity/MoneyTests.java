@@ -0,0 +1,44 @@
+package dev.danielmesquita.miniauthorizer.entity;
+
+import java.math.BigDecimal;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class MoneyTests {
+
+  @Test
+  public void ofShouldConvertDecimalAmountToCents() {
+    Assertions.assertEquals(12_345L, Money.of(new BigDecimal("123.45")).cents());
+    Assertions.assertEquals(50_00L, Money.of(new BigDecimal("50")).cents());
+    Assertions.assertEquals(10L, Money.of(new BigDecimal("0.1")).cents());
+    Assertions.assertEquals(-99_999_999_999L, Money.of(new BigDecimal("-999999999.99")).cents());
+    Assertions.assertEquals(123_456_789_012_345_67L, Money.of(new BigDecimal("123456789012345.67")).cents());
+    Assertions.assertEquals(5_000L, Money.of(new BigDecimal("5E+1")).cents());
+  }
+
+  @Test
+  public void ofShouldRejectFractionsOfCent() {
+    Assertions.assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("1.001")));
+  }
+
+  @Test
+  public void toBigDecimalShouldKeepTwoDecimalPlaces() {
+    Assertions.assertEquals(new BigDecimal("500.00"), Money.ofCents(500_00).toBigDecimal());
+    Assertions.assertEquals(new BigDecimal("-0.05"), Money.ofCents(-5).toBigDecimal());
+  }
+
+  @Test
+  public void minusShouldSubtractAndDetectNegativeResults() {
+    Money balance = Money.ofCents(20_00);
+
+    Assertions.assertEquals(Money.ofCents(5_50), balance.minus(Money.ofCents(14_50)));
+    Assertions.assertTrue(balance.minus(Money.ofCents(20_01)).isNegative());
+    Assertions.assertFalse(balance.minus(balance).isNegative());
+  }
+
+  @Test
+  public void minusShouldFailOnOverflow() {
+    Assertions.assertThrows(
+        ArithmeticException.class, () -> Money.ofCents(Long.MIN_VALUE).minus(Money.ofCents(1)));
+  }
+}
@@ -0,0 +1,24 @@
+package dev.danielmesquita.miniauthorizer.jfr;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CardHashTests {
+
+  @Test
+  public void configuredKeyShouldHashCardsTheSameWayInEveryProcess() {
+    new CardHashKey("c2VjcmV0LWNhcmQtaGFzaC1rZXktZm9yLXRlc3RzLTAx");
+
+    // First 8 bytes of HMAC-SHA256 under that key, as any other process computes them.
+    Assertions.assertEquals("7b0c154188b1a276", CardHash.of("1234567890123456"));
+  }
+
+  @Test
+  public void blankKeyShouldKeepTheCurrentKey() {
+    String before = CardHash.of("1234567890123456");
+
+    new CardHashKey("");
+
+    Assertions.assertEquals(before, CardHash.of("1234567890123456"));
+  }
+}
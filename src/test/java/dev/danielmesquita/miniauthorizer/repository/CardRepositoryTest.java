@@ -1,7 +1,9 @@
 package dev.danielmesquita.miniauthorizer.repository;
 
 import dev.danielmesquita.miniauthorizer.entity.Card;
+import dev.danielmesquita.miniauthorizer.entity.Money;
 import dev.danielmesquita.miniauthorizer.utils.Factory;
+import java.util.List;
 import java.util.Optional;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -61,4 +63,50 @@ public class CardRepositoryTest {
     Optional<Card> result = repository.findByCardNumberForUpdate(existingCardNumber);
     Assertions.assertTrue(result.isPresent());
   }
+
+  @Test
+  public void findAllByCardNumberInForUpdateShouldReturnExistingCardsOrderedByCardNumber() {
+    card.setCardNumber(existingCardNumber);
+    repository.save(card);
+    repository.save(new Card(null, "1000000000000000", "hash", Money.ofCents(10_00)));
+
+    List<Card> result =
+        repository.findAllByCardNumberInForUpdate(
+            List.of(existingCardNumber, nonExistingCardNumber, "1000000000000000"));
+
+    Assertions.assertEquals(
+        List.of("1000000000000000", existingCardNumber),
+        result.stream().map(Card::getCardNumber).toList());
+  }
+
+  @Test
+  public void debitShouldSubtractValueWhenBalanceIsSufficient() {
+    card.setCardNumber(existingCardNumber);
+    card.setBalance(Money.ofCents(100_00));
+    repository.save(card);
+
+    int updated = repository.debit(existingCardNumber, 40_00);
+
+    Assertions.assertEquals(1, updated);
+    Assertions.assertEquals(
+        60_00L, repository.findBalanceCentsByCardNumber(existingCardNumber).orElseThrow());
+  }
+
+  @Test
+  public void debitShouldNotUpdateWhenBalanceIsInsufficient() {
+    card.setCardNumber(existingCardNumber);
+    card.setBalance(Money.ofCents(10_00));
+    repository.save(card);
+
+    int updated = repository.debit(existingCardNumber, 40_00);
+
+    Assertions.assertEquals(0, updated);
+    Assertions.assertEquals(
+        10_00L, repository.findBalanceCentsByCardNumber(existingCardNumber).orElseThrow());
+  }
+
+  @Test
+  public void debitShouldNotUpdateWhenCardNumberDoesNotExist() {
+    Assertions.assertEquals(0, repository.debit(nonExistingCardNumber, 1));
+  }
 }
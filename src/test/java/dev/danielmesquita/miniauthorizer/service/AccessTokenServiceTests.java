@@ -0,0 +1,86 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import dev.danielmesquita.miniauthorizer.dto.AccessTokenDTO;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+public class AccessTokenServiceTests {
+
+  private final ObjectMapper objectMapper = JsonMapper.builder().build();
+  private final String secret = Base64.getEncoder().encodeToString(new byte[32]);
+
+  private final Authentication authentication =
+      UsernamePasswordAuthenticationToken.authenticated(
+          "realuser@legit.com", null, List.of(new SimpleGrantedAuthority("ROLE_USER")));
+
+  @Test
+  public void authenticateShouldReturnPrincipalAndRolesFromIssuedToken() {
+    AccessTokenService service =
+        new AccessTokenService(objectMapper, secret, Duration.ofMinutes(5));
+
+    AccessTokenDTO token = service.issue(authentication);
+    Authentication result = service.authenticate(token.getAccessToken()).orElseThrow();
+
+    Assertions.assertEquals("realuser@legit.com", result.getName());
+    Assertions.assertTrue(result.isAuthenticated());
+    Assertions.assertEquals(
+        List.of("ROLE_USER"),
+        result.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+    Assertions.assertEquals(300L, token.getExpiresIn());
+  }
+
+  @Test
+  public void authenticateShouldRejectTokenSignedWithAnotherKey() {
+    AccessTokenService issuer = new AccessTokenService(objectMapper, "", Duration.ofMinutes(5));
+    AccessTokenService service =
+        new AccessTokenService(objectMapper, secret, Duration.ofMinutes(5));
+
+    String token = issuer.issue(authentication).getAccessToken();
+
+    Assertions.assertEquals(Optional.empty(), service.authenticate(token));
+  }
+
+  @Test
+  public void authenticateShouldRejectTamperedPayload() {
+    AccessTokenService service =
+        new AccessTokenService(objectMapper, secret, Duration.ofMinutes(5));
+    String[] parts = service.issue(authentication).getAccessToken().split("\\.");
+    String forgedPayload =
+        Base64.getUrlEncoder()
+            .withoutPadding()
+            .encodeToString(
+                "{\"sub\":\"admin\",\"roles\":[\"ROLE_ADMIN\"],\"iat\":0,\"exp\":9999999999}"
+                    .getBytes());
+
+    Assertions.assertEquals(
+        Optional.empty(), service.authenticate(parts[0] + '.' + forgedPayload + '.' + parts[2]));
+  }
+
+  @Test
+  public void authenticateShouldRejectExpiredToken() {
+    AccessTokenService service = new AccessTokenService(objectMapper, secret, Duration.ZERO);
+
+    String token = service.issue(authentication).getAccessToken();
+
+    Assertions.assertEquals(Optional.empty(), service.authenticate(token));
+  }
+
+  @Test
+  public void authenticateShouldRejectMalformedToken() {
+    AccessTokenService service =
+        new AccessTokenService(objectMapper, secret, Duration.ofMinutes(5));
+
+    Assertions.assertEquals(Optional.empty(), service.authenticate("not-a-token"));
+    Assertions.assertEquals(Optional.empty(), service.authenticate("a.b.c"));
+  }
+}
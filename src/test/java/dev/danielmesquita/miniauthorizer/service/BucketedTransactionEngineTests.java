@@ -0,0 +1,202 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import dev.danielmesquita.miniauthorizer.dto.CardDTO;
+import dev.danielmesquita.miniauthorizer.dto.TransactionDTO;
+import dev.danielmesquita.miniauthorizer.entity.CardBucket;
+import dev.danielmesquita.miniauthorizer.entity.Money;
+import dev.danielmesquita.miniauthorizer.enums.TransactionStatus;
+import dev.danielmesquita.miniauthorizer.exception.TransactionException;
+import dev.danielmesquita.miniauthorizer.repository.CardBucketRepository;
+import dev.danielmesquita.miniauthorizer.repository.CardRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+// Every lock wait counts as contended, so a card is split after its third debit.
+@SpringBootTest(
+    properties = {
+      "authorizer.transaction.mode=bucketed",
+      "authorizer.bucketed.buckets=4",
+      "authorizer.bucketed.contended-lock-ms=0",
+      "authorizer.bucketed.hot-threshold=3",
+      "spring.jpa.show-sql=false"
+    })
+public class BucketedTransactionEngineTests {
+
+  @Autowired private CardService cardService;
+  @Autowired private BucketedTransactionEngine engine;
+  @Autowired private CardRepository cardRepository;
+  @Autowired private CardBucketRepository bucketRepository;
+  @Autowired private CardPasswordVerifier passwordVerifier;
+  @Autowired private PlatformTransactionManager transactionManager;
+  @Autowired private MeterRegistry meterRegistry;
+
+  private final String password = "1234";
+
+  @BeforeEach
+  void setup() {
+    bucketRepository.deleteAll();
+    cardRepository.deleteAll();
+  }
+
+  @Test
+  void hotCardShouldBeSplitIntoBucketsThatSumToItsBalance() {
+    String cardNumber = createCard("71000001");
+
+    for (int i = 0; i < 3; i++) {
+      cardService.executeTransaction(debit(cardNumber, "10.01"));
+    }
+
+    Assertions.assertTrue(engine.isSplit(cardNumber));
+    Assertions.assertEquals(
+        0L, cardRepository.findBalanceCentsByCardNumber(cardNumber).orElseThrow());
+    List<CardBucket> buckets = bucketRepository.findAll();
+    Assertions.assertEquals(4, buckets.size());
+    Assertions.assertEquals(
+        List.of(117_50L, 117_49L, 117_49L, 117_49L),
+        buckets.stream()
+            .sorted(Comparator.comparingInt(CardBucket::getBucket))
+            .map(bucket -> bucket.getBalance().cents())
+            .toList());
+    Assertions.assertEquals(Money.ofCents(469_97), cardService.getBalance(cardNumber));
+
+    CardDTO result = cardService.executeTransaction(debit(cardNumber, "0.97"));
+
+    Assertions.assertEquals(new BigDecimal("469.00"), result.getBalance());
+    Assertions.assertEquals(Money.ofCents(469_00), cardService.getBalance(cardNumber));
+  }
+
+  @Test
+  void concurrentDebitsOnSplitCardShouldRebalanceWithoutOverdraft() throws Exception {
+    String cardNumber = createCard("71000002");
+    for (int i = 0; i < 3; i++) {
+      cardService.executeTransaction(debit(cardNumber, "10.00"));
+    }
+    Assertions.assertTrue(engine.isSplit(cardNumber));
+
+    // 470.00 left: 47 of the 60 debits fit, and every bucket runs dry along the way.
+    List<Future<TransactionStatus>> results = new ArrayList<>();
+    try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+      for (int i = 0; i < 60; i++) {
+        results.add(
+            executor.submit(
+                () -> {
+                  try {
+                    cardService.executeTransaction(debit(cardNumber, "10.00"));
+                    return TransactionStatus.OK;
+                  } catch (TransactionException e) {
+                    return e.getStatus();
+                  }
+                }));
+      }
+    }
+
+    long approved = 0;
+    for (Future<TransactionStatus> result : results) {
+      TransactionStatus status = result.get();
+      Assertions.assertTrue(
+          status == TransactionStatus.OK || status == TransactionStatus.SALDO_INSUFICIENTE);
+      approved += status == TransactionStatus.OK ? 1 : 0;
+    }
+    Assertions.assertEquals(47, approved);
+    Assertions.assertEquals(Money.ZERO, cardService.getBalance(cardNumber));
+    Assertions.assertTrue(engine.getRebalanceCount() > 0);
+    for (CardBucket bucket : bucketRepository.findAll()) {
+      Assertions.assertFalse(bucket.getBalance().isNegative());
+    }
+  }
+
+  @Test
+  void cardSplitByAnotherInstanceShouldReportAndDebitItsBuckets() {
+    // Both started before the split, so neither has loaded it.
+    BucketedTransactionEngine reader = otherInstance();
+    BucketedTransactionEngine debitor = otherInstance();
+    String cardNumber = createCard("71000004");
+    for (int i = 0; i < 3; i++) {
+      cardService.executeTransaction(debit(cardNumber, "10.00"));
+    }
+
+    Assertions.assertEquals(Money.ofCents(470_00), reader.findBalance(cardNumber).orElseThrow());
+    Assertions.assertTrue(reader.isSplit(cardNumber));
+    CardDTO result = debitor.execute(debit(cardNumber, "20.00"));
+    Assertions.assertEquals(new BigDecimal("450.00"), result.getBalance());
+    Assertions.assertTrue(debitor.isSplit(cardNumber));
+  }
+
+  @Test
+  void coldCardShouldStayOnItsRow() {
+    String cardNumber = createCard("71000003");
+
+    cardService.executeTransaction(debit(cardNumber, "10.00"));
+    TransactionException exception =
+        Assertions.assertThrows(
+            TransactionException.class,
+            () -> cardService.executeTransaction(debit(cardNumber, "600.00")));
+
+    Assertions.assertEquals(TransactionStatus.SALDO_INSUFICIENTE, exception.getStatus());
+    Assertions.assertFalse(engine.isSplit(cardNumber));
+    Assertions.assertEquals(Money.ofCents(490_00), cardService.getBalance(cardNumber));
+  }
+
+  @Test
+  void unsplitCardShouldFallThroughToTheBalanceCacheUntilItsCheckExpires() {
+    BucketedTransactionEngine reader = otherInstance(Duration.ofMinutes(1));
+    String cardNumber = createCard("71000005");
+
+    Assertions.assertEquals(Money.ofCents(500_00), reader.findBalance(cardNumber).orElseThrow());
+    Assertions.assertTrue(reader.findBalance(cardNumber).isEmpty());
+    Assertions.assertFalse(reader.isSplit(cardNumber));
+
+    BucketedTransactionEngine rechecking = otherInstance(Duration.ZERO);
+    for (int i = 0; i < 3; i++) {
+      cardService.executeTransaction(debit(cardNumber, "10.00"));
+    }
+    Assertions.assertEquals(
+        Money.ofCents(470_00), rechecking.findBalance(cardNumber).orElseThrow());
+    Assertions.assertEquals(
+        Money.ofCents(470_00), rechecking.findBalance(cardNumber).orElseThrow());
+    Assertions.assertTrue(rechecking.isSplit(cardNumber));
+  }
+
+  private BucketedTransactionEngine otherInstance() {
+    return otherInstance(Duration.ofSeconds(2));
+  }
+
+  private BucketedTransactionEngine otherInstance(Duration splitCheckTtl) {
+    return new BucketedTransactionEngine(
+        cardRepository,
+        bucketRepository,
+        passwordVerifier,
+        transactionManager,
+        4,
+        0,
+        3,
+        Duration.ofSeconds(10),
+        splitCheckTtl,
+        meterRegistry);
+  }
+
+  private String createCard(String cardNumber) {
+    CardDTO cardDTO = new CardDTO();
+    cardDTO.setCardNumber(cardNumber);
+    cardDTO.setPassword(password);
+    cardService.createCard(cardDTO);
+    return cardNumber;
+  }
+
+  private TransactionDTO debit(String cardNumber, String value) {
+    return new TransactionDTO(cardNumber, password, new BigDecimal(value));
+  }
+}
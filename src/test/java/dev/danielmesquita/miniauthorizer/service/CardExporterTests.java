@@ -0,0 +1,95 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import dev.danielmesquita.miniauthorizer.entity.Card;
+import dev.danielmesquita.miniauthorizer.entity.CardBucket;
+import dev.danielmesquita.miniauthorizer.entity.Money;
+import dev.danielmesquita.miniauthorizer.repository.CardRepository;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+import tools.jackson.databind.json.JsonMapper;
+
+@DataJpaTest
+@ActiveProfiles("test")
+public class CardExporterTests {
+
+  @Autowired private CardRepository repository;
+  @Autowired private TestEntityManager entityManager;
+  @Autowired private DataSource dataSource;
+
+  private CardExporter exporter;
+
+  @BeforeEach
+  public void setUp() {
+    // A fetch size smaller than the table, so rows come in several round trips.
+    exporter = new CardExporter(dataSource, JsonMapper.builder().build(), 2);
+    repository.deleteAll();
+    repository.save(new Card(null, "1000000000000001", "hash-1", Money.ofCents(500_00)));
+    repository.save(new Card(null, "1000000000000002", "hash-2", Money.ofCents(12_34)));
+    repository.save(new Card(null, "card,\"3\"", "hash-3", Money.ofCents(5)));
+    entityManager.flush();
+  }
+
+  @Test
+  public void writeNdjsonShouldWriteOneLinePerCardInIdOrder() {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    long cards = exporter.writeNdjson(out);
+
+    Assertions.assertEquals(3, cards);
+    Assertions.assertEquals(
+        """
+        {"cardNumber":"1000000000000001","balance":500.00}
+        {"cardNumber":"1000000000000002","balance":12.34}
+        {"cardNumber":"card,\\"3\\"","balance":0.05}
+        """,
+        out.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void writeCsvShouldQuoteCardNumbersThatNeedIt() {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    long cards = exporter.writeCsv(out);
+
+    Assertions.assertEquals(3, cards);
+    Assertions.assertEquals(
+        """
+        card_number,balance
+        1000000000000001,500.00
+        1000000000000002,12.34
+        "card,""3\""",0.05
+        """,
+        out.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void writeCsvShouldAddTheBucketsOfSplitCards() {
+    entityManager.persist(new CardBucket("1000000000000002", 0, Money.ofCents(1_00)));
+    entityManager.persist(new CardBucket("1000000000000002", 1, Money.ofCents(2_00)));
+    entityManager.flush();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    exporter.writeCsv(out);
+
+    Assertions.assertTrue(
+        out.toString(StandardCharsets.UTF_8).contains("\n1000000000000002,15.34\n"));
+  }
+
+  @Test
+  public void writeNdjsonShouldWriteNothingWithoutCards() {
+    repository.deleteAll();
+    entityManager.flush();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    Assertions.assertEquals(0, exporter.writeNdjson(out));
+    Assertions.assertEquals(0, out.size());
+  }
+}
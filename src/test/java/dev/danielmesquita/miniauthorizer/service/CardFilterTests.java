@@ -0,0 +1,72 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import dev.danielmesquita.miniauthorizer.entity.Card;
+import dev.danielmesquita.miniauthorizer.entity.Money;
+import dev.danielmesquita.miniauthorizer.repository.CardRepository;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+@DataJpaTest
+@ActiveProfiles("test")
+public class CardFilterTests {
+
+  @Autowired private CardRepository repository;
+  @Autowired private TestEntityManager entityManager;
+  @Autowired private DataSource dataSource;
+
+  @Test
+  public void refreshShouldAddEveryCardInTheTable() {
+    repository.save(new Card(null, "1000000000000001", "hash-1", Money.ofCents(10_00)));
+    repository.save(new Card(null, "1000000000000002", "hash-2", Money.ofCents(20_00)));
+    entityManager.flush();
+    CardFilter filter = new CardFilter(dataSource, 1000, 0.01, false, 1);
+
+    filter.refresh();
+
+    Assertions.assertTrue(filter.mightContain("1000000000000001"));
+    Assertions.assertTrue(filter.mightContain("1000000000000002"));
+  }
+
+  @Test
+  public void admitShouldConfirmMissesAgainstTheTableAndAddTheCardsItFinds() {
+    CardFilter filter = new CardFilter(dataSource, 1000, 0.01, true, 1);
+    filter.refresh();
+    // Created by another instance after the refill.
+    repository.save(new Card(null, "1000000000000003", "hash-3", Money.ofCents(30_00)));
+    entityManager.flush();
+
+    Assertions.assertFalse(filter.mightContain("1000000000000003"));
+    Assertions.assertTrue(filter.admit("1000000000000003"));
+    Assertions.assertTrue(filter.mightContain("1000000000000003"));
+    Assertions.assertFalse(filter.admit("1000000000000004"));
+    Assertions.assertEquals(1, filter.getLateCardCount());
+    Assertions.assertEquals(1, filter.getRejectionCount());
+  }
+
+  @Test
+  public void filterShouldKeepEveryCardAndStayNearItsFalsePositiveRate() {
+    CardFilter filter = new CardFilter(dataSource, 100_000, 0.01, false, 1000);
+    for (int i = 0; i < 100_000; i++) {
+      filter.add(String.format("5%015d", i));
+    }
+
+    int falsePositives = 0;
+    for (int i = 0; i < 100_000; i++) {
+      Assertions.assertTrue(filter.mightContain(String.format("5%015d", i)));
+      if (filter.admit(String.format("6%015d", i))) {
+        falsePositives++;
+      }
+    }
+
+    // About 9.6 bits and 7 probes per card.
+    Assertions.assertEquals(119_816, filter.getMemoryBytes());
+    Assertions.assertTrue(falsePositives < 1_500, "false positives: " + falsePositives);
+    Assertions.assertEquals(0.01, filter.getEstimatedFalsePositiveRate(), 0.002);
+    Assertions.assertEquals(100_000 - falsePositives, filter.getRejectionCount());
+  }
+}
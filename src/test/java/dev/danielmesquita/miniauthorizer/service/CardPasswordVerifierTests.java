@@ -0,0 +1,69 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import dev.danielmesquita.miniauthorizer.utils.Factory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+@ExtendWith(MockitoExtension.class)
+public class CardPasswordVerifierTests {
+
+  @Mock private PasswordEncoder passwordEncoder;
+
+  private CardPasswordVerifier verifier;
+
+  private final String cardNumber = "12345678";
+  private final String rightPassword = "password123";
+
+  @BeforeEach
+  public void setUp() {
+    verifier = Factory.createCardPasswordVerifier(passwordEncoder);
+  }
+
+  @Test
+  public void matchesShouldSkipEncoderWhenVerificationIsCached() {
+    Mockito.when(passwordEncoder.matches(rightPassword, "hash")).thenReturn(true);
+
+    Assertions.assertTrue(verifier.matches(cardNumber, rightPassword, "hash"));
+    Assertions.assertTrue(verifier.matches(cardNumber, rightPassword, "hash"));
+
+    Mockito.verify(passwordEncoder, Mockito.times(1)).matches(rightPassword, "hash");
+    Assertions.assertEquals(1, verifier.getHitCount());
+    Assertions.assertEquals(1, verifier.getMissCount());
+  }
+
+  @Test
+  public void matchesShouldNotCacheFailedVerifications() {
+    Mockito.when(passwordEncoder.matches("wrong", "hash")).thenReturn(false);
+
+    Assertions.assertFalse(verifier.matches(cardNumber, "wrong", "hash"));
+    Assertions.assertFalse(verifier.matches(cardNumber, "wrong", "hash"));
+
+    Mockito.verify(passwordEncoder, Mockito.times(2)).matches("wrong", "hash");
+    Assertions.assertEquals(0, verifier.getHitCount());
+  }
+
+  @Test
+  public void matchesShouldVerifyAgainWhenStoredPasswordChanges() {
+    Mockito.when(passwordEncoder.matches(rightPassword, "hash")).thenReturn(true);
+    Mockito.when(passwordEncoder.matches(rightPassword, "newHash")).thenReturn(false);
+
+    Assertions.assertTrue(verifier.matches(cardNumber, rightPassword, "hash"));
+    Assertions.assertFalse(verifier.matches(cardNumber, rightPassword, "newHash"));
+  }
+
+  @Test
+  public void matchesShouldNotShareEntriesBetweenCards() {
+    Mockito.when(passwordEncoder.matches(rightPassword, "hash")).thenReturn(true);
+
+    verifier.matches(cardNumber, rightPassword, "hash");
+    verifier.matches("87654321", rightPassword, "hash");
+
+    Mockito.verify(passwordEncoder, Mockito.times(2)).matches(rightPassword, "hash");
+  }
+}
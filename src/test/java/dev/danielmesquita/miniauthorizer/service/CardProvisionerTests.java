@@ -0,0 +1,94 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import dev.danielmesquita.miniauthorizer.dto.CardCreationResultDTO;
+import dev.danielmesquita.miniauthorizer.dto.CardDTO;
+import dev.danielmesquita.miniauthorizer.dto.TransactionDTO;
+import dev.danielmesquita.miniauthorizer.entity.Money;
+import dev.danielmesquita.miniauthorizer.enums.CardCreationStatus;
+import dev.danielmesquita.miniauthorizer.exception.ResourceNotFoundException;
+import dev.danielmesquita.miniauthorizer.repository.CardRepository;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+// Small chunks so duplicates and results cross chunk boundaries.
+@SpringBootTest(properties = {"authorizer.bulk.chunk-size=2", "spring.jpa.show-sql=false"})
+public class CardProvisionerTests {
+
+  @Autowired private CardProvisioner cardProvisioner;
+  @Autowired private CardService cardService;
+  @Autowired private CardRepository cardRepository;
+
+  @BeforeEach
+  void setup() {
+    cardRepository.deleteAll();
+  }
+
+  @Test
+  void createCardsShouldReportEachCardInInputOrder() {
+    cardService.createCard(card("73000001", "1234"));
+
+    List<CardCreationResultDTO> results =
+        cardProvisioner.createCards(
+            List.of(
+                card("73000002", "1234"),
+                card("73000001", "1234"),
+                card("73000003", ""),
+                card("73000004", "5678"),
+                card("73000002", "9999")));
+
+    Assertions.assertEquals(
+        List.of("73000002", "73000001", "73000003", "73000004", "73000002"),
+        results.stream().map(CardCreationResultDTO::getCardNumber).toList());
+    Assertions.assertEquals(
+        List.of(
+            CardCreationStatus.CREATED,
+            CardCreationStatus.ALREADY_EXISTS,
+            CardCreationStatus.INVALID,
+            CardCreationStatus.CREATED,
+            CardCreationStatus.ALREADY_EXISTS),
+        results.stream().map(CardCreationResultDTO::getStatus).toList());
+    Assertions.assertEquals(3, cardRepository.count());
+  }
+
+  @Test
+  void createdCardsShouldBeReadyForTransactions() {
+    // Caches the unknown card, which the bulk insert has to invalidate.
+    Assertions.assertThrows(
+        ResourceNotFoundException.class, () -> cardService.getBalance("73000010"));
+
+    cardProvisioner.createCards(List.of(card("73000010", "1234"), card("73000011", "4321")));
+
+    Assertions.assertEquals(Money.ofCents(500_00), cardService.getBalance("73000010"));
+    CardDTO result =
+        cardService.executeTransaction(
+            new TransactionDTO("73000011", "4321", new BigDecimal("20.00")));
+    Assertions.assertEquals(new BigDecimal("480.00"), result.getBalance());
+  }
+
+  @Test
+  void createCardsShouldHandOverResultsChunkByChunk() {
+    List<CardDTO> cards = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      cards.add(card("7300002" + i, "1234"));
+    }
+    List<Long> createdWhenReported = new ArrayList<>();
+
+    cardProvisioner.createCards(
+        cards.iterator(), result -> createdWhenReported.add(cardRepository.count()));
+
+    Assertions.assertEquals(List.of(2L, 2L, 4L, 4L, 5L), createdWhenReported);
+  }
+
+  private static CardDTO card(String cardNumber, String password) {
+    CardDTO cardDTO = new CardDTO();
+    cardDTO.setCardNumber(cardNumber);
+    cardDTO.setPassword(password);
+    return cardDTO;
+  }
+}
@@ -1,13 +1,19 @@
 package dev.danielmesquita.miniauthorizer.service;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import dev.danielmesquita.miniauthorizer.dto.CardDTO;
 import dev.danielmesquita.miniauthorizer.dto.TransactionDTO;
+import dev.danielmesquita.miniauthorizer.entity.LedgerEntry;
+import dev.danielmesquita.miniauthorizer.entity.Money;
 import dev.danielmesquita.miniauthorizer.enums.TransactionStatus;
 import dev.danielmesquita.miniauthorizer.exception.TransactionException;
 import dev.danielmesquita.miniauthorizer.repository.CardRepository;
+import dev.danielmesquita.miniauthorizer.repository.LedgerEntryRepository;
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -21,6 +27,8 @@ import org.springframework.boot.test.context.SpringBootTest;
 public class CardServiceIntegrationTests {
   @Autowired private CardService cardService;
   @Autowired private CardRepository cardRepository;
+  @Autowired private TransactionLedger ledger;
+  @Autowired private LedgerEntryRepository ledgerEntryRepository;
 
   private final String cardNumber = "99999999";
   private final String password = "1234";
@@ -28,6 +36,8 @@ public class CardServiceIntegrationTests {
   @BeforeEach
   void setup() {
     cardRepository.deleteAll();
+    ledger.flush();
+    ledgerEntryRepository.deleteAll();
     CardDTO cardDTO = new CardDTO();
     cardDTO.setCardNumber(cardNumber);
     cardDTO.setPassword(password);
@@ -70,4 +80,38 @@ public class CardServiceIntegrationTests {
             || (r2.equals("SUCCESS") && r1.equals(TransactionStatus.SALDO_INSUFICIENTE)));
     executor.shutdown();
   }
+
+  @Test
+  void ledgerShouldRecordApprovedAndDeclinedTransactions() {
+    cardService.executeTransaction(
+        new TransactionDTO(cardNumber, password, new BigDecimal("10.50")));
+    assertThrows(
+        TransactionException.class,
+        () ->
+            cardService.executeTransaction(
+                new TransactionDTO(cardNumber, "wrong", new BigDecimal("20.00"))));
+
+    ledger.flush();
+
+    List<LedgerEntry> entries = ledgerEntryRepository.findByCardNumberOrderByIdAsc(cardNumber);
+    assertEquals(
+        List.of(TransactionStatus.OK, TransactionStatus.SENHA_INVALIDA),
+        entries.stream().map(LedgerEntry::getStatus).toList());
+    assertEquals(Money.ofCents(10_50), entries.get(0).getAmount());
+    assertEquals(Money.ofCents(20_00), entries.get(1).getAmount());
+  }
+
+  @Test
+  void duplicateIdempotencyKeyShouldDebitOnce() {
+    TransactionDTO transactionDTO =
+        new TransactionDTO(cardNumber, password, new BigDecimal("100.00"));
+
+    CardDTO first = cardService.executeTransaction(transactionDTO, "terminal-1-0001");
+    CardDTO retry = cardService.executeTransaction(transactionDTO, "terminal-1-0001");
+
+    assertEquals(first.getBalance(), retry.getBalance());
+    assertEquals(400_00L, cardRepository.findBalanceCentsByCardNumber(cardNumber).orElseThrow());
+    ledger.flush();
+    assertEquals(1, ledgerEntryRepository.findByCardNumberOrderByIdAsc(cardNumber).size());
+  }
 }
@@ -2,34 +2,58 @@ package dev.danielmesquita.miniauthorizer.service;
 
 import dev.danielmesquita.miniauthorizer.dto.CardDTO;
 import dev.danielmesquita.miniauthorizer.dto.TransactionDTO;
+import dev.danielmesquita.miniauthorizer.dto.TransactionResultDTO;
 import dev.danielmesquita.miniauthorizer.entity.Card;
+import dev.danielmesquita.miniauthorizer.entity.Money;
 import dev.danielmesquita.miniauthorizer.enums.TransactionStatus;
 import dev.danielmesquita.miniauthorizer.exception.CardAlreadyExistsException;
 import dev.danielmesquita.miniauthorizer.exception.ResourceNotFoundException;
 import dev.danielmesquita.miniauthorizer.exception.TransactionException;
+import dev.danielmesquita.miniauthorizer.jfr.CardHash;
 import dev.danielmesquita.miniauthorizer.repository.CardRepository;
 import dev.danielmesquita.miniauthorizer.utils.Factory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Optional;
+import javax.sql.DataSource;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
 
 @ExtendWith(MockitoExtension.class)
 public class CardServiceTests {
 
-  @InjectMocks private CardService service;
+  private static final String TRANSACTION_EVENT = "dev.danielmesquita.miniauthorizer.Transaction";
+  private static final String CARD_LOCK_EVENT = "dev.danielmesquita.miniauthorizer.CardLock";
+
+  private CardService service;
 
   @Mock private CardRepository repository;
 
   @Mock private PasswordEncoder passwordEncoder;
 
+  @Mock private PlatformTransactionManager transactionManager;
+
+  @Mock private TransactionLedger ledger;
+
+  @Mock private IdempotencyStore idempotencyStore;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
   private String existingCardNumber;
 
   private String nonExistingCardNumber;
@@ -44,6 +68,7 @@ public class CardServiceTests {
 
   @BeforeEach
   public void setUp() {
+    service = createService(Optional.empty());
     existingCardNumber = "12345678";
     nonExistingCardNumber = "111";
     card = Factory.createCard();
@@ -79,24 +104,56 @@ public class CardServiceTests {
 
   @Test
   public void getBalanceShouldReturnBalanceWhenCardExists() {
-    Mockito.when(repository.findByCardNumber(existingCardNumber)).thenReturn(Optional.of(card));
+    Mockito.when(repository.findBalanceCentsByCardNumber(existingCardNumber))
+        .thenReturn(Optional.of(card.getBalance().cents()));
 
     Assertions.assertDoesNotThrow(
         () -> {
           service.getBalance(existingCardNumber);
         });
 
-    Mockito.verify(repository, Mockito.times(1)).findByCardNumber(existingCardNumber);
+    Mockito.verify(repository, Mockito.times(1)).findBalanceCentsByCardNumber(existingCardNumber);
+    Mockito.verify(repository, Mockito.never()).findByCardNumber(existingCardNumber);
   }
 
   @Test
   public void getBalanceShouldThrowExceptionWhenCardDoesNotExist() {
-    Mockito.when(repository.findByCardNumber(nonExistingCardNumber)).thenReturn(Optional.empty());
+    Mockito.when(repository.findBalanceCentsByCardNumber(nonExistingCardNumber))
+        .thenReturn(Optional.empty());
 
     Assertions.assertThrows(
         ResourceNotFoundException.class, () -> service.getBalance(nonExistingCardNumber));
 
-    Mockito.verify(repository, Mockito.times(1)).findByCardNumber(nonExistingCardNumber);
+    Mockito.verify(repository, Mockito.times(1))
+        .findBalanceCentsByCardNumber(nonExistingCardNumber);
+  }
+
+  @Test
+  public void getBalanceShouldServeRepeatedReadsFromCache() {
+    Mockito.when(repository.findBalanceCentsByCardNumber(existingCardNumber))
+        .thenReturn(Optional.of(100_00L));
+
+    service.getBalance(existingCardNumber);
+    Money result = service.getBalance(existingCardNumber);
+
+    Assertions.assertEquals(Money.ofCents(100_00), result);
+    Mockito.verify(repository, Mockito.times(1)).findBalanceCentsByCardNumber(existingCardNumber);
+  }
+
+  @Test
+  public void executeTransactionShouldInvalidateCachedBalance() {
+    Mockito.when(repository.findBalanceCentsByCardNumber(existingCardNumber))
+        .thenReturn(Optional.of(100_00L))
+        .thenReturn(Optional.of(50_00L));
+    Mockito.when(repository.findByCardNumberForUpdate(existingCardNumber))
+        .thenReturn(Optional.of(card));
+    Mockito.when(passwordEncoder.matches(rightPassword, card.getPassword())).thenReturn(true);
+    card.setBalance(Money.ofCents(100_00));
+
+    service.getBalance(existingCardNumber);
+    service.executeTransaction(transactionDTO);
+
+    Assertions.assertEquals(Money.ofCents(50_00), service.getBalance(existingCardNumber));
   }
 
   @Test
@@ -104,11 +161,71 @@ public class CardServiceTests {
     Mockito.when(passwordEncoder.matches(rightPassword, card.getPassword())).thenReturn(true);
     Mockito.when(repository.findByCardNumberForUpdate(existingCardNumber))
         .thenReturn(Optional.of(card));
-    card.setBalance(new BigDecimal("100"));
+    card.setBalance(Money.ofCents(100_00));
 
     Assertions.assertDoesNotThrow(() -> service.executeTransaction(transactionDTO));
 
     Mockito.verify(repository, Mockito.times(1)).findByCardNumberForUpdate(existingCardNumber);
+    Mockito.verify(ledger)
+        .record(existingCardNumber, Money.ofCents(50_00), TransactionStatus.OK);
+  }
+
+  @Test
+  public void executeTransactionShouldRecordTimingsByStatusAndLockTime() {
+    Mockito.when(repository.findByCardNumberForUpdate(existingCardNumber))
+        .thenReturn(Optional.of(card));
+    Mockito.when(passwordEncoder.matches(rightPassword, card.getPassword())).thenReturn(true);
+    card.setBalance(Money.ofCents(70_00));
+
+    service.executeTransaction(transactionDTO);
+    Assertions.assertThrows(
+        TransactionException.class, () -> service.executeTransaction(transactionDTO));
+
+    Assertions.assertEquals(1, transactionCount(TransactionStatus.OK));
+    Assertions.assertEquals(1, transactionCount(TransactionStatus.SALDO_INSUFICIENTE));
+    Assertions.assertEquals(
+        2, meterRegistry.get("authorizer.card.lock").tag("operation", "single").timer().count());
+  }
+
+  @Test
+  public void executeTransactionShouldEmitJfrEventsWithoutCardNumbers() throws Exception {
+    Mockito.when(repository.findByCardNumberForUpdate(existingCardNumber))
+        .thenReturn(Optional.of(card));
+    Mockito.when(passwordEncoder.matches(rightPassword, card.getPassword())).thenReturn(true);
+    card.setBalance(Money.ofCents(70_00));
+
+    List<RecordedEvent> events;
+    try (Recording recording = new Recording()) {
+      recording.enable(TRANSACTION_EVENT);
+      recording.enable(CARD_LOCK_EVENT);
+      recording.start();
+      service.executeTransaction(transactionDTO);
+      Assertions.assertThrows(
+          TransactionException.class, () -> service.executeTransaction(transactionDTO));
+      recording.stop();
+      Path dump = Files.createTempFile("card-service", ".jfr");
+      try {
+        recording.dump(dump);
+        events = RecordingFile.readAllEvents(dump);
+      } finally {
+        Files.delete(dump);
+      }
+    }
+
+    List<String> statuses =
+        events.stream()
+            .filter(event -> event.getEventType().getName().equals(TRANSACTION_EVENT))
+            .map(event -> event.getString("status"))
+            .toList();
+    Assertions.assertEquals(List.of("OK", "SALDO_INSUFICIENTE"), statuses);
+    Assertions.assertEquals(
+        2,
+        events.stream()
+            .filter(event -> event.getEventType().getName().equals(CARD_LOCK_EVENT))
+            .count());
+    for (RecordedEvent event : events) {
+      Assertions.assertEquals(CardHash.of(existingCardNumber), event.getString("cardHash"));
+    }
   }
 
   @Test
@@ -144,12 +261,222 @@ public class CardServiceTests {
     Mockito.when(repository.findByCardNumberForUpdate(existingCardNumber))
         .thenReturn(Optional.of(card));
     Mockito.when(passwordEncoder.matches(rightPassword, card.getPassword())).thenReturn(true);
-    card.setBalance(new BigDecimal("20"));
+    card.setBalance(Money.ofCents(20_00));
 
     TransactionException exception =
         Assertions.assertThrows(
             TransactionException.class, () -> service.executeTransaction(transactionDTO));
 
     Assertions.assertEquals(TransactionStatus.SALDO_INSUFICIENTE, exception.getStatus());
+    Mockito.verify(ledger)
+        .record(existingCardNumber, Money.ofCents(50_00), TransactionStatus.SALDO_INSUFICIENTE);
+  }
+
+  @Test
+  public void executeBatchShouldLockEachCardOnceInSortedOrderAndReportEachItem() {
+    Card first = new Card(1L, "1111", "hash", Money.ofCents(100_00));
+    Card second = new Card(2L, "2222", "hash", Money.ofCents(30_00));
+    Mockito.when(passwordEncoder.matches(rightPassword, "hash")).thenReturn(true);
+    Mockito.when(repository.findAllByCardNumberInForUpdate(List.of("1111", "2222")))
+        .thenReturn(List.of(first, second));
+    Mockito.when(repository.findAllByCardNumberInForUpdate(List.of("3333")))
+        .thenReturn(List.of());
+
+    List<TransactionResultDTO> results =
+        service.executeBatch(
+            List.of(
+                new TransactionDTO("2222", rightPassword, new BigDecimal("20")),
+                new TransactionDTO("1111", rightPassword, new BigDecimal("60")),
+                new TransactionDTO("3333", rightPassword, BigDecimal.ONE),
+                new TransactionDTO("2222", rightPassword, new BigDecimal("20")),
+                new TransactionDTO("1111", "wrongPassword", BigDecimal.ONE)));
+
+    Assertions.assertEquals(
+        List.of(
+            TransactionStatus.OK,
+            TransactionStatus.OK,
+            TransactionStatus.CARTAO_INEXISTENTE,
+            TransactionStatus.SALDO_INSUFICIENTE,
+            TransactionStatus.SENHA_INVALIDA),
+        results.stream().map(TransactionResultDTO::getStatus).toList());
+    Assertions.assertEquals(Money.ofCents(40_00), first.getBalance());
+    Assertions.assertEquals(Money.ofCents(10_00), second.getBalance());
+    Mockito.verify(repository, Mockito.never()).findByCardNumberForUpdate(Mockito.any());
+    Mockito.verify(transactionManager, Mockito.times(2)).commit(Mockito.any());
+  }
+
+  @Test
+  public void executeBatchShouldReportItemsOfAFailedChunkAsErrorAndKeepCommittedOnes() {
+    Card first = new Card(1L, "1111", "hash", Money.ofCents(100_00));
+    Mockito.when(passwordEncoder.matches(rightPassword, "hash")).thenReturn(true);
+    Mockito.when(repository.findAllByCardNumberInForUpdate(List.of("1111")))
+        .thenReturn(List.of(first));
+    Mockito.when(repository.findAllByCardNumberInForUpdate(List.of("2222")))
+        .thenThrow(new PessimisticLockingFailureException("Lock wait timeout exceeded"));
+
+    // A chunk size of 3 puts each card in its own chunk.
+    List<TransactionResultDTO> results =
+        service.executeBatch(
+            List.of(
+                new TransactionDTO("1111", rightPassword, BigDecimal.ONE),
+                new TransactionDTO("2222", rightPassword, BigDecimal.ONE),
+                new TransactionDTO("1111", rightPassword, BigDecimal.ONE),
+                new TransactionDTO("1111", rightPassword, BigDecimal.ONE)));
+
+    Assertions.assertEquals(
+        List.of(
+            TransactionStatus.OK,
+            TransactionStatus.ERROR,
+            TransactionStatus.OK,
+            TransactionStatus.OK),
+        results.stream().map(TransactionResultDTO::getStatus).toList());
+    Assertions.assertEquals(Money.ofCents(97_00), first.getBalance());
+    Mockito.verify(ledger, Mockito.times(3))
+        .record("1111", Money.ofCents(1_00), TransactionStatus.OK);
+    Mockito.verify(ledger, Mockito.never())
+        .record(Mockito.eq("2222"), Mockito.any(), Mockito.any());
+  }
+
+  @Test
+  public void defaultExecuteBatchShouldReportFailedItemsAsError() {
+    TransactionEngine engine =
+        transactionDTO -> {
+          if (transactionDTO.getCardNumber().equals("2222")) {
+            throw new QueryTimeoutException("Query timed out");
+          }
+          if (transactionDTO.getCardNumber().equals("3333")) {
+            throw new TransactionException(TransactionStatus.SALDO_INSUFICIENTE);
+          }
+          return new CardDTO();
+        };
+
+    List<TransactionStatus> statuses =
+        engine.executeBatch(
+            List.of(
+                new TransactionDTO("1111", rightPassword, BigDecimal.ONE),
+                new TransactionDTO("2222", rightPassword, BigDecimal.ONE),
+                new TransactionDTO("3333", rightPassword, BigDecimal.ONE)));
+
+    Assertions.assertEquals(
+        List.of(
+            TransactionStatus.OK, TransactionStatus.ERROR, TransactionStatus.SALDO_INSUFICIENTE),
+        statuses);
+  }
+
+  @Test
+  public void executeTransactionShouldDeclineCardsUnknownToTheFilterWithoutQuerying() {
+    CardFilter filter = createCardFilter(existingCardNumber);
+    service = createService(Optional.of(filter));
+    transactionDTO.setCardNumber(nonExistingCardNumber);
+
+    TransactionException exception =
+        Assertions.assertThrows(
+            TransactionException.class, () -> service.executeTransaction(transactionDTO, "key-1"));
+
+    Assertions.assertEquals(TransactionStatus.CARTAO_INEXISTENTE, exception.getStatus());
+    Assertions.assertEquals(1, filter.getRejectionCount());
+    Assertions.assertEquals(1, transactionCount(TransactionStatus.CARTAO_INEXISTENTE));
+    Mockito.verify(ledger)
+        .record(nonExistingCardNumber, Money.ofCents(50_00), TransactionStatus.CARTAO_INEXISTENTE);
+    Mockito.verifyNoInteractions(repository, idempotencyStore);
+  }
+
+  @Test
+  public void executeTransactionShouldCountCardsTheFilterLetThroughButDoNotExist() {
+    CardFilter filter = createCardFilter(nonExistingCardNumber);
+    service = createService(Optional.of(filter));
+    Mockito.when(repository.findByCardNumberForUpdate(nonExistingCardNumber))
+        .thenReturn(Optional.empty());
+    transactionDTO.setCardNumber(nonExistingCardNumber);
+
+    Assertions.assertThrows(
+        TransactionException.class, () -> service.executeTransaction(transactionDTO));
+
+    Assertions.assertEquals(0, filter.getRejectionCount());
+    Assertions.assertEquals(1, filter.getFalsePositiveCount());
+  }
+
+  @Test
+  public void getBalanceShouldNotQueryCardsUnknownToTheFilter() {
+    service = createService(Optional.of(createCardFilter()));
+
+    Assertions.assertThrows(
+        ResourceNotFoundException.class, () -> service.getBalance(nonExistingCardNumber));
+
+    Mockito.verifyNoInteractions(repository);
+  }
+
+  @Test
+  public void createCardShouldAddTheCardToTheFilter() {
+    CardFilter filter = createCardFilter();
+    service = createService(Optional.of(filter));
+    cardDTO.setCardNumber(nonExistingCardNumber);
+    Mockito.when(repository.save(Mockito.any())).thenReturn(card);
+
+    service.createCard(cardDTO);
+
+    Assertions.assertTrue(filter.mightContain(nonExistingCardNumber));
+  }
+
+  @Test
+  public void executeBatchShouldOnlyPassCardsKnownToTheFilterToTheEngine() {
+    CardFilter filter = createCardFilter("1111");
+    service = createService(Optional.of(filter));
+    Card first = new Card(1L, "1111", "hash", Money.ofCents(100_00));
+    Mockito.when(passwordEncoder.matches(rightPassword, "hash")).thenReturn(true);
+    Mockito.when(repository.findAllByCardNumberInForUpdate(List.of("1111")))
+        .thenReturn(List.of(first));
+
+    List<TransactionResultDTO> results =
+        service.executeBatch(
+            List.of(
+                new TransactionDTO("3333", rightPassword, BigDecimal.ONE),
+                new TransactionDTO("1111", rightPassword, new BigDecimal("60")),
+                new TransactionDTO("4444", rightPassword, BigDecimal.ONE),
+                new TransactionDTO("1111", rightPassword, new BigDecimal("60"))));
+
+    Assertions.assertEquals(
+        List.of(
+            TransactionStatus.CARTAO_INEXISTENTE,
+            TransactionStatus.OK,
+            TransactionStatus.CARTAO_INEXISTENTE,
+            TransactionStatus.SALDO_INSUFICIENTE),
+        results.stream().map(TransactionResultDTO::getStatus).toList());
+    Assertions.assertEquals(2, filter.getRejectionCount());
+    Mockito.verify(repository).findAllByCardNumberInForUpdate(List.of("1111"));
+    Mockito.verifyNoMoreInteractions(repository);
+  }
+
+  private CardService createService(Optional<CardFilter> cardFilter) {
+    return new CardService(
+        repository,
+        passwordEncoder,
+        new PessimisticTransactionEngine(
+            repository,
+            Factory.createCardPasswordVerifier(passwordEncoder),
+            transactionManager,
+            3,
+            meterRegistry),
+        Factory.createBalanceCache(),
+        ledger,
+        idempotencyStore,
+        meterRegistry,
+        cardFilter);
+  }
+
+  private static CardFilter createCardFilter(String... cardNumbers) {
+    CardFilter filter = new CardFilter(Mockito.mock(DataSource.class), 1000, 0.01, false, 1000);
+    for (String cardNumber : cardNumbers) {
+      filter.add(cardNumber);
+    }
+    return filter;
+  }
+
+  private long transactionCount(TransactionStatus status) {
+    return meterRegistry
+        .get("authorizer.transaction")
+        .tag("status", status.name())
+        .timer()
+        .count();
   }
 }
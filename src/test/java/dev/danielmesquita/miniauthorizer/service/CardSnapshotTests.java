@@ -0,0 +1,99 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import dev.danielmesquita.miniauthorizer.entity.Card;
+import dev.danielmesquita.miniauthorizer.entity.Money;
+import dev.danielmesquita.miniauthorizer.repository.CardRepository;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+@DataJpaTest
+@ActiveProfiles("test")
+public class CardSnapshotTests {
+
+  @Autowired private CardRepository repository;
+  @Autowired private TestEntityManager entityManager;
+
+  @TempDir Path directory;
+
+  private CardSnapshot snapshot;
+
+  @BeforeEach
+  public void setUp() {
+    snapshot = new CardSnapshot(repository, directory.resolve("cards.snapshot"));
+  }
+
+  @Test
+  public void loadShouldKeepUnchangedCardsAndRereadTheOnesWrittenSinceTheSnapshot() {
+    Card unchanged = repository.save(new Card(null, "1000000000000001", "hash-1", money(10)));
+    Card debited = repository.save(new Card(null, "1000000000000002", "hash-2", money(20)));
+    Card deleted = repository.save(new Card(null, "1000000000000003", "hash-3", money(30)));
+    Card unflushed = repository.save(new Card(null, "1000000000000004", "hash-4", money(40)));
+    entityManager.flush();
+    snapshot.write(
+        List.of(
+            entry(unchanged, unchanged.getVersion()),
+            entry(debited, debited.getVersion()),
+            entry(deleted, deleted.getVersion()),
+            entry(unflushed, CardSnapshot.UNFLUSHED)));
+
+    repository.updateBalance(debited.getCardNumber(), 15_00);
+    repository.delete(deleted);
+    repository.save(new Card(null, "1000000000000005", "hash-5", money(50)));
+    entityManager.flush();
+    entityManager.clear();
+
+    List<CardSnapshot.Entry> loaded =
+        snapshot.load().stream()
+            .sorted(Comparator.comparing(CardSnapshot.Entry::cardNumber))
+            .toList();
+
+    Assertions.assertEquals(
+        List.of(
+            new CardSnapshot.Entry("1000000000000001", "hash-1", 10_00, 0),
+            new CardSnapshot.Entry("1000000000000002", "hash-2", 15_00, 1),
+            new CardSnapshot.Entry("1000000000000004", "hash-4", 40_00, 0),
+            new CardSnapshot.Entry("1000000000000005", "hash-5", 50_00, 0)),
+        loaded);
+  }
+
+  @Test
+  public void loadShouldReturnNothingWithoutASnapshot() {
+    repository.save(new Card(null, "1000000000000001", "hash-1", money(10)));
+
+    Assertions.assertTrue(snapshot.load().isEmpty());
+  }
+
+  @Test
+  public void loadShouldIgnoreACorruptSnapshot() throws Exception {
+    Card card = repository.save(new Card(null, "1000000000000001", "hash-1", money(10)));
+    entityManager.flush();
+    snapshot.write(List.of(entry(card, card.getVersion())));
+
+    try (RandomAccessFile file =
+        new RandomAccessFile(directory.resolve("cards.snapshot").toFile(), "rw")) {
+      file.seek(10);
+      file.write(0x7f);
+    }
+
+    Assertions.assertTrue(snapshot.load().isEmpty());
+  }
+
+  private static CardSnapshot.Entry entry(Card card, long version) {
+    return new CardSnapshot.Entry(
+        card.getCardNumber(), card.getPassword(), card.getBalance().cents(), version);
+  }
+
+  private static Money money(long units) {
+    return Money.ofCents(units * 100);
+  }
+}
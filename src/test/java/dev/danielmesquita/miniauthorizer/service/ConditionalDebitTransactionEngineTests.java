@@ -0,0 +1,96 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import dev.danielmesquita.miniauthorizer.dto.CardDTO;
+import dev.danielmesquita.miniauthorizer.dto.TransactionDTO;
+import dev.danielmesquita.miniauthorizer.entity.Card;
+import dev.danielmesquita.miniauthorizer.entity.Money;
+import dev.danielmesquita.miniauthorizer.enums.TransactionStatus;
+import dev.danielmesquita.miniauthorizer.exception.TransactionException;
+import dev.danielmesquita.miniauthorizer.repository.CardRepository;
+import dev.danielmesquita.miniauthorizer.utils.Factory;
+import java.math.BigDecimal;
+import java.util.Optional;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@ExtendWith(MockitoExtension.class)
+public class ConditionalDebitTransactionEngineTests {
+
+  @Mock private CardRepository repository;
+
+  @Mock private PasswordEncoder passwordEncoder;
+
+  @Mock private PlatformTransactionManager transactionManager;
+
+  private ConditionalDebitTransactionEngine engine;
+
+  private final String cardNumber = "12345678";
+  private final String rightPassword = "password123";
+  private final TransactionDTO transactionDTO =
+      new TransactionDTO(cardNumber, rightPassword, new BigDecimal("30"));
+
+  @BeforeEach
+  public void setUp() {
+    engine =
+        new ConditionalDebitTransactionEngine(
+            repository, Factory.createCardPasswordVerifier(passwordEncoder), transactionManager);
+  }
+
+  @Test
+  public void executeShouldReturnNewBalanceWhenDebitIsApplied() {
+    Mockito.when(repository.findByCardNumber(cardNumber))
+        .thenReturn(Optional.of(new Card(1L, cardNumber, "hash", Money.ofCents(100_00))));
+    Mockito.when(passwordEncoder.matches(rightPassword, "hash")).thenReturn(true);
+    Mockito.when(repository.debit(cardNumber, 30_00)).thenReturn(1);
+    Mockito.when(repository.findBalanceCentsByCardNumber(cardNumber))
+        .thenReturn(Optional.of(70_00L));
+
+    CardDTO result = engine.execute(transactionDTO);
+
+    Assertions.assertEquals(new BigDecimal("70.00"), result.getBalance());
+    Mockito.verify(repository, Mockito.never()).findByCardNumberForUpdate(Mockito.any());
+  }
+
+  @Test
+  public void executeShouldThrowExceptionWhenNoRowIsDebited() {
+    Mockito.when(repository.findByCardNumber(cardNumber))
+        .thenReturn(Optional.of(new Card(1L, cardNumber, "hash", Money.ofCents(10_00))));
+    Mockito.when(passwordEncoder.matches(rightPassword, "hash")).thenReturn(true);
+    Mockito.when(repository.debit(cardNumber, 30_00)).thenReturn(0);
+
+    TransactionException exception =
+        Assertions.assertThrows(TransactionException.class, () -> engine.execute(transactionDTO));
+
+    Assertions.assertEquals(TransactionStatus.SALDO_INSUFICIENTE, exception.getStatus());
+  }
+
+  @Test
+  public void executeShouldNotDebitWhenPasswordIsInvalid() {
+    Mockito.when(repository.findByCardNumber(cardNumber))
+        .thenReturn(Optional.of(new Card(1L, cardNumber, "hash", Money.ofCents(100_00))));
+    Mockito.when(passwordEncoder.matches(rightPassword, "hash")).thenReturn(false);
+
+    TransactionException exception =
+        Assertions.assertThrows(TransactionException.class, () -> engine.execute(transactionDTO));
+
+    Assertions.assertEquals(TransactionStatus.SENHA_INVALIDA, exception.getStatus());
+    Mockito.verify(repository, Mockito.never()).debit(Mockito.any(), Mockito.anyLong());
+  }
+
+  @Test
+  public void executeShouldThrowExceptionWhenCardDoesNotExist() {
+    Mockito.when(repository.findByCardNumber(cardNumber)).thenReturn(Optional.empty());
+
+    TransactionException exception =
+        Assertions.assertThrows(TransactionException.class, () -> engine.execute(transactionDTO));
+
+    Assertions.assertEquals(TransactionStatus.CARTAO_INEXISTENTE, exception.getStatus());
+  }
+}
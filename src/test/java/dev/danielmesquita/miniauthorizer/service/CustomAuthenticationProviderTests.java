@@ -3,18 +3,25 @@ package dev.danielmesquita.miniauthorizer.service;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import dev.danielmesquita.miniauthorizer.exception.UnauthorizedException;
 import dev.danielmesquita.miniauthorizer.projection.UserDetailsProjection;
 import dev.danielmesquita.miniauthorizer.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
 import java.util.List;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 @ExtendWith(MockitoExtension.class)
@@ -22,6 +29,13 @@ public class CustomAuthenticationProviderTests {
 
   @Mock private UserRepository userRepository;
   @Mock private PasswordEncoder passwordEncoder;
+
+  @Spy
+  private AuthenticatedPrincipalCache principalCache =
+      new AuthenticatedPrincipalCache(new CredentialDigest(), 1000, Duration.ofMinutes(5));
+
+  @Spy private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
   @InjectMocks private CustomAuthenticationProvider provider;
 
   @Test
@@ -66,6 +80,90 @@ public class CustomAuthenticationProviderTests {
     assertThrows(UnauthorizedException.class, () -> provider.authenticate(auth));
   }
 
+  @Test
+  void authenticateReturnsAuthoritiesFromRoles() {
+    String username = "user@example.com";
+    String password = "password";
+    UserDetailsProjection projection = mock(UserDetailsProjection.class);
+    when(projection.getPassword()).thenReturn("hashed");
+    when(projection.getAuthority()).thenReturn("ROLE_ADMIN");
+    when(userRepository.findUserDetailsByEmail(username)).thenReturn(List.of(projection));
+    when(passwordEncoder.matches(password, "hashed")).thenReturn(true);
+
+    Authentication result =
+        provider.authenticate(new UsernamePasswordAuthenticationToken(username, password));
+
+    assertEquals("ROLE_ADMIN", result.getAuthorities().iterator().next().getAuthority());
+  }
+
+  @Test
+  void authenticateUsesCacheForRepeatedCredentials() {
+    String username = "user@example.com";
+    String password = "password";
+    UserDetailsProjection projection = mock(UserDetailsProjection.class);
+    when(projection.getPassword()).thenReturn("hashed");
+    when(userRepository.findUserDetailsByEmail(username)).thenReturn(List.of(projection));
+    when(passwordEncoder.matches(password, "hashed")).thenReturn(true);
+
+    provider.authenticate(new UsernamePasswordAuthenticationToken(username, password));
+    provider.authenticate(new UsernamePasswordAuthenticationToken(username, password));
+
+    verify(userRepository, times(1)).findUserDetailsByEmail(username);
+    verify(passwordEncoder, times(1)).matches(password, "hashed");
+    assertEquals(1, principalCache.getHitCount());
+  }
+
+  @Test
+  void authenticateRecordsTimingByOutcome() {
+    String username = "user@example.com";
+    UserDetailsProjection projection = mock(UserDetailsProjection.class);
+    when(projection.getPassword()).thenReturn("hashed");
+    when(userRepository.findUserDetailsByEmail(username)).thenReturn(List.of(projection));
+    when(passwordEncoder.matches("password", "hashed")).thenReturn(true);
+
+    provider.authenticate(new UsernamePasswordAuthenticationToken(username, "password"));
+    provider.authenticate(new UsernamePasswordAuthenticationToken(username, "password"));
+    assertThrows(
+        UnauthorizedException.class,
+        () -> provider.authenticate(new UsernamePasswordAuthenticationToken(username, "wrong")));
+
+    assertEquals(1, authenticationCount("success", "miss"));
+    assertEquals(1, authenticationCount("success", "hit"));
+    assertEquals(1, authenticationCount("failure", "miss"));
+  }
+
+  @Test
+  void authenticateDoesNotUseCacheForDifferentPassword() {
+    String username = "user@example.com";
+    UserDetailsProjection projection = mock(UserDetailsProjection.class);
+    when(projection.getPassword()).thenReturn("hashed");
+    when(userRepository.findUserDetailsByEmail(username)).thenReturn(List.of(projection));
+    when(passwordEncoder.matches("password", "hashed")).thenReturn(true);
+    when(passwordEncoder.matches("wrong", "hashed")).thenReturn(false);
+
+    provider.authenticate(new UsernamePasswordAuthenticationToken(username, "password"));
+
+    assertThrows(
+        UnauthorizedException.class,
+        () -> provider.authenticate(new UsernamePasswordAuthenticationToken(username, "wrong")));
+  }
+
+  @Test
+  void authenticateQueriesAgainAfterEviction() {
+    String username = "user@example.com";
+    String password = "password";
+    UserDetailsProjection projection = mock(UserDetailsProjection.class);
+    when(projection.getPassword()).thenReturn("hashed");
+    when(userRepository.findUserDetailsByEmail(username)).thenReturn(List.of(projection));
+    when(passwordEncoder.matches(password, "hashed")).thenReturn(true);
+
+    provider.authenticate(new UsernamePasswordAuthenticationToken(username, password));
+    principalCache.evict(username);
+    provider.authenticate(new UsernamePasswordAuthenticationToken(username, password));
+
+    verify(userRepository, times(2)).findUserDetailsByEmail(username);
+  }
+
   @Test
   void supportsReturnsTrueForUsernamePasswordAuthenticationToken() {
     assertTrue(provider.supports(UsernamePasswordAuthenticationToken.class));
@@ -75,4 +173,13 @@ public class CustomAuthenticationProviderTests {
   void supportsReturnsFalseForOtherClass() {
     assertFalse(provider.supports(String.class));
   }
+
+  private long authenticationCount(String result, String cache) {
+    return meterRegistry
+        .get("authorizer.authentication")
+        .tag("result", result)
+        .tag("cache", cache)
+        .timer()
+        .count();
+  }
 }
@@ -0,0 +1,190 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import dev.danielmesquita.miniauthorizer.dto.CardDTO;
+import dev.danielmesquita.miniauthorizer.dto.TransactionDTO;
+import dev.danielmesquita.miniauthorizer.entity.Money;
+import dev.danielmesquita.miniauthorizer.enums.TransactionStatus;
+import dev.danielmesquita.miniauthorizer.exception.TransactionException;
+import dev.danielmesquita.miniauthorizer.repository.CardRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+// A wide window makes concurrent debits land in the same group even on a slow machine.
+@SpringBootTest(
+    properties = {
+      "authorizer.transaction.mode=group-commit",
+      "authorizer.group-commit.window-us=20000",
+      "spring.jpa.show-sql=false"
+    })
+public class GroupCommitTransactionEngineTests {
+
+  @Autowired private CardService cardService;
+  @Autowired private GroupCommitTransactionEngine engine;
+  @Autowired private CardRepository cardRepository;
+  @Autowired private MeterRegistry meterRegistry;
+  @Autowired private CardPasswordVerifier passwordVerifier;
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  private final String cardNumber = "72000001";
+  private final String password = "1234";
+
+  @BeforeEach
+  void setup() {
+    cardRepository.deleteAll();
+    CardDTO cardDTO = new CardDTO();
+    cardDTO.setCardNumber(cardNumber);
+    cardDTO.setPassword(password);
+    cardService.createCard(cardDTO);
+  }
+
+  @Test
+  void concurrentDebitsShouldShareCommitsWithoutOverdraft() throws Exception {
+    DistributionSummary batchSizes = batchSizes();
+    long commitsBefore = batchSizes.count();
+
+    // 500.00 covers 50 of the 60 debits.
+    List<Future<TransactionStatus>> results = new ArrayList<>();
+    try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+      for (int i = 0; i < 60; i++) {
+        results.add(
+            executor.submit(
+                () -> {
+                  try {
+                    cardService.executeTransaction(debit(password, "10.00"));
+                    return TransactionStatus.OK;
+                  } catch (TransactionException e) {
+                    return e.getStatus();
+                  }
+                }));
+      }
+    }
+
+    long approved = 0;
+    for (Future<TransactionStatus> result : results) {
+      TransactionStatus status = result.get();
+      Assertions.assertTrue(
+          status == TransactionStatus.OK || status == TransactionStatus.SALDO_INSUFICIENTE);
+      approved += status == TransactionStatus.OK ? 1 : 0;
+    }
+    Assertions.assertEquals(50, approved);
+    Assertions.assertEquals(Money.ZERO, cardService.getBalance(cardNumber));
+    Assertions.assertTrue(batchSizes.count() - commitsBefore < 60);
+    Assertions.assertTrue(batchSizes.max() > 1);
+  }
+
+  @Test
+  void executeBatchShouldReportEachItemFromOneCommitPerCard() {
+    DistributionSummary batchSizes = batchSizes();
+    long commitsBefore = batchSizes.count();
+
+    List<TransactionStatus> statuses =
+        engine.executeBatch(
+            List.of(
+                debit(password, "100.00"),
+                debit("wrong", "1.00"),
+                new TransactionDTO("72000099", password, new BigDecimal("1.00")),
+                debit(password, "450.00"),
+                debit(password, "0.50")));
+
+    Assertions.assertEquals(
+        List.of(
+            TransactionStatus.OK,
+            TransactionStatus.SENHA_INVALIDA,
+            TransactionStatus.CARTAO_INEXISTENTE,
+            TransactionStatus.SALDO_INSUFICIENTE,
+            TransactionStatus.OK),
+        statuses);
+    Assertions.assertEquals(Money.ofCents(399_50), cardService.getBalance(cardNumber));
+    // One commit for the card and one for the unknown card.
+    Assertions.assertEquals(2, batchSizes.count() - commitsBefore);
+  }
+
+  @Test
+  void executeBatchShouldWaitTheWindowOnceForAllCards() {
+    List<TransactionDTO> transactions = new ArrayList<>();
+    for (int i = 2; i <= 11; i++) {
+      String number = "720000" + String.format("%02d", i);
+      CardDTO cardDTO = new CardDTO();
+      cardDTO.setCardNumber(number);
+      cardDTO.setPassword(password);
+      cardService.createCard(cardDTO);
+      transactions.add(new TransactionDTO(number, password, new BigDecimal("1.00")));
+    }
+
+    // Skips the password hash, so the window dominates.
+    CardPasswordVerifier acceptAll = Mockito.mock(CardPasswordVerifier.class);
+    Mockito.when(acceptAll.matches(Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(true);
+    GroupCommitTransactionEngine slowWindow =
+        new GroupCommitTransactionEngine(
+            cardRepository, acceptAll, transactionManager, 200_000, 256, 16, meterRegistry);
+
+    long start = System.nanoTime();
+    List<TransactionStatus> statuses = slowWindow.executeBatch(transactions);
+    long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    Assertions.assertEquals(List.of(TransactionStatus.OK), statuses.stream().distinct().toList());
+    // Ten cards at one 200 ms window each would take at least 2 s.
+    Assertions.assertTrue(elapsedMs < 1_000, "batch took " + elapsedMs + " ms");
+  }
+
+  @Test
+  void executeBatchShouldReportItemsOfAFailedCommitAsErrorAndKeepTheOthers() {
+    String otherCard = "72000002";
+    CardDTO cardDTO = new CardDTO();
+    cardDTO.setCardNumber(otherCard);
+    cardDTO.setPassword(password);
+    cardService.createCard(cardDTO);
+    CardRepository failing = Mockito.mock(CardRepository.class);
+    Mockito.when(failing.findByCardNumberForUpdate(cardNumber))
+        .thenAnswer(invocation -> cardRepository.findByCardNumberForUpdate(cardNumber));
+    Mockito.when(failing.findByCardNumberForUpdate(otherCard))
+        .thenThrow(new PessimisticLockingFailureException("lock wait timeout"));
+    Mockito.when(failing.save(Mockito.any()))
+        .thenAnswer(invocation -> cardRepository.save(invocation.getArgument(0)));
+    GroupCommitTransactionEngine failingEngine =
+        new GroupCommitTransactionEngine(
+            failing, passwordVerifier, transactionManager, 0, 256, 16, meterRegistry);
+
+    List<TransactionStatus> statuses =
+        failingEngine.executeBatch(
+            List.of(
+                debit(password, "10.00"),
+                new TransactionDTO(otherCard, password, new BigDecimal("1.00")),
+                debit(password, "5.00")));
+
+    Assertions.assertEquals(
+        List.of(TransactionStatus.OK, TransactionStatus.ERROR, TransactionStatus.OK), statuses);
+    Assertions.assertEquals(Money.ofCents(485_00), cardService.getBalance(cardNumber));
+    Assertions.assertEquals(Money.ofCents(500_00), cardService.getBalance(otherCard));
+  }
+
+  @Test
+  void executeShouldReturnTheBalanceAfterItsOwnDebit() {
+    CardDTO result = engine.execute(debit(password, "12.34"));
+
+    Assertions.assertEquals(new BigDecimal("487.66"), result.getBalance());
+  }
+
+  private DistributionSummary batchSizes() {
+    return meterRegistry.get("authorizer.group-commit.batch.size").summary();
+  }
+
+  private TransactionDTO debit(String password, String value) {
+    return new TransactionDTO(cardNumber, password, new BigDecimal(value));
+  }
+}
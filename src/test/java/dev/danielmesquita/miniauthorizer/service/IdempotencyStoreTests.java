@@ -0,0 +1,174 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import dev.danielmesquita.miniauthorizer.dto.CardDTO;
+import dev.danielmesquita.miniauthorizer.dto.TransactionDTO;
+import dev.danielmesquita.miniauthorizer.entity.Card;
+import dev.danielmesquita.miniauthorizer.entity.IdempotencyRecord;
+import dev.danielmesquita.miniauthorizer.entity.Money;
+import dev.danielmesquita.miniauthorizer.enums.TransactionStatus;
+import dev.danielmesquita.miniauthorizer.exception.ConcurrentTransactionException;
+import dev.danielmesquita.miniauthorizer.exception.IdempotencyKeyException;
+import dev.danielmesquita.miniauthorizer.exception.TransactionException;
+import dev.danielmesquita.miniauthorizer.repository.CardRepository;
+import dev.danielmesquita.miniauthorizer.repository.IdempotencyRecordRepository;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@ExtendWith(MockitoExtension.class)
+public class IdempotencyStoreTests {
+
+  @Mock private IdempotencyRecordRepository repository;
+
+  @Mock private CardRepository cardRepository;
+
+  @Mock private JdbcTemplate jdbcTemplate;
+
+  @Mock private PlatformTransactionManager transactionManager;
+
+  @Mock private TransactionEngine engine;
+
+  private IdempotencyStore store;
+
+  private final String cardNumber = "12345678";
+  private final TransactionDTO transactionDTO =
+      new TransactionDTO(cardNumber, "password123", new BigDecimal("30.00"));
+  private final CardDTO approved = new CardDTO(cardNumber, "hash", new BigDecimal("70.00"));
+
+  @BeforeEach
+  public void setUp() {
+    store =
+        new IdempotencyStore(
+            repository,
+            cardRepository,
+            jdbcTemplate,
+            transactionManager,
+            1000,
+            Duration.ofHours(1));
+  }
+
+  @Test
+  public void executeShouldRunTransactionOnceAndReplayDuplicates() {
+    Mockito.when(engine.joinsCallerTransaction()).thenReturn(true);
+    Mockito.when(engine.execute(transactionDTO)).thenReturn(approved);
+
+    IdempotencyStore.Result first = store.execute("key", transactionDTO, engine);
+    IdempotencyStore.Result second = store.execute("key", transactionDTO, engine);
+
+    Assertions.assertFalse(first.replayed());
+    Assertions.assertTrue(second.replayed());
+    Assertions.assertSame(approved, second.card());
+    Mockito.verify(engine, Mockito.times(1)).execute(transactionDTO);
+    Mockito.verify(jdbcTemplate, Mockito.times(1))
+        .update(Mockito.anyString(), Mockito.any(Object[].class));
+    Mockito.verify(transactionManager).commit(Mockito.any());
+  }
+
+  @Test
+  public void executeShouldReplayDeclinedTransaction() {
+    Mockito.when(engine.execute(transactionDTO))
+        .thenThrow(new TransactionException(TransactionStatus.SALDO_INSUFICIENTE));
+
+    store.execute("key", transactionDTO, engine);
+    IdempotencyStore.Result replay = store.execute("key", transactionDTO, engine);
+
+    Assertions.assertEquals(TransactionStatus.SALDO_INSUFICIENTE, replay.status());
+    Assertions.assertTrue(replay.replayed());
+    Mockito.verify(engine, Mockito.times(1)).execute(transactionDTO);
+  }
+
+  @Test
+  public void executeShouldReplayStoredResultWhenKeyExistsInDatabase() {
+    Mockito.when(engine.joinsCallerTransaction()).thenReturn(true);
+    Mockito.when(engine.execute(transactionDTO)).thenReturn(approved);
+    Mockito.when(jdbcTemplate.update(Mockito.anyString(), Mockito.any(Object[].class)))
+        .thenThrow(new DuplicateKeyException("duplicate"));
+    Mockito.when(repository.findById("key"))
+        .thenReturn(
+            Optional.of(
+                new IdempotencyRecord(
+                    "key", cardNumber, 30_00, TransactionStatus.OK, 40_00L, Instant.now())));
+    Mockito.when(cardRepository.findByCardNumber(cardNumber))
+        .thenReturn(Optional.of(new Card(1L, cardNumber, "hash", Money.ofCents(40_00))));
+
+    IdempotencyStore.Result result = store.execute("key", transactionDTO, engine);
+
+    Assertions.assertTrue(result.replayed());
+    Assertions.assertEquals(new BigDecimal("40.00"), result.card().getBalance());
+    Mockito.verify(transactionManager).rollback(Mockito.any());
+    Assertions.assertEquals(1, store.getStoredReplayCount());
+  }
+
+  @Test
+  public void executeShouldRejectKeyReusedForAnotherTransaction() {
+    Mockito.when(engine.execute(transactionDTO)).thenReturn(approved);
+    store.execute("key", transactionDTO, engine);
+
+    TransactionDTO other = new TransactionDTO(cardNumber, "password123", new BigDecimal("31.00"));
+
+    Assertions.assertThrows(
+        IdempotencyKeyException.class, () -> store.execute("key", other, engine));
+    Mockito.verify(engine, Mockito.never()).execute(other);
+  }
+
+  @Test
+  public void executeShouldNotRememberFailuresThatAreNotDecisions() {
+    Mockito.when(engine.execute(transactionDTO))
+        .thenThrow(new ConcurrentTransactionException("conflict"))
+        .thenReturn(approved);
+
+    Assertions.assertThrows(
+        ConcurrentTransactionException.class, () -> store.execute("key", transactionDTO, engine));
+    IdempotencyStore.Result retry = store.execute("key", transactionDTO, engine);
+
+    Assertions.assertFalse(retry.replayed());
+    Assertions.assertEquals(TransactionStatus.OK, retry.status());
+  }
+
+  @Test
+  public void concurrentDuplicatesShouldWaitForInFlightResult() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Mockito.when(engine.execute(transactionDTO))
+        .thenAnswer(
+            invocation -> {
+              started.countDown();
+              release.await();
+              return approved;
+            });
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    Future<IdempotencyStore.Result> first =
+        executor.submit(() -> store.execute("key", transactionDTO, engine));
+    started.await();
+    Future<IdempotencyStore.Result> duplicate =
+        executor.submit(() -> store.execute("key", transactionDTO, engine));
+    release.countDown();
+
+    Assertions.assertFalse(first.get().replayed());
+    Assertions.assertTrue(duplicate.get().replayed());
+    executor.shutdown();
+    Mockito.verify(engine, Mockito.times(1)).execute(transactionDTO);
+  }
+
+  @Test
+  public void executeShouldRejectBlankKey() {
+    Assertions.assertThrows(
+        IdempotencyKeyException.class, () -> store.execute(" ", transactionDTO, engine));
+  }
+}
@@ -0,0 +1,224 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import dev.danielmesquita.miniauthorizer.dto.TransactionDTO;
+import dev.danielmesquita.miniauthorizer.entity.Card;
+import dev.danielmesquita.miniauthorizer.entity.Money;
+import dev.danielmesquita.miniauthorizer.enums.TransactionStatus;
+import dev.danielmesquita.miniauthorizer.exception.TransactionException;
+import dev.danielmesquita.miniauthorizer.repository.CardRepository;
+import dev.danielmesquita.miniauthorizer.utils.Factory;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class InMemoryTransactionEngineTests {
+
+  @Mock private CardRepository repository;
+
+  @Mock private PasswordEncoder passwordEncoder;
+
+  @Mock private PlatformTransactionManager transactionManager;
+
+  private InMemoryTransactionEngine engine;
+
+  private final String cardNumber = "12345678";
+  private final String rightPassword = "password123";
+
+  @BeforeEach
+  public void setUp() {
+    engine = newEngine(Optional.empty(), Optional.empty());
+    Card card = new Card(1L, cardNumber, "hash", Money.ofCents(100_00));
+    Mockito.when(repository.findByCardNumber(cardNumber)).thenReturn(Optional.of(card));
+    Mockito.when(passwordEncoder.matches(rightPassword, "hash")).thenReturn(true);
+  }
+
+  @Test
+  public void executeShouldDebitInMemoryWithoutWritingToDatabase() {
+    engine.execute(new TransactionDTO(cardNumber, rightPassword, new BigDecimal("30")));
+
+    Assertions.assertEquals(Money.ofCents(70_00), engine.findBalance(cardNumber).orElseThrow());
+    Mockito.verify(repository, Mockito.never()).updateBalance(Mockito.any(), Mockito.anyLong());
+    Mockito.verify(repository, Mockito.times(1)).findByCardNumber(cardNumber);
+  }
+
+  @Test
+  public void flushShouldPersistDirtyBalances() {
+    engine.execute(new TransactionDTO(cardNumber, rightPassword, new BigDecimal("30")));
+
+    engine.flush();
+    engine.flush();
+
+    Mockito.verify(repository, Mockito.times(1)).updateBalance(cardNumber, 70_00);
+  }
+
+  @Test
+  public void recoverShouldRestoreDebitsLoggedSinceTheLastFlush(@TempDir Path directory) {
+    Path path = directory.resolve("authorizer.wal");
+    WriteAheadLog writeAheadLog = new WriteAheadLog(path, 1, 0);
+    engine = newEngine(Optional.of(writeAheadLog), Optional.empty());
+    engine.execute(new TransactionDTO(cardNumber, rightPassword, new BigDecimal("30")));
+    // Simulates a crash: the debit never reached tb_card.
+    writeAheadLog.close();
+
+    WriteAheadLog reopened = new WriteAheadLog(path, 1, 0);
+    InMemoryTransactionEngine restarted = newEngine(Optional.of(reopened), Optional.empty());
+    restarted.recover();
+
+    Assertions.assertEquals(Money.ofCents(70_00), restarted.findBalance(cardNumber).orElseThrow());
+    Mockito.verify(repository, Mockito.times(1)).updateBalance(cardNumber, 70_00);
+    Assertions.assertTrue(new WriteAheadLog(path, 1, 0).recoveredBalances().isEmpty());
+    reopened.close();
+  }
+
+  @Test
+  public void executeShouldNotPublishADebitWhoseRecordNeverBecameDurable() {
+    WriteAheadLog writeAheadLog = Mockito.mock(WriteAheadLog.class);
+    Mockito.when(writeAheadLog.append(WriteAheadLog.RecordType.DEBIT, cardNumber, 70_00))
+        .thenReturn(1L);
+    Mockito.doThrow(new IllegalStateException("Write-ahead log fsync failed"))
+        .when(writeAheadLog)
+        .awaitDurable(1L);
+    Mockito.when(writeAheadLog.mark()).thenReturn(new WriteAheadLog.Mark(12, 1, 1L));
+    engine = newEngine(Optional.of(writeAheadLog), Optional.empty());
+
+    Assertions.assertThrows(
+        IllegalStateException.class,
+        () -> engine.execute(new TransactionDTO(cardNumber, rightPassword, new BigDecimal("30"))));
+    engine.flush();
+
+    Assertions.assertEquals(Money.ofCents(100_00), engine.findBalance(cardNumber).orElseThrow());
+    Mockito.verify(repository, Mockito.never()).updateBalance(cardNumber, 70_00);
+    // The log is left for recovery to replay.
+    Mockito.verify(writeAheadLog, Mockito.never()).checkpoint(Mockito.any());
+  }
+
+  @Test
+  public void cardsCreatedShouldLogEveryCardAndWaitForOneFsync(@TempDir Path directory) {
+    // A long interval, so a wait per card would cost one fsync each.
+    WriteAheadLog writeAheadLog = new WriteAheadLog(directory.resolve("authorizer.wal"), 1, 50);
+    engine = newEngine(Optional.of(writeAheadLog), Optional.empty());
+    List<Card> created = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      created.add(new Card(null, "5000" + i, "hash", Money.ofCents(500_00)));
+    }
+
+    engine.cardsCreated(created);
+
+    Assertions.assertEquals(20, writeAheadLog.getAppendCount());
+    Assertions.assertTrue(writeAheadLog.getFsyncCount() <= 2);
+    Assertions.assertEquals(Money.ofCents(500_00), engine.findBalance("500019").orElseThrow());
+    writeAheadLog.close();
+  }
+
+  @Test
+  public void snapshotShouldRecordUnflushedCardsWithAnUnknownVersion() {
+    CardSnapshot cardSnapshot = Mockito.mock(CardSnapshot.class);
+    engine = newEngine(Optional.empty(), Optional.of(cardSnapshot));
+    engine.execute(new TransactionDTO(cardNumber, rightPassword, new BigDecimal("30")));
+
+    engine.snapshot();
+    engine.flush();
+    engine.snapshot();
+
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<List<CardSnapshot.Entry>> entries = ArgumentCaptor.forClass(List.class);
+    Mockito.verify(cardSnapshot, Mockito.times(2)).write(entries.capture());
+    Assertions.assertEquals(
+        List.of(
+            List.of(new CardSnapshot.Entry(cardNumber, "hash", 70_00, CardSnapshot.UNFLUSHED)),
+            List.of(new CardSnapshot.Entry(cardNumber, "hash", 70_00, 1))),
+        entries.getAllValues());
+  }
+
+  @Test
+  public void recoverShouldServeSnapshotCardsWithoutReadingThem() {
+    CardSnapshot cardSnapshot = Mockito.mock(CardSnapshot.class);
+    Mockito.when(cardSnapshot.load())
+        .thenReturn(List.of(new CardSnapshot.Entry(cardNumber, "hash", 55_00, 3)));
+    engine = newEngine(Optional.empty(), Optional.of(cardSnapshot));
+
+    engine.recover();
+    engine.execute(new TransactionDTO(cardNumber, rightPassword, new BigDecimal("5")));
+
+    Assertions.assertEquals(Money.ofCents(50_00), engine.findBalance(cardNumber).orElseThrow());
+    Mockito.verify(repository, Mockito.never()).findByCardNumber(cardNumber);
+  }
+
+  @Test
+  public void executeShouldThrowExceptionWhenCardDoesNotExist() {
+    TransactionException exception =
+        Assertions.assertThrows(
+            TransactionException.class,
+            () -> engine.execute(new TransactionDTO("111", rightPassword, BigDecimal.ONE)));
+
+    Assertions.assertEquals(TransactionStatus.CARTAO_INEXISTENTE, exception.getStatus());
+  }
+
+  @Test
+  public void executeShouldThrowExceptionWhenPasswordIsInvalid() {
+    TransactionException exception =
+        Assertions.assertThrows(
+            TransactionException.class,
+            () -> engine.execute(new TransactionDTO(cardNumber, "wrong", BigDecimal.ONE)));
+
+    Assertions.assertEquals(TransactionStatus.SENHA_INVALIDA, exception.getStatus());
+  }
+
+  @Test
+  public void concurrentTransactionsShouldNotAllowOverdraw() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<Boolean>> results = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      results.add(
+          executor.submit(
+              () -> {
+                try {
+                  engine.execute(new TransactionDTO(cardNumber, rightPassword, BigDecimal.TEN));
+                  return true;
+                } catch (TransactionException e) {
+                  return false;
+                }
+              }));
+    }
+
+    int approved = 0;
+    for (Future<Boolean> result : results) {
+      approved += result.get() ? 1 : 0;
+    }
+    executor.shutdown();
+
+    Assertions.assertEquals(10, approved);
+    Assertions.assertEquals(Money.ZERO, engine.findBalance(cardNumber).orElseThrow());
+  }
+
+  private InMemoryTransactionEngine newEngine(
+      Optional<WriteAheadLog> writeAheadLog, Optional<CardSnapshot> cardSnapshot) {
+    return new InMemoryTransactionEngine(
+        repository,
+        Factory.createCardPasswordVerifier(passwordEncoder),
+        transactionManager,
+        16,
+        writeAheadLog,
+        cardSnapshot);
+  }
+}
@@ -0,0 +1,102 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import dev.danielmesquita.miniauthorizer.dto.CardDTO;
+import dev.danielmesquita.miniauthorizer.dto.TransactionDTO;
+import dev.danielmesquita.miniauthorizer.entity.Card;
+import dev.danielmesquita.miniauthorizer.entity.Money;
+import dev.danielmesquita.miniauthorizer.enums.TransactionStatus;
+import dev.danielmesquita.miniauthorizer.exception.ConcurrentTransactionException;
+import dev.danielmesquita.miniauthorizer.exception.TransactionException;
+import dev.danielmesquita.miniauthorizer.repository.CardRepository;
+import dev.danielmesquita.miniauthorizer.utils.Factory;
+import java.math.BigDecimal;
+import java.util.Optional;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@ExtendWith(MockitoExtension.class)
+public class OptimisticTransactionEngineTests {
+
+  @Mock private CardRepository repository;
+
+  @Mock private PasswordEncoder passwordEncoder;
+
+  @Mock private PlatformTransactionManager transactionManager;
+
+  private OptimisticTransactionEngine engine;
+
+  private final String cardNumber = "12345678";
+  private final String rightPassword = "password123";
+  private final TransactionDTO transactionDTO =
+      new TransactionDTO(cardNumber, rightPassword, new BigDecimal("30"));
+
+  @BeforeEach
+  public void setUp() {
+    engine =
+        new OptimisticTransactionEngine(
+            repository,
+            Factory.createCardPasswordVerifier(passwordEncoder),
+            transactionManager,
+            3,
+            1,
+            1);
+  }
+
+  @Test
+  public void executeShouldRetryOnVersionConflictAndHashOnlyOnce() {
+    Mockito.when(repository.findByCardNumber(cardNumber))
+        .thenReturn(Optional.of(card(0L, "100")))
+        .thenReturn(Optional.of(card(1L, "90")));
+    Mockito.when(passwordEncoder.matches(rightPassword, "hash")).thenReturn(true);
+    Mockito.when(repository.compareAndSetBalance(cardNumber, 70_00, 0L))
+        .thenReturn(0);
+    Mockito.when(repository.compareAndSetBalance(cardNumber, 60_00, 1L))
+        .thenReturn(1);
+
+    CardDTO result = engine.execute(transactionDTO);
+
+    Assertions.assertEquals(new BigDecimal("60.00"), result.getBalance());
+    Assertions.assertEquals(1, engine.getRetryCount());
+    Mockito.verify(passwordEncoder, Mockito.times(1)).matches(rightPassword, "hash");
+  }
+
+  @Test
+  public void executeShouldThrowConcurrentExceptionWhenAttemptsAreExhausted() {
+    Mockito.when(repository.findByCardNumber(cardNumber)).thenReturn(Optional.of(card(0L, "100")));
+    Mockito.when(passwordEncoder.matches(rightPassword, "hash")).thenReturn(true);
+    Mockito.when(repository.compareAndSetBalance(cardNumber, 70_00, 0L))
+        .thenReturn(0);
+
+    Assertions.assertThrows(
+        ConcurrentTransactionException.class, () -> engine.execute(transactionDTO));
+
+    Assertions.assertEquals(2, engine.getRetryCount());
+    Assertions.assertEquals(1, engine.getExhaustedCount());
+  }
+
+  @Test
+  public void executeShouldThrowExceptionWhenInsufficientBalance() {
+    Mockito.when(repository.findByCardNumber(cardNumber)).thenReturn(Optional.of(card(0L, "20")));
+    Mockito.when(passwordEncoder.matches(rightPassword, "hash")).thenReturn(true);
+
+    TransactionException exception =
+        Assertions.assertThrows(TransactionException.class, () -> engine.execute(transactionDTO));
+
+    Assertions.assertEquals(TransactionStatus.SALDO_INSUFICIENTE, exception.getStatus());
+    Mockito.verify(repository, Mockito.never())
+        .compareAndSetBalance(Mockito.any(), Mockito.anyLong(), Mockito.any());
+  }
+
+  private Card card(Long version, String balance) {
+    Card card = new Card(1L, cardNumber, "hash", Money.of(new BigDecimal(balance)));
+    card.setVersion(version);
+    return card;
+  }
+}
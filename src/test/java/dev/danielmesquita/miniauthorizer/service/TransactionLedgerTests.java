@@ -0,0 +1,124 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import dev.danielmesquita.miniauthorizer.entity.LedgerEntry;
+import dev.danielmesquita.miniauthorizer.entity.Money;
+import dev.danielmesquita.miniauthorizer.enums.TransactionStatus;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@ExtendWith(MockitoExtension.class)
+public class TransactionLedgerTests {
+
+  @Mock private JdbcTemplate jdbcTemplate;
+
+  private TransactionLedger ledger;
+
+  private final List<List<TransactionStatus>> batches = new ArrayList<>();
+
+  @BeforeEach
+  public void setUp() {
+    ledger = new TransactionLedger(jdbcTemplate, 3, 2);
+  }
+
+  @Test
+  public void recordShouldNotWriteUntilFlush() {
+    ledger.record("1111", Money.ofCents(10_00), TransactionStatus.OK);
+
+    Mockito.verifyNoInteractions(jdbcTemplate);
+    Assertions.assertEquals(1, ledger.getQueueSize());
+  }
+
+  @Test
+  public void flushShouldWriteQueuedEntriesInBatches() {
+    captureBatches();
+    ledger.record("1111", Money.ofCents(10_00), TransactionStatus.OK);
+    ledger.record("2222", Money.ofCents(20_00), TransactionStatus.SALDO_INSUFICIENTE);
+    ledger.record("3333", Money.ofCents(30_00), TransactionStatus.CARTAO_INEXISTENTE);
+
+    ledger.flush();
+
+    Assertions.assertEquals(
+        List.of(
+            List.of(TransactionStatus.OK, TransactionStatus.SALDO_INSUFICIENTE),
+            List.of(TransactionStatus.CARTAO_INEXISTENTE)),
+        batches);
+    Assertions.assertEquals(3, ledger.getWrittenCount());
+    Assertions.assertEquals(0, ledger.getQueueSize());
+  }
+
+  @Test
+  public void recordShouldFlushOnCallerThreadWhenQueueIsFull() {
+    captureBatches();
+    for (int i = 0; i < 4; i++) {
+      ledger.record("1111", Money.ofCents(1_00), TransactionStatus.OK);
+    }
+
+    Assertions.assertEquals(1, ledger.getCallerFlushCount());
+    Assertions.assertEquals(3, ledger.getWrittenCount());
+    Assertions.assertEquals(1, ledger.getQueueSize());
+  }
+
+  @Test
+  public void flushShouldRetryEntriesOfFailedBatch() {
+    Mockito.when(
+            jdbcTemplate.batchUpdate(
+                Mockito.anyString(), Mockito.anyList(), Mockito.anyInt(), Mockito.any()))
+        .thenThrow(new DataAccessResourceFailureException("down"))
+        .thenReturn(new int[0][]);
+    ledger.record("1111", Money.ofCents(10_00), TransactionStatus.OK);
+
+    ledger.flush();
+    Assertions.assertEquals(0, ledger.getWrittenCount());
+
+    ledger.flush();
+    Assertions.assertEquals(1, ledger.getWrittenCount());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void flushShouldDropEntriesTheDatabaseRefusesAndWriteTheRest() {
+    Mockito.when(
+            jdbcTemplate.batchUpdate(
+                Mockito.anyString(), Mockito.anyList(), Mockito.anyInt(), Mockito.any()))
+        .thenAnswer(
+            invocation -> {
+              List<LedgerEntry> entries = invocation.getArgument(1);
+              if (entries.stream().anyMatch(entry -> entry.getCardNumber().length() > 255)) {
+                throw new DataIntegrityViolationException("Value too long for card_number");
+              }
+              return new int[0][];
+            });
+    ledger.record("1".repeat(256), Money.ofCents(10_00), TransactionStatus.CARTAO_INEXISTENTE);
+    ledger.record("2222", Money.ofCents(20_00), TransactionStatus.OK);
+    ledger.record("3333", Money.ofCents(30_00), TransactionStatus.OK);
+
+    ledger.flush();
+
+    Assertions.assertEquals(2, ledger.getWrittenCount());
+    Assertions.assertEquals(1, ledger.getRejectedCount());
+    Assertions.assertEquals(0, ledger.getQueueSize());
+  }
+
+  @SuppressWarnings("unchecked")
+  private void captureBatches() {
+    Mockito.when(
+            jdbcTemplate.batchUpdate(
+                Mockito.anyString(), Mockito.anyList(), Mockito.anyInt(), Mockito.any()))
+        .thenAnswer(
+            invocation -> {
+              List<LedgerEntry> entries = invocation.getArgument(1);
+              batches.add(entries.stream().map(LedgerEntry::getStatus).toList());
+              return new int[0][];
+            });
+  }
+}
@@ -0,0 +1,161 @@
+package dev.danielmesquita.miniauthorizer.service;
+
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class WriteAheadLogTests {
+
+  // The smallest log the configuration allows, so tests can fill and wrap it quickly.
+  private static final int SIZE_MB = 1;
+
+  @TempDir Path directory;
+
+  @Test
+  public void reopenShouldRecoverLatestBalancePerCardInLogOrder() {
+    Path path = directory.resolve("authorizer.wal");
+    WriteAheadLog log = new WriteAheadLog(path, SIZE_MB, 0);
+    log.append(WriteAheadLog.RecordType.CREATE, "1111", 500_00);
+    log.append(WriteAheadLog.RecordType.DEBIT, "2222", 80_00);
+    log.awaitDurable(log.append(WriteAheadLog.RecordType.DEBIT, "1111", 450_00));
+    log.close();
+
+    WriteAheadLog reopened = new WriteAheadLog(path, SIZE_MB, 0);
+
+    Assertions.assertEquals(
+        List.of(Map.entry("2222", 80_00L), Map.entry("1111", 450_00L)),
+        List.copyOf(reopened.recoveredBalances().entrySet()));
+    reopened.close();
+  }
+
+  @Test
+  public void recoveryShouldSkipRecordsBeforeTheCheckpoint() {
+    Path path = directory.resolve("authorizer.wal");
+    WriteAheadLog log = new WriteAheadLog(path, SIZE_MB, 2);
+    log.append(WriteAheadLog.RecordType.DEBIT, "1111", 90_00);
+    log.checkpoint(log.mark());
+    log.awaitDurable(log.append(WriteAheadLog.RecordType.DEBIT, "2222", 70_00));
+    log.close();
+
+    WriteAheadLog reopened = new WriteAheadLog(path, SIZE_MB, 2);
+
+    Assertions.assertEquals(Map.of("2222", 70_00L), reopened.recoveredBalances());
+    reopened.close();
+  }
+
+  @Test
+  public void logShouldWrapAroundBehindTheCheckpoint() {
+    Path path = directory.resolve("authorizer.wal");
+    WriteAheadLog log = new WriteAheadLog(path, SIZE_MB, 0);
+    Map<String, Long> sinceCheckpoint = new LinkedHashMap<>();
+    // About three passes over the file, checkpointing every thousand records.
+    for (int i = 0; i < 120_000; i++) {
+      if (i % 1000 == 0) {
+        log.checkpoint(log.mark());
+        sinceCheckpoint.clear();
+      }
+      String cardNumber = "card-" + (i % 7);
+      log.append(WriteAheadLog.RecordType.DEBIT, cardNumber, i);
+      sinceCheckpoint.remove(cardNumber);
+      sinceCheckpoint.put(cardNumber, (long) i);
+    }
+    log.close();
+
+    WriteAheadLog reopened = new WriteAheadLog(path, SIZE_MB, 0);
+
+    Assertions.assertEquals(
+        List.copyOf(sinceCheckpoint.entrySet()),
+        List.copyOf(reopened.recoveredBalances().entrySet()));
+    reopened.close();
+  }
+
+  @Test
+  public void appendShouldFailInsteadOfOverwritingUncheckpointedRecords() {
+    WriteAheadLog log = new WriteAheadLog(directory.resolve("authorizer.wal"), SIZE_MB, 0);
+
+    Assertions.assertThrows(
+        IllegalStateException.class,
+        () -> {
+          for (int i = 0; i < 100_000; i++) {
+            log.append(WriteAheadLog.RecordType.DEBIT, "1111", i);
+          }
+        });
+
+    log.checkpoint(log.mark());
+    Assertions.assertDoesNotThrow(() -> log.append(WriteAheadLog.RecordType.DEBIT, "1111", 0));
+    log.close();
+  }
+
+  @Test
+  public void recoveryShouldClearNextEpochRecordsLeftBeforeTheCheckpoint() throws Exception {
+    Path path = directory.resolve("authorizer.wal");
+    int capacity = SIZE_MB * 1024 * 1024;
+    int recordSize = 12 + 9 + "1111".getBytes(StandardCharsets.UTF_8).length;
+    WriteAheadLog log = new WriteAheadLog(path, SIZE_MB, 0);
+    for (int i = 0; i < 1000; i++) {
+      log.append(WriteAheadLog.RecordType.DEBIT, "1111", 1_00);
+    }
+    log.checkpoint(log.mark());
+    for (int i = 0; i < 100; i++) {
+      log.append(WriteAheadLog.RecordType.DEBIT, "1111", 2_00);
+    }
+    int lost = log.mark().offset();
+    while (log.mark().offset() + recordSize <= capacity) {
+      log.append(WriteAheadLog.RecordType.DEBIT, "1111", 3_00);
+    }
+    // Wraps into the next epoch, in front of the checkpoint.
+    for (int i = 0; i < 100; i++) {
+      log.append(WriteAheadLog.RecordType.DEBIT, "1111", 666_00);
+    }
+    log.close();
+
+    // The crash kept the wrapped records but lost the tail of the file, wrap marker included.
+    try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+      file.seek(lost);
+      file.write(new byte[capacity - lost]);
+    }
+    WriteAheadLog recovered = new WriteAheadLog(path, SIZE_MB, 0);
+    Assertions.assertEquals(Map.of("1111", 2_00L), recovered.recoveredBalances());
+    // The next pass wraps again and writes fewer records than the crash left behind.
+    while (recovered.mark().offset() + recordSize <= capacity) {
+      recovered.append(WriteAheadLog.RecordType.DEBIT, "1111", 4_00);
+    }
+    for (int i = 0; i < 10; i++) {
+      recovered.append(WriteAheadLog.RecordType.DEBIT, "1111", 5_00);
+    }
+    recovered.close();
+
+    WriteAheadLog reopened = new WriteAheadLog(path, SIZE_MB, 0);
+
+    Assertions.assertEquals(Map.of("1111", 5_00L), reopened.recoveredBalances());
+    reopened.close();
+  }
+
+  @Test
+  public void recoveryShouldStopAtATornRecord() throws Exception {
+    Path path = directory.resolve("authorizer.wal");
+    WriteAheadLog log = new WriteAheadLog(path, SIZE_MB, 0);
+    log.append(WriteAheadLog.RecordType.DEBIT, "1111", 90_00);
+    log.append(WriteAheadLog.RecordType.DEBIT, "2222", 70_00);
+    log.awaitDurable(log.append(WriteAheadLog.RecordType.DEBIT, "3333", 60_00));
+    log.close();
+
+    // Flips a balance byte of the second record: header, first record, then its record header.
+    int recordSize = 12 + 9 + "1111".getBytes(StandardCharsets.UTF_8).length;
+    try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+      file.seek(12 + recordSize + 12 + 1);
+      file.write(0x7f);
+    }
+
+    WriteAheadLog reopened = new WriteAheadLog(path, SIZE_MB, 0);
+
+    Assertions.assertEquals(Map.of("1111", 90_00L), reopened.recoveredBalances());
+    reopened.close();
+  }
+}
@@ -2,15 +2,34 @@ package dev.danielmesquita.miniauthorizer.utils;
 
 import dev.danielmesquita.miniauthorizer.dto.CardDTO;
 import dev.danielmesquita.miniauthorizer.entity.Card;
-import java.math.BigDecimal;
+import dev.danielmesquita.miniauthorizer.entity.Money;
+import dev.danielmesquita.miniauthorizer.service.BalanceCache;
+import dev.danielmesquita.miniauthorizer.service.CardPasswordVerifier;
+import dev.danielmesquita.miniauthorizer.service.CredentialDigest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.springframework.security.crypto.password.PasswordEncoder;
 
 public class Factory {
   public static Card createCard() {
-    return new Card(null, null, "password123", BigDecimal.valueOf(0L));
+    return new Card(null, null, "password123", Money.ZERO);
   }
 
   public static CardDTO createCardDTO() {
     Card card = createCard();
     return new CardDTO(card);
   }
+
+  public static CardPasswordVerifier createCardPasswordVerifier(PasswordEncoder passwordEncoder) {
+    return new CardPasswordVerifier(
+        passwordEncoder,
+        new CredentialDigest(),
+        1000,
+        Duration.ofMinutes(5),
+        new SimpleMeterRegistry());
+  }
+
+  public static BalanceCache createBalanceCache() {
+    return new BalanceCache(1000, Duration.ofMinutes(5));
+  }
 }